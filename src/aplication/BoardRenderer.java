@@ -0,0 +1,154 @@
+package aplication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import chess.ChessPiece;
+import chess.Color;
+
+// terminal renderer of the board: a frame is composed in one reusable buffer and written with a single call
+// the first frame clears the screen and draws the whole board; after it only the squares that changed are
+// redrawn, reaching them with cursor addressing, and the text under the board is rewritten
+// without color no SGR codes are sent: Black pieces are lower case and highlighted squares are marked with *
+public class BoardRenderer {
+	private static final String ESC = "\u001B[";
+	// screen row of the first line under the board (8 ranks and the file letters)
+	private static final int TEXT_ROW = 10;
+	private static final int EMPTY = 0;
+
+	private final OutputStream out;
+	private final boolean color;
+	private final StringBuilder frame = new StringBuilder(2048);
+	private byte[] bytes = new byte[2048];
+	// what each square shows on the screen, as given by cell()
+	private final int[] shown = new int[64];
+	private boolean drawn;
+
+	public BoardRenderer(OutputStream out, boolean color) {
+		this.out = out;
+		this.color = color;
+	}
+
+	public boolean isColor() {
+		return color;
+	}
+
+	// starts composing a frame
+	public void beginFrame() {
+		frame.setLength(0);
+	}
+
+	// board of the frame (highlights may be null); the text appended after it starts under the board
+	public void drawBoard(ChessPiece[][] pieces, boolean[][] highlights) {
+		if (!drawn) {
+			frame.append(ESC).append("H").append(ESC).append("2J");
+			for (int i = 0; i < 8; i++) {
+				frame.append(8 - i).append(' ');
+				for (int j = 0; j < 8; j++) {
+					int cell = cell(pieces[i][j], highlights != null && highlights[i][j]);
+					appendCell(cell);
+					shown[i * 8 + j] = cell;
+				}
+				frame.append('\n');
+			}
+			frame.append("  a b c d e f g h\n");
+			drawn = true;
+		}
+		else {
+			for (int i = 0; i < 8; i++) {
+				for (int j = 0; j < 8; j++) {
+					int cell = cell(pieces[i][j], highlights != null && highlights[i][j]);
+					if (cell != shown[i * 8 + j]) {
+						// rows and columns of the screen start at 1, the board squares at column 3
+						frame.append(ESC).append(i + 1).append(';').append(3 + 2 * j).append('H');
+						appendCell(cell);
+						shown[i * 8 + j] = cell;
+					}
+				}
+			}
+		}
+		// the text of the previous frame is erased, the new one written in its place
+		frame.append(ESC).append(TEXT_ROW).append(";1H").append(ESC).append('J');
+	}
+
+	// text of the frame, written after the board
+	public StringBuilder text() {
+		return frame;
+	}
+
+	// colored text if the renderer uses colors
+	public void appendColored(String ansiColor, String s) {
+		if (color) {
+			frame.append(ansiColor).append(s).append(UI.ANSI_RESET);
+		}
+		else {
+			frame.append(s);
+		}
+	}
+
+	// writes the frame in a single call
+	public void flush() {
+		int length = frame.length();
+		if (bytes.length < length * 3) {
+			bytes = new byte[length * 3];
+		}
+		int n = 0;
+		for (int i = 0; i < length; i++) {
+			char c = frame.charAt(i);
+			if (c < 0x80) {
+				bytes[n++] = (byte)c;
+			}
+			else {
+				// rare: anything but ASCII goes through the encoder
+				byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+				System.arraycopy(encoded, 0, bytes, n, encoded.length);
+				n += encoded.length;
+			}
+		}
+		try {
+			out.write(bytes, 0, n);
+			out.flush();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// the next frame redraws the whole screen
+	public void invalidate() {
+		drawn = false;
+	}
+
+	// what a square shows: piece letter, piece color and highlight packed in an int
+	private static int cell(ChessPiece piece, boolean highlight) {
+		int cell = (piece == null) ? EMPTY : piece.toString().charAt(0) | (piece.getColor() == Color.BLACK ? 1 << 8 : 0);
+		return highlight ? cell | 1 << 9 : cell;
+	}
+
+	private void appendCell(int cell) {
+		boolean highlight = (cell & 1 << 9) != 0;
+		boolean black = (cell & 1 << 8) != 0;
+		char letter = (char)(cell & 0xFF);
+		if (!color) {
+			if (letter == EMPTY) {
+				frame.append(highlight ? '*' : '-').append(' ');
+			}
+			else {
+				frame.append(black ? Character.toLowerCase(letter) : letter).append(highlight ? '*' : ' ');
+			}
+			return;
+		}
+		if (highlight) {
+			frame.append(UI.ANSI_BLUE_BACKGROUND);
+		}
+		if (letter == EMPTY) {
+			frame.append('-');
+		}
+		else {
+			frame.append(black ? UI.ANSI_YELLOW : UI.ANSI_WHITE).append(letter);
+		}
+		frame.append(UI.ANSI_RESET).append(' ');
+	}
+}
@@ -2,6 +2,7 @@ package aplication;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
@@ -10,25 +11,59 @@ import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
+import chess.search.Ponderer;
+import chess.search.Search;
 
 public class Program {
+	// computer opponent (Black): depth and time of its own search, and the depth a pondered reply needs to be played
+	private static final int COMPUTER_DEPTH = 4;
+	private static final long COMPUTER_MILLIS = 3000;
+	private static final int PONDER_DEPTH = 3;
 
+	// arguments: --computer to play against the computer, --ponder to also let it think while you type,
+	// --no-color to draw the board without colors
+	// typing undo or redo instead of the source takes back a move or plays it again (against the computer,
+	// the computer's reply goes with it)
 	public static void main(String[] args) {
 		Scanner sc = new Scanner(System.in);
 		ChessMatch chessMatch = new ChessMatch();
 		List<ChessPiece> captured = new ArrayList<>();
+		boolean ponder = Arrays.asList(args).contains("--ponder");
+		boolean computer = ponder || Arrays.asList(args).contains("--computer");
+		UI.setColor(!Arrays.asList(args).contains("--no-color"));
+		Search search = computer ? new Search() : null;
+		Ponderer ponderer = ponder ? new Ponderer(PONDER_DEPTH) : null;
+		String computerMove = null;
+		if (ponderer != null) {
+			ponderer.start(chessMatch);
+		}
 		
 		// while the match is not in checkMate
 		while(!chessMatch.getCheckMate()) {
 			try {
-				UI.clearScreen();
 				UI.printMatch(chessMatch, captured);
+				if (computerMove != null) {
+					System.out.println("Computer played " + computerMove);
+				}
 				System.out.println();
 				System.out.print("Source: ");
+				if (sc.hasNext("undo|redo")) {
+					boolean undo = sc.nextLine().trim().equals("undo");
+					if (ponderer != null) {
+						ponderer.stop();
+					}
+					takeBack(chessMatch, captured, undo, computer);
+					computerMove = null;
+					if (ponderer != null) {
+						ponderer.start(chessMatch);
+					}
+					continue;
+				}
 				ChessPosition source = UI.readChessPosition(sc); 
 				
 				boolean[][] possibleMoves = chessMatch.possibleMoves(source);
-				UI.clearScreen();
 				UI.printBoard(chessMatch.getPieces(), possibleMoves);
 				
 				System.out.println();
@@ -36,11 +71,16 @@ public class Program {
 				ChessPosition target = UI.readChessPosition(sc); 
 				
 				ChessPiece capturedPiece = chessMatch.performChessMove(source, target);
+				// the position being pondered is gone: what was found for this move is kept, the rest is dropped
+				if (ponderer != null) {
+					ponderer.stop();
+				}
 			
 				//if true, some piece was captured
 				if (capturedPiece != null) {  
 					captured.add(capturedPiece);
 				}
+				String promotion = "";
 				//means that a pawn was promoted (arrived at the end of the board)
 				if (chessMatch.getPromoted() != null) {
 					System.out.println("Enter piece for promotion (B|N|R|Q): ");
@@ -51,6 +91,18 @@ public class Program {
 					}
 					//change the pawn piece to the new piece
 					chessMatch.replacePromotedPiece(type);
+					promotion = type.toLowerCase();
+				}
+				if (computer && !chessMatch.getCheckMate() && chessMatch.getCurrentPlayer() == Color.BLACK) {
+					int move = Move.parse(source.toString() + target.toString() + promotion);
+					computerMove = playComputerMove(chessMatch, captured, search, ponderer, move);
+					if (computerMove == null) {
+						// no legal move left without being in check: stalemate
+						break;
+					}
+					if (ponderer != null && !chessMatch.getCheckMate()) {
+						ponderer.start(chessMatch);
+					}
 				}
 			}
 			catch (ChessException e) {
@@ -65,5 +117,42 @@ public class Program {
 		UI.clearScreen();
 		UI.printMatch(chessMatch, captured); 
 	}
-}
 
+	// takes back (undo) or plays again (redo) a move; against the computer it goes on until it is White's turn
+	private static void takeBack(ChessMatch chessMatch, List<ChessPiece> captured, boolean undo, boolean computer) {
+		do {
+			if (undo ? chessMatch.getHistorySize() == 0 : chessMatch.getRedoSize() == 0) {
+				throw new ChessException(undo ? "There is no move to take back" : "There is no move to play again");
+			}
+			if (undo) {
+				chessMatch.undo();
+			}
+			else {
+				chessMatch.redo();
+			}
+		} while (computer && chessMatch.getCurrentPlayer() == Color.BLACK && !chessMatch.getCheckMate()
+				&& (undo ? chessMatch.getHistorySize() : chessMatch.getRedoSize()) > 0);
+		// the match keeps the pieces captured in the moves it can take back
+		captured.clear();
+		captured.addAll(chessMatch.getCapturedPieces());
+	}
+
+	// plays the computer's reply to the human move: the pondered one if the analysis got deep enough,
+	// otherwise the result of a new search; returns the move played or null if there is none
+	private static String playComputerMove(ChessMatch chessMatch, List<ChessPiece> captured, Search search, Ponderer ponderer, int humanMove) {
+		Search.Result reply = (ponderer != null) ? ponderer.getReply(humanMove) : null;
+		String origin = "pondered";
+		if (reply == null || reply.getDepth() < PONDER_DEPTH) {
+			reply = search.search(chessMatch, COMPUTER_DEPTH, 0, COMPUTER_MILLIS);
+			origin = "searched";
+		}
+		if (reply.getMove() == Move.NONE) {
+			return null;
+		}
+		ChessPiece capturedPiece = chessMatch.performChessMove(reply.getMove());
+		if (capturedPiece != null) {
+			captured.add(capturedPiece);
+		}
+		return Move.toString(reply.getMove()) + " (" + origin + ", depth " + reply.getDepth() + ")";
+	}
+}
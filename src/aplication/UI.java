@@ -10,6 +10,8 @@ import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
 import chess.Color;
+import chess.Move;
+import chess.eval.StaticExchange;
 
 public class UI {
 
@@ -33,10 +35,18 @@ public class UI {
 	public static final String ANSI_CYAN_BACKGROUND = "\u001B[46m";
 	public static final String ANSI_WHITE_BACKGROUND = "\u001B[47m";
 	
+	// frames are drawn in place: only what changed since the previous frame is sent to the terminal
+	private static BoardRenderer renderer = new BoardRenderer(System.out, true);
+	
+	// without color (--no-color) the board is drawn with letters only: Black pieces in lower case
+	public static void setColor(boolean color) {
+		renderer = new BoardRenderer(System.out, color);
+	}
+	
 	// https://stackoverflow.com/questions/2979383/java-clear-the-console
+	// the next frame is drawn on a cleared screen (frames are otherwise redrawn in place, without clearing)
 	public static void clearScreen() {
-		System.out.print("\033[H\033[2J");
-		System.out.flush();
+		renderer.invalidate();
 	}
 
 	public static ChessPosition readChessPosition(Scanner sc) {
@@ -55,64 +65,64 @@ public class UI {
 	
 	// show match
 	public static void printMatch(ChessMatch chessMatch, List<ChessPiece> captured) {
-		printBoard(chessMatch.getPieces());
-		System.out.println();
+		renderer.beginFrame();
+		renderer.drawBoard(chessMatch.getPieces(), null);
+		StringBuilder text = renderer.text();
+		text.append('\n');
 		printCapturedPiece(captured);
-		System.out.println();
-		System.out.println("Turn: " + chessMatch.getTurn());
+		text.append('\n');
+		text.append("Turn: ").append(chessMatch.getTurn()).append('\n');
+		printEvaluation(chessMatch.getEvaluation());
 		
 		if(!chessMatch.getCheckMate()) {
-			System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
+			text.append("Waiting player: ").append(chessMatch.getCurrentPlayer()).append('\n');
 			if(chessMatch.getCheck()) {
-				System.out.println("CHECK!!!");
+				text.append("CHECK!!!\n");
 			} 
+			printHangingPieces(chessMatch);
 		}
 		else {
-			System.out.println("CHECKMATE !!!");
-			System.out.println("Winner: "+ chessMatch.getCurrentPlayer());
+			text.append("CHECKMATE !!!\n");
+			text.append("Winner: ").append(chessMatch.getCurrentPlayer()).append('\n');
 		}
+		renderer.flush();
 	}
 	
 	public static void printBoard(ChessPiece[][] pieces) {
-		for (int i = 0; i < pieces.length; i++) {
-			System.out.print(8 - i + " ");
-			for (int j = 0; j < pieces.length; j++) {
-				//show only the pieces, without the possible movements
-				printPiece(pieces[i][j], false);
-			}
-			System.out.println();
-		}
-		System.out.println("  a b c d e f g h");
-
+		//show only the pieces, without the possible movements
+		printBoard(pieces, null);
 	}
 	
 	public static void printBoard(ChessPiece[][] pieces, boolean[][] possibleMoves) {
+		//shows the background color depending on whether it is true or false in the boolean matrix
+		renderer.beginFrame();
+		renderer.drawBoard(pieces, possibleMoves);
+		renderer.flush();
+	}
+	
+	// pieces of the waiting player that lose material if the opponent starts capturing on their square
+	private static void printHangingPieces(ChessMatch chessMatch) {
+		StaticExchange exchange = new StaticExchange();
+		ChessPiece[][] pieces = chessMatch.getPieces();
+		exchange.setPosition(pieces);
+		StringBuilder hanging = new StringBuilder();
 		for (int i = 0; i < pieces.length; i++) {
-			System.out.print(8 - i + " ");
 			for (int j = 0; j < pieces.length; j++) {
-//shows the background color depending on whether it is true or false in the boolean matrix
-				printPiece(pieces[i][j], possibleMoves[i][j]); 
+				if (pieces[i][j] != null && pieces[i][j].getColor() == chessMatch.getCurrentPlayer()
+						&& exchange.threat(Move.square(i, j)) > 0) {
+					hanging.append(" ").append(pieces[i][j]).append(Move.squareName(Move.square(i, j)));
+				}
 			}
-			System.out.println();
 		}
-		System.out.println("  a b c d e f g h");
-
+		if (hanging.length() > 0) {
+			renderer.text().append("Hanging:").append(hanging).append('\n');
+		}
 	}
 	
-	private static void printPiece(ChessPiece piece, boolean background) {
-		if(background) {
-			System.out.print(ANSI_BLUE_BACKGROUND);
-		}
-		if (piece == null) {// no piece in this position on the board
-			System.out.print("-" + ANSI_RESET);
-		} else {
-			if (piece.getColor() == Color.WHITE) {
-				System.out.print(ANSI_WHITE + piece + ANSI_RESET); 
-			} else {
-				System.out.print(ANSI_YELLOW + piece + ANSI_RESET);
-			}
-		}
-		System.out.print(" ");
+	// who's winning, in pawns (ex: Evaluation: +0.35 (White))
+	private static void printEvaluation(int centipawns) {
+		String side = centipawns > 0 ? " (White)" : centipawns < 0 ? " (Black)" : "";
+		renderer.text().append(String.format("Evaluation: %+.2f", centipawns / 100.0)).append(side).append('\n');
 	}
 	
 	private static void printCapturedPiece(List<ChessPiece> captured) {
@@ -120,14 +130,13 @@ public class UI {
 		List<ChessPiece> white = captured.stream().filter(x -> x.getColor() == Color.WHITE).collect(Collectors.toList()); 
 		List<ChessPiece> black = captured.stream().filter(x -> x.getColor() == Color.BLACK).collect(Collectors.toList());
 		
-		System.out.println("Captured Pieces: ");
-		System.out.print("White: ");
-		System.out.print(ANSI_WHITE);
-		System.out.println(Arrays.toString(white.toArray()));
-		System.out.print(ANSI_RESET);
-		System.out.print("BLACK: ");
-		System.out.print(ANSI_YELLOW);
-		System.out.println(Arrays.toString(black.toArray()));
-		System.out.print(ANSI_RESET);
+		StringBuilder text = renderer.text();
+		text.append("Captured Pieces: \n");
+		text.append("White: ");
+		renderer.appendColored(ANSI_WHITE, Arrays.toString(white.toArray()));
+		text.append('\n');
+		text.append("BLACK: ");
+		renderer.appendColored(ANSI_YELLOW, Arrays.toString(black.toArray()));
+		text.append('\n');
 	}
 }
@@ -0,0 +1,260 @@
+package aplication;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import chess.search.Search;
+
+// Universal Chess Interface (UCI) front end: lets chess GUIs and test drivers use the engine
+// through stdin/stdout; the search runs on its own thread so stop and isready are answered at once
+// commands: uci, isready, setoption name MultiPV value n, ucinewgame, position, go, stop, quit
+public class UciProgram {
+	private static final String NAME = "Chess";
+	private static final int MAX_MULTI_PV = 64;
+
+	private final PrintStream out;
+	private final Search search = new Search();
+	private ChessMatch chessMatch = new ChessMatch();
+	// position command the match was set up from: the start (startpos or FEN) and the moves played
+	private String positionStart = "startpos";
+	private final List<String> positionMoves = new ArrayList<>();
+	private final int[] legal = new int[256];
+
+	private Thread searchThread;
+	private volatile boolean stopRequested;
+
+	public UciProgram(PrintStream out) {
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws IOException {
+		UciProgram uci = new UciProgram(new PrintStream(System.out, true, StandardCharsets.UTF_8));
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!uci.execute(line.trim())) {
+				break;
+			}
+		}
+		uci.stopSearch();
+	}
+
+	// runs one command, returns false on quit
+	public boolean execute(String line) {
+		String[] tokens = line.split("\\s+");
+		switch (tokens[0]) {
+		case "uci":
+			out.println("id name " + NAME);
+			out.println("id author arthurccamargo");
+			out.println("option name MultiPV type spin default 1 min 1 max " + MAX_MULTI_PV);
+			out.println("uciok");
+			break;
+		case "isready":
+			out.println("readyok");
+			break;
+		case "setoption":
+			setOption(tokens);
+			break;
+		case "ucinewgame":
+			stopSearch();
+			setPosition(new String[] { "position", "startpos" });
+			break;
+		case "position":
+			stopSearch();
+			setPosition(tokens);
+			break;
+		case "go":
+			stopSearch();
+			go(tokens);
+			break;
+		case "stop":
+			stopSearch();
+			break;
+		case "quit":
+			return false;
+		default:
+			// unknown commands are ignored, as the protocol asks
+			break;
+		}
+		return true;
+	}
+
+	private void setOption(String[] tokens) {
+		// setoption name <name> value <value>
+		if (tokens.length >= 5 && tokens[2].equalsIgnoreCase("MultiPV") && tokens[3].equals("value")) {
+			try {
+				int multiPv = Integer.parseInt(tokens[4]);
+				search.setMultiPv(Math.max(1, Math.min(MAX_MULTI_PV, multiPv)));
+			}
+			catch (NumberFormatException e) {
+				out.println("info string invalid MultiPV value " + tokens[4]);
+			}
+		}
+	}
+
+	// position startpos|fen <fen> [moves <move>...]
+	// when the command only adds moves to the previous position, only the new moves are played
+	private void setPosition(String[] tokens) {
+		int i = 1;
+		String start;
+		if (tokens.length > 1 && tokens[1].equals("fen")) {
+			StringBuilder fen = new StringBuilder();
+			for (i = 2; i < tokens.length && !tokens[i].equals("moves"); i++) {
+				fen.append(fen.length() > 0 ? " " : "").append(tokens[i]);
+			}
+			start = fen.toString();
+		}
+		else {
+			start = "startpos";
+			i = 2;
+		}
+		int firstMove = (i < tokens.length && tokens[i].equals("moves")) ? i + 1 : tokens.length;
+		int moveCount = tokens.length - firstMove;
+
+		boolean continues = start.equals(positionStart) && moveCount >= positionMoves.size();
+		for (int k = 0; continues && k < positionMoves.size(); k++) {
+			continues = positionMoves.get(k).equals(tokens[firstMove + k]);
+		}
+		if (!continues) {
+			try {
+				chessMatch = start.equals("startpos") ? new ChessMatch() : new ChessMatch(start);
+			}
+			catch (RuntimeException e) {
+				out.println("info string invalid position: " + e.getMessage());
+				return;
+			}
+			positionStart = start;
+			positionMoves.clear();
+		}
+		for (int k = firstMove + positionMoves.size(); k < tokens.length; k++) {
+			int move = legalMove(tokens[k]);
+			if (move == Move.NONE) {
+				out.println("info string illegal move " + tokens[k] + ", the moves after it are ignored");
+				return;
+			}
+			chessMatch.doMove(move);
+			positionMoves.add(tokens[k]);
+		}
+	}
+
+	// the legal move written in coordinate notation, or Move.NONE
+	private int legalMove(String text) {
+		int move = Move.parse(text);
+		if (move == Move.NONE) {
+			return Move.NONE;
+		}
+		int count = chessMatch.legalMoves(legal);
+		for (int i = 0; i < count; i++) {
+			if (legal[i] == move) {
+				return move;
+			}
+		}
+		return Move.NONE;
+	}
+
+	// go [depth n] [nodes n] [movetime ms] [wtime ms] [btime ms] [winc ms] [binc ms] [movestogo n] [infinite]
+	private void go(String[] tokens) {
+		int depth = Search.MAX_PLY;
+		long nodes = 0;
+		long moveTime = 0;
+		long[] time = { 0, 0 };
+		long[] increment = { 0, 0 };
+		int movesToGo = 30;
+		boolean infinite = false;
+		try {
+			for (int i = 1; i < tokens.length; i++) {
+				switch (tokens[i]) {
+				case "depth": depth = Integer.parseInt(tokens[++i]); break;
+				case "nodes": nodes = Long.parseLong(tokens[++i]); break;
+				case "movetime": moveTime = Long.parseLong(tokens[++i]); break;
+				case "wtime": time[0] = Long.parseLong(tokens[++i]); break;
+				case "btime": time[1] = Long.parseLong(tokens[++i]); break;
+				case "winc": increment[0] = Long.parseLong(tokens[++i]); break;
+				case "binc": increment[1] = Long.parseLong(tokens[++i]); break;
+				case "movestogo": movesToGo = Math.max(1, Integer.parseInt(tokens[++i])); break;
+				case "infinite": infinite = true; break;
+				default: break;
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			out.println("info string invalid go command");
+			return;
+		}
+		int side = chessMatch.getCurrentPlayer() == Color.WHITE ? 0 : 1;
+		if (moveTime == 0 && time[side] > 0) {
+			// share the clock over the moves to go, keeping a margin for the protocol
+			moveTime = Math.max(1, Math.min(time[side] / movesToGo + increment[side] / 2, time[side] - 50));
+		}
+		int maxDepth = depth;
+		long nodeLimit = nodes;
+		long timeLimit = infinite ? 0 : moveTime;
+		boolean waitForStop = infinite;
+		stopRequested = false;
+		search.setListener(this::info);
+		searchThread = new Thread(() -> {
+			Search.Result result = search.search(chessMatch, maxDepth, nodeLimit, timeLimit);
+			// in infinite mode the best move is only given after stop
+			while (waitForStop && !stopRequested) {
+				try {
+					Thread.sleep(1);
+				}
+				catch (InterruptedException e) {
+					break;
+				}
+			}
+			int[] pv = result.getPv();
+			String bestMove = result.getMove() == Move.NONE ? "0000" : Move.toString(result.getMove());
+			out.println("bestmove " + bestMove + (pv.length > 1 ? " ponder " + Move.toString(pv[1]) : ""));
+		}, "search");
+		searchThread.start();
+	}
+
+	// info line of a completed line of the search
+	private void info(int line, Search.Result result) {
+		long millis = result.getNanos() / 1_000_000;
+		long nps = result.getNanos() > 0 ? result.getNodes() * 1_000_000_000L / result.getNanos() : 0;
+		StringBuilder sb = new StringBuilder("info depth ").append(result.getDepth());
+		sb.append(" multipv ").append(line);
+		int score = result.getScore();
+		if (result.isMate()) {
+			int plies = Search.MATE - Math.abs(score);
+			sb.append(" score mate ").append(score > 0 ? (plies + 1) / 2 : -(plies / 2));
+		}
+		else {
+			sb.append(" score cp ").append(score);
+		}
+		sb.append(" nodes ").append(result.getNodes()).append(" nps ").append(nps).append(" time ").append(millis);
+		sb.append(" pv");
+		for (int move : result.getPv()) {
+			sb.append(' ').append(Move.toString(move));
+		}
+		out.println(sb);
+	}
+
+	// stops the running search, if any, and waits for its best move to be printed
+	private void stopSearch() {
+		if (searchThread == null) {
+			return;
+		}
+		stopRequested = true;
+		try {
+			while (searchThread.isAlive()) {
+				search.stop();
+				searchThread.join(1);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		searchThread = null;
+	}
+}
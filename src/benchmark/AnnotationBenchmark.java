@@ -0,0 +1,202 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.Notation;
+import chess.annotation.AnnotationPipeline;
+import chess.annotation.PgnGame;
+import chess.annotation.PgnReader;
+import chess.tournament.Tournament;
+
+// annotation of an archive of random games (from the initial position and from the tournament openings,
+// with comments, NAGs and variations for the reader to skip), first in one run, then in a run aborted
+// halfway and started again from its checkpoint: both outputs must be the same bytes, and every annotated
+// game must read back with the moves of the archive
+// the games/s of each stage, the peak of games in flight and of heap used are printed
+public class AnnotationBenchmark {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 120;
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int maxInFlight = workers * 4;
+		Path dir = Files.createTempDirectory("annotation");
+		Path archive = dir.resolve("archive.pgn");
+		List<String> openings = Tournament.readDefaultOpenings();
+		writeArchive(archive, games, openings, new Random(42));
+		System.out.printf("%d games, %d KB, %d workers, depth %d, %d games in flight at most%n",
+				games, Files.size(archive) / 1024, workers, depth, maxInFlight);
+
+		Path whole = dir.resolve("whole.pgn");
+		AnnotationPipeline pipeline = new AnnotationPipeline(archive, whole, workers, depth, maxInFlight);
+		HeapSampler heap = new HeapSampler();
+		heap.start();
+		long start = System.nanoTime();
+		pipeline.run();
+		long nanos = System.nanoTime() - start;
+		heap.interrupt();
+		System.out.printf("one run: %.2f s, %.1f games/s, peak in flight %d, peak heap used %d MB%n",
+				nanos / 1e9, games * 1e9 / nanos, pipeline.getPeakInFlight(), heap.peak / (1024 * 1024));
+		for (AnnotationPipeline.Stage stage : pipeline.getStages()) {
+			System.out.println("  " + stage);
+		}
+		checkRoundTrip(archive, whole);
+
+		// crash halfway, then start again
+		Path resumed = dir.resolve("resumed.pgn");
+		AnnotationPipeline first = new AnnotationPipeline(archive, resumed, workers, depth, maxInFlight);
+		Thread crash = new Thread(() -> {
+			while (first.getGamesWritten() < games / 2) {
+				Thread.onSpinWait();
+			}
+			first.abort();
+		});
+		crash.setDaemon(true);
+		crash.start();
+		try {
+			first.run();
+			throw new IllegalStateException("The run was not aborted");
+		}
+		catch (IOException e) {
+			System.out.printf("aborted: %s, checkpoint \"%s\"%n", e.getMessage(),
+					Files.readString(first.getCheckpoint(), StandardCharsets.UTF_8).trim());
+		}
+		AnnotationPipeline second = new AnnotationPipeline(archive, resumed, workers, depth, maxInFlight);
+		second.run();
+		System.out.printf("resumed: %d games from the checkpoint, %d annotated%n", second.getGamesResumed(), second.getGamesWritten());
+		if (!Arrays.equals(Files.readAllBytes(whole), Files.readAllBytes(resumed))) {
+			throw new IllegalStateException("The resumed output differs from the one of a single run");
+		}
+		System.out.println("resumed output identical to the single run");
+		for (Path file : List.of(archive, whole, resumed)) {
+			Files.delete(file);
+		}
+		Files.delete(dir);
+	}
+
+	private static void writeArchive(Path archive, int games, List<String> openings, Random random) throws IOException {
+		try (Writer out = Files.newBufferedWriter(archive, StandardCharsets.UTF_8)) {
+			for (int g = 0; g < games; g++) {
+				String fen = g % 3 == 0 ? null : openings.get(random.nextInt(openings.size()));
+				ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+				StringBuilder sb = new StringBuilder();
+				sb.append("[Event \"Random ").append(g + 1).append("\"]\n");
+				if (fen != null) {
+					sb.append("[SetUp \"1\"]\n[FEN \"").append(fen).append("\"]\n");
+				}
+				sb.append('\n');
+				int plies = 20 + random.nextInt(60);
+				boolean white = chessMatch.getCurrentPlayer() == chess.Color.WHITE;
+				int number = 1;
+				if (!white) {
+					sb.append("1... ");
+				}
+				for (int ply = 0; ply < plies; ply++) {
+					int[] moves = chessMatch.getLegalMoves();
+					if (moves.length == 0) {
+						break;
+					}
+					int move = moves[random.nextInt(moves.length)];
+					if (white) {
+						sb.append(number).append(". ");
+					}
+					sb.append(Notation.toSan(chessMatch, move)).append(' ');
+					switch (random.nextInt(12)) {
+						case 0:
+							sb.append("{a comment} ");
+							break;
+						case 1:
+							sb.append("$1 ");
+							break;
+						case 2:
+							sb.append("(").append(Move.toString(moves[0])).append(" {side line}) ");
+							break;
+						default:
+							break;
+					}
+					chessMatch.doMove(move);
+					if (!white) {
+						number++;
+					}
+					white = !white;
+					if (ply % 8 == 7) {
+						sb.append('\n');
+					}
+				}
+				sb.append("*\n\n");
+				out.write(sb.toString());
+			}
+		}
+	}
+
+	// the annotated games hold the moves of the archive, in its order
+	private static void checkRoundTrip(Path archive, Path annotated) throws IOException {
+		try (PgnReader original = new PgnReader(Files.newBufferedReader(archive, StandardCharsets.UTF_8));
+				PgnReader output = new PgnReader(Files.newBufferedReader(annotated, StandardCharsets.UTF_8))) {
+			PgnGame expected;
+			int count = 0;
+			while ((expected = original.next()) != null) {
+				PgnGame game = output.next();
+				if (game == null || !sameMoves(expected, game)) {
+					throw new IllegalStateException("Game " + (count + 1) + " annotated with other moves");
+				}
+				count++;
+			}
+			if (output.next() != null) {
+				throw new IllegalStateException("More games annotated than in the archive");
+			}
+		}
+	}
+
+	private static boolean sameMoves(PgnGame expected, PgnGame game) {
+		List<Integer> a = replay(expected);
+		List<Integer> b = replay(game);
+		return a != null && a.equals(b);
+	}
+
+	private static List<Integer> replay(PgnGame game) {
+		ChessMatch chessMatch = game.newMatch();
+		List<Integer> moves = new ArrayList<>();
+		for (String san : game.getMoves()) {
+			int move = Notation.parseSan(chessMatch, san);
+			if (move == Move.NONE) {
+				return null;
+			}
+			chessMatch.doMove(move);
+			moves.add(move);
+		}
+		return moves;
+	}
+
+	private static final class HeapSampler extends Thread {
+		volatile long peak;
+
+		HeapSampler() {
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			Runtime runtime = Runtime.getRuntime();
+			while (!isInterrupted()) {
+				peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+				try {
+					Thread.sleep(5);
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import chess.ChessMatch;
+import chess.archive.ArchiveIndex;
+import chess.archive.ArchiveIndexWriter;
+import chess.archive.MaterialSignature;
+import chess.tournament.Tournament;
+
+// index of an archive of random games played from the tournament openings, built with a small buffer so
+// that the postings are merged from several runs; queries by position (positions of the games, the
+// openings shared by thousands of games among them) and by material, checked against a replay of every
+// game, which is what answering them took without an index
+// the ingestion rate, the size of the index and the query latencies are printed
+public class ArchiveBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		int buffer = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 19;
+		List<String> openings = Tournament.readDefaultOpenings();
+		Random random = new Random(42);
+		String[] starts = new String[games];
+		int[][] moves = new int[games][];
+		for (int g = 0; g < games; g++) {
+			starts[g] = openings.get(random.nextInt(openings.size()));
+			moves[g] = randomGame(new ChessMatch(starts[g]), 20 + random.nextInt(100), random);
+		}
+
+		Path dir = Files.createTempDirectory("archive");
+		long start = System.nanoTime();
+		long plies;
+		try (ArchiveIndexWriter writer = new ArchiveIndexWriter(dir, buffer)) {
+			for (int g = 0; g < games; g++) {
+				writer.add(new ChessMatch(starts[g]), moves[g], moves[g].length);
+			}
+			plies = writer.getPlies();
+			long ingested = System.nanoTime() - start;
+			System.out.printf("ingested %d games (%d plies) in %.2f s: %.0f games/s%n",
+					games, plies, ingested / 1e9, games * 1e9 / ingested);
+		}
+		long built = System.nanoTime() - start;
+		ArchiveIndex index = ArchiveIndex.open(dir);
+		System.out.printf("index built in %.2f s: %d positions, %d signatures, %.1f MB (%.2f bytes per ply)%n",
+				built / 1e9, index.getPositions(), index.getSignatures(), index.getBytes() / 1e6,
+				(double)index.getBytes() / plies);
+
+		// positions met in the games, the starting positions first; material of the games at their end
+		List<Long> positionQueries = new ArrayList<>();
+		for (String opening : openings) {
+			positionQueries.add(new ChessMatch(opening).getPositionKey());
+		}
+		List<Long> materialQueries = new ArrayList<>();
+		while (positionQueries.size() < 2000) {
+			int g = random.nextInt(games);
+			ChessMatch chessMatch = new ChessMatch(starts[g]);
+			int plyCount = random.nextInt(moves[g].length + 1);
+			for (int i = 0; i < plyCount; i++) {
+				chessMatch.doMove(moves[g][i]);
+			}
+			positionQueries.add(chessMatch.getPositionKey());
+			long signature = MaterialSignature.of(chessMatch);
+			if (materialQueries.size() < 200 && !materialQueries.contains(signature)) {
+				materialQueries.add(signature);
+			}
+		}
+
+		start = System.nanoTime();
+		Map<Long, List<Integer>> expectedPositions = new HashMap<>();
+		Map<Long, List<Integer>> expectedMaterial = new HashMap<>();
+		for (long key : positionQueries) {
+			expectedPositions.put(key, new ArrayList<>());
+		}
+		for (long signature : materialQueries) {
+			expectedMaterial.put(signature, new ArrayList<>());
+		}
+		for (int g = 0; g < games; g++) {
+			ChessMatch chessMatch = new ChessMatch(starts[g]);
+			for (int i = 0; i <= moves[g].length; i++) {
+				if (i > 0) {
+					chessMatch.doMove(moves[g][i - 1]);
+				}
+				addOnce(expectedPositions.get(chessMatch.getPositionKey()), g);
+				addOnce(expectedMaterial.get(MaterialSignature.of(chessMatch)), g);
+			}
+		}
+		long replay = System.nanoTime() - start;
+		System.out.printf("replay of every game for all the queries at once: %.2f s%n", replay / 1e9);
+
+		long[] positionNanos = new long[positionQueries.size()];
+		long postings = 0;
+		for (int round = 0; round < 2; round++) {
+			for (int q = 0; q < positionQueries.size(); q++) {
+				long key = positionQueries.get(q);
+				long t0 = System.nanoTime();
+				int[] found = index.gamesWithPosition(key);
+				positionNanos[q] = System.nanoTime() - t0;
+				check(found, expectedPositions.get(key), "position " + Long.toHexString(key));
+				postings += round == 1 ? found.length : 0;
+			}
+			report(round == 0 ? "positions, first" : "positions, again", positionNanos, postings);
+		}
+		int[] initial = index.gamesWithPosition(new ChessMatch(openings.get(0)).getPositionKey());
+		System.out.printf("  first opening: %d games%n", initial.length);
+
+		long[] materialNanos = new long[materialQueries.size()];
+		postings = 0;
+		for (int q = 0; q < materialQueries.size(); q++) {
+			long signature = materialQueries.get(q);
+			long t0 = System.nanoTime();
+			int[] found = index.gamesWithMaterial(signature);
+			materialNanos[q] = System.nanoTime() - t0;
+			check(found, expectedMaterial.get(signature), MaterialSignature.toString(signature));
+			postings += found.length;
+		}
+		report("material", materialNanos, postings);
+		for (String name : new String[] { "KRPvKR", "KQvK", "KRvKR" }) {
+			long t0 = System.nanoTime();
+			int[] found = index.gamesWithMaterialEitherSide(name);
+			System.out.printf("  %s (either side): %d games, %.1f us%n", name, found.length, (System.nanoTime() - t0) / 1e3);
+		}
+
+		index = null;
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>)files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	private static int[] randomGame(ChessMatch chessMatch, int plies, Random random) {
+		int[] game = new int[plies];
+		int count = 0;
+		while (count < plies) {
+			int[] legal = chessMatch.getLegalMoves();
+			if (legal.length == 0) {
+				break;
+			}
+			game[count] = legal[random.nextInt(legal.length)];
+			chessMatch.doMove(game[count++]);
+		}
+		return Arrays.copyOf(game, count);
+	}
+
+	private static void addOnce(List<Integer> list, int game) {
+		if (list != null && (list.isEmpty() || list.get(list.size() - 1) != game)) {
+			list.add(game);
+		}
+	}
+
+	private static void check(int[] found, List<Integer> expected, String query) {
+		if (found.length != expected.size()) {
+			throw new IllegalStateException(query + ": " + found.length + " games, " + expected.size() + " expected");
+		}
+		for (int i = 0; i < found.length; i++) {
+			if (found[i] != expected.get(i)) {
+				throw new IllegalStateException(query + ": game " + found[i] + " instead of " + expected.get(i));
+			}
+		}
+	}
+
+	private static void report(String name, long[] nanos, long postings) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		System.out.printf("%d queries by %s: p50 %.1f us, p99 %.1f us, max %.1f us%s%n", sorted.length, name,
+				sorted[sorted.length / 2] / 1e3, sorted[sorted.length * 99 / 100] / 1e3, sorted[sorted.length - 1] / 1e3,
+				postings > 0 ? ", " + postings + " games returned" : "");
+	}
+}
@@ -0,0 +1,135 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveResult;
+import chess.async.AsyncChessMatch;
+
+// cost of illegal moves: random games are replayed with two illegal attempts before each move (a wrong
+// target for the piece, and a source that is not a piece of the side to move), through performChessMove
+// catching the ChessException, through tryChessMove, and through AsyncChessMatch (all the matches on one thread)
+public class AsyncMoveBenchmark {
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Random random = new Random(42);
+		List<int[]> lines = new ArrayList<>();
+		int plies = 0;
+		for (int g = 0; g < games; g++) {
+			int[] line = randomGame(random, 120);
+			lines.add(line);
+			plies += line.length / 3;
+		}
+		int attempts = plies * 3;
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		for (int round = 0; round < 10; round++) {
+			long start = System.nanoTime();
+			int rejected = 0;
+			for (int[] line : lines) {
+				rejected += replayWithExceptions(line);
+			}
+			long exceptionNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int results = 0;
+			for (int[] line : lines) {
+				results += replayWithResults(line);
+			}
+			long resultNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int async = 0;
+			for (int[] line : lines) {
+				async += replayAsync(line, executor);
+			}
+			long asyncNanos = System.nanoTime() - start;
+
+			if (results != rejected || async != rejected) {
+				throw new IllegalStateException("Rejections differ: " + rejected + ", " + results + ", " + async);
+			}
+			System.out.printf("%d attempts, %d rejected: performChessMove %.0f/s, tryChessMove %.0f/s, AsyncChessMatch %.0f/s%n",
+					attempts, rejected, attempts / (exceptionNanos / 1e9), attempts / (resultNanos / 1e9),
+					attempts / (asyncNanos / 1e9));
+		}
+		executor.shutdown();
+	}
+
+	// moves of a random game, each ply as three moves: the two illegal attempts, then the move played
+	private static int[] randomGame(Random random, int maxPlies) {
+		ChessMatch chessMatch = new ChessMatch();
+		List<Integer> line = new ArrayList<>();
+		for (int ply = 0; ply < maxPlies; ply++) {
+			int[] moves = chessMatch.getLegalMoves();
+			if (moves.length == 0) {
+				break;
+			}
+			int move = moves[random.nextInt(moves.length)];
+			int source = Move.source(move);
+			// first square the piece can't go to
+			int wrong = 0;
+			while (wrong == source || contains(moves, Move.encode(source, wrong))) {
+				wrong++;
+			}
+			line.add(Move.encode(source, wrong));
+			// the target is empty or an opponent piece, it can't be the source of a move
+			line.add(Move.encode(Move.target(move), source));
+			line.add(move);
+			chessMatch.doMove(move);
+		}
+		return line.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static boolean contains(int[] moves, int move) {
+		return Arrays.stream(moves).anyMatch(m -> Move.encode(Move.source(m), Move.target(m)) == move);
+	}
+
+	private static int replayWithExceptions(int[] line) {
+		ChessMatch chessMatch = new ChessMatch();
+		int rejected = 0;
+		for (int move : line) {
+			try {
+				chessMatch.performChessMove(move);
+			}
+			catch (ChessException e) {
+				rejected++;
+			}
+		}
+		return rejected;
+	}
+
+	private static int replayWithResults(int[] line) {
+		ChessMatch chessMatch = new ChessMatch();
+		int rejected = 0;
+		for (int move : line) {
+			if (!chessMatch.tryChessMove(move).isAccepted()) {
+				rejected++;
+			}
+		}
+		return rejected;
+	}
+
+	// all the moves of the game are queued at once, as requests arriving faster than they are played
+	private static int replayAsync(int[] line, ExecutorService executor) {
+		AsyncChessMatch chessMatch = new AsyncChessMatch(new ChessMatch(), executor);
+		List<CompletableFuture<MoveResult>> results = new ArrayList<>(line.length);
+		for (int move : line) {
+			results.add(chessMatch.move(move));
+		}
+		int rejected = 0;
+		for (CompletableFuture<MoveResult> result : results) {
+			if (!result.join().isAccepted()) {
+				rejected++;
+			}
+		}
+		return rejected;
+	}
+}
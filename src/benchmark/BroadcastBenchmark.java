@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import chess.ChessMatch;
+import chess.events.MoveEventBroadcaster;
+import chess.events.MoveEventHandler;
+import chess.events.MoveEventSubscriber;
+
+// fan-out latency of the move event ring buffer: one thread plays random games while the subscribers
+// follow it on their own threads; the last subscriber is slow (it sleeps on every event) and shows
+// the resyncs of a reader lapped by the writer
+public class BroadcastBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+		int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+		MoveEventBroadcaster broadcaster = new MoveEventBroadcaster(capacity);
+
+		Thread[] threads = new Thread[subscribers];
+		long[][] latencies = new long[subscribers][];
+		MoveEventSubscriber[] readers = new MoveEventSubscriber[subscribers];
+		AtomicBoolean done = new AtomicBoolean();
+		for (int s = 0; s < subscribers; s++) {
+			int index = s;
+			boolean slow = subscribers > 1 && s == subscribers - 1;
+			readers[s] = broadcaster.subscribe();
+			latencies[s] = new long[1 << 20];
+			int[] count = { 0 };
+			MoveEventHandler handler = new MoveEventHandler() {
+				@Override
+				public void onEvent(long sequence, long event, long publishNanos) {
+					long latency = System.nanoTime() - publishNanos;
+					if (count[0] < latencies[index].length) {
+						latencies[index][count[0]++] = latency;
+					}
+					if (slow) {
+						try {
+							Thread.sleep(1);
+						}
+						catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}
+
+				@Override
+				public void onResync(String fen, long nextSequence) {
+					new ChessMatch(fen);
+				}
+			};
+			threads[s] = new Thread(() -> {
+				while (!done.get() || readers[index].getLag() > 0) {
+					if (readers[index].poll(handler, 64) == 0) {
+						Thread.yield();
+					}
+					if (done.get() && slow) {
+						break;
+					}
+				}
+				latencies[index] = Arrays.copyOf(latencies[index], count[0]);
+			}, "subscriber-" + s);
+			threads[s].start();
+		}
+
+		Random random = new Random(42);
+		long start = System.nanoTime();
+		for (int g = 0; g < games; g++) {
+			ChessMatch chessMatch = new ChessMatch();
+			chessMatch.setBroadcaster(broadcaster);
+			for (int ply = 0; ply < 120 && !chessMatch.getCheckMate(); ply++) {
+				int[] moves = chessMatch.getLegalMoves();
+				if (moves.length == 0) {
+					break;
+				}
+				chessMatch.performChessMove(moves[random.nextInt(moves.length)]);
+			}
+		}
+		long writerNanos = System.nanoTime() - start;
+		done.set(true);
+		for (Thread t : threads) {
+			t.join();
+		}
+		System.out.printf("%d events published in %.1f s, ring buffer of %d%n", broadcaster.getPublished(), writerNanos / 1e9, broadcaster.getCapacity());
+		for (int s = 0; s < subscribers; s++) {
+			long[] l = latencies[s];
+			Arrays.sort(l);
+			System.out.printf("subscriber %d%s: %d received, %d lost, %d resyncs, latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+					s, (subscribers > 1 && s == subscribers - 1) ? " (slow)" : "", readers[s].getReceived(), readers[s].getLost(), readers[s].getResyncs(),
+					percentile(l, 0.5) / 1e3, percentile(l, 0.99) / 1e3, l.length == 0 ? 0 : l[l.length - 1] / 1e3);
+		}
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		return sorted.length == 0 ? 0 : sorted[(int)Math.min(sorted.length - 1, p * sorted.length)];
+	}
+}
@@ -0,0 +1,166 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import chess.Color;
+import chess.clock.ChessClock;
+import chess.clock.ClockScheduler;
+import chess.clock.ManualTimeSource;
+
+// many games on clocks of one ClockScheduler, in simulated time (ManualTimeSource, 1 ms ticks): every
+// millisecond the scheduler advances, then the players whose move is due press their clock; players
+// think 0.2 to 2 s a move, and in some games a player stops moving so that its flag must fall
+// every flag is checked against the time the simulation expects it (at or less than a tick after), and at
+// the end no game may be over its time without its flag; the cost of a tick is measured
+// then the cost of a press, in random game order, is compared to rescheduling one task per game on a
+// ScheduledThreadPoolExecutor
+public class ClockBenchmark {
+	private static final long MS = 1_000_000L;
+	private static final long TIME = 30_000 * MS;
+	private static final long INCREMENT = 500 * MS;
+	// longest think, in ms, and the ring of the moves due
+	private static final int RING = 4096;
+	private static final int NEVER = -1;
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+		ManualTimeSource time = new ManualTimeSource();
+		ClockScheduler scheduler = new ClockScheduler(time, MS);
+		Random random = new Random(42);
+
+		// what the simulation expects: the side to move, its time left when it started, and when
+		long[][] left = new long[games][2];
+		Color[] toMove = new Color[games];
+		long[] since = new long[games];
+		long[] flaggedAt = new long[games];
+		int[] wrongFlags = new int[1];
+		ChessClock[] clocks = new ChessClock[games];
+		// moves due, by millisecond modulo RING, as linked lists of games
+		int[] head = new int[RING];
+		int[] next = new int[games];
+		java.util.Arrays.fill(head, NEVER);
+		// a player of one game in 20 stops thinking after its first moves
+		int[] stopsAfter = new int[games];
+		int[] moves = new int[games];
+		for (int g = 0; g < games; g++) {
+			int game = g;
+			clocks[g] = scheduler.newClock(TIME, INCREMENT, (clock, color) -> {
+				flaggedAt[game] = time.nanoTime();
+				long due = since[game] + left[game][color == Color.WHITE ? 0 : 1];
+				if (color != toMove[game] || flaggedAt[game] < due || flaggedAt[game] >= due + MS) {
+					wrongFlags[0]++;
+				}
+			});
+			left[g][0] = TIME;
+			left[g][1] = TIME;
+			stopsAfter[g] = random.nextInt(20) == 0 ? 2 + random.nextInt(40) : Integer.MAX_VALUE;
+			// White's first move starts the clock
+			clocks[g].press(Color.WHITE);
+			toMove[g] = Color.BLACK;
+			schedule(g, random, 0, head, next);
+		}
+
+		long tickNanos = 0;
+		long presses = 0;
+		for (int ms = 1; ms <= seconds * 1000; ms++) {
+			time.advance(MS);
+			long start = System.nanoTime();
+			scheduler.advance();
+			tickNanos += System.nanoTime() - start;
+			int g = head[ms % RING];
+			head[ms % RING] = NEVER;
+			while (g != NEVER) {
+				int following = next[g];
+				if (flaggedAt[g] == 0) {
+					Color color = toMove[g];
+					int side = color == Color.WHITE ? 0 : 1;
+					long now = time.nanoTime();
+					clocks[g].press(color);
+					presses++;
+					left[g][side] += INCREMENT - (now - since[g]);
+					since[g] = now;
+					toMove[g] = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+					if (++moves[g] < stopsAfter[g]) {
+						schedule(g, random, ms, head, next);
+					}
+				}
+				g = following;
+			}
+		}
+
+		int flags = 0;
+		int missed = 0;
+		for (int g = 0; g < games; g++) {
+			if (flaggedAt[g] != 0) {
+				flags++;
+			}
+			else if (since[g] + left[g][toMove[g] == Color.WHITE ? 0 : 1] <= time.nanoTime()) {
+				missed++;
+			}
+		}
+		System.out.printf("%d games, %d s simulated: %d presses, %d flags (%d wrong, %d missed), %d clocks running%n",
+				games, seconds, presses, flags, wrongFlags[0], missed, scheduler.getRunningClocks());
+		System.out.printf("tick %.2f us (%d ticks)%n", tickNanos / 1e3 / (seconds * 1000), seconds * 1000);
+		if (wrongFlags[0] != 0 || missed != 0) {
+			throw new IllegalStateException(wrongFlags[0] + " flags at the wrong time, " + missed + " missed");
+		}
+		pressCost(games, random);
+	}
+
+	// a move of the game in 200 to 2000 ms
+	private static void schedule(int game, Random random, int ms, int[] head, int[] next) {
+		int at = (ms + 200 + random.nextInt(1800)) % RING;
+		next[game] = head[at];
+		head[at] = game;
+	}
+
+	// every game moves once per round, in an order shuffled for each round
+	private static void pressCost(int games, Random random) {
+		ManualTimeSource time = new ManualTimeSource();
+		ClockScheduler scheduler = new ClockScheduler(time, MS);
+		ChessClock[] clocks = new ChessClock[games];
+		Color[] toMove = new Color[games];
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		executor.setRemoveOnCancelPolicy(true);
+		Runnable flag = () -> { };
+		ScheduledFuture<?>[] tasks = new ScheduledFuture<?>[games];
+		for (int g = 0; g < games; g++) {
+			clocks[g] = scheduler.newClock(TIME, INCREMENT, null);
+			clocks[g].press(Color.WHITE);
+			toMove[g] = Color.BLACK;
+			tasks[g] = executor.schedule(flag, TIME, TimeUnit.NANOSECONDS);
+		}
+		int[] order = new int[games];
+		for (int g = 0; g < games; g++) {
+			order[g] = g;
+		}
+		for (int round = 0; round < 10; round++) {
+			for (int i = games - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			time.advance(200 * MS);
+			long start = System.nanoTime();
+			for (int g : order) {
+				clocks[g].press(toMove[g]);
+				toMove[g] = toMove[g] == Color.WHITE ? Color.BLACK : Color.WHITE;
+			}
+			long wheelNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int g : order) {
+				tasks[g].cancel(false);
+				tasks[g] = executor.schedule(flag, TIME + (g & 1023) * MS, TimeUnit.NANOSECONDS);
+			}
+			long executorNanos = System.nanoTime() - start;
+			System.out.printf("press %.0f ns, ScheduledThreadPoolExecutor cancel and schedule %.0f ns (%d games)%n",
+					(double)wheelNanos / games, (double)executorNanos / games, games);
+		}
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.cluster.AnalysisCoordinator;
+import chess.search.Search;
+import chess.tournament.Tournament;
+
+// analysis spread over worker processes started on localhost, checked against the same searches in
+// this JVM: a batch of positions (the tournament openings and positions of random games), the root
+// moves of single positions, then a batch during which one worker process is killed
+// both sides search with one Search whose move ordering is cleared before each position, as the workers
+// do, and each batch is timed against a round of the same searches here
+// the scores must be the ones of the searches here; the time, the steals and the workers lost are printed
+public class ClusterBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int workers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		List<String> positions = new ArrayList<>(Tournament.readDefaultOpenings());
+		Random random = new Random(42);
+		while (positions.size() < 60) {
+			ChessMatch chessMatch = new ChessMatch();
+			int plies = 10 + random.nextInt(60);
+			for (int ply = 0; ply < plies && chessMatch.getLegalMoves().length > 0; ply++) {
+				int[] moves = chessMatch.getLegalMoves();
+				chessMatch.doMove(moves[random.nextInt(moves.length)]);
+			}
+			if (chessMatch.getLegalMoves().length > 0) {
+				positions.add(chessMatch.getFen());
+			}
+		}
+
+		Search search = new Search();
+		List<Search.Result> expected = new ArrayList<>();
+		for (String fen : positions) {
+			search.getMoveOrdering().clear();
+			expected.add(search.search(new ChessMatch(fen), depth, 0, 0));
+		}
+
+		try (AnalysisCoordinator coordinator = AnalysisCoordinator.startLocal(workers, List.of("-Xmx256m"))) {
+			System.out.printf("%d workers on port %d%n", coordinator.getWorkerCount(), coordinator.getPort());
+			for (int round = 0; round < 3; round++) {
+				long start = System.nanoTime();
+				for (String fen : positions) {
+					search.getMoveOrdering().clear();
+					search.search(new ChessMatch(fen), depth, 0, 0);
+				}
+				long localNanos = System.nanoTime() - start;
+				start = System.nanoTime();
+				List<Search.Result> results = coordinator.analyse(positions, depth);
+				long nanos = System.nanoTime() - start;
+				check(positions, expected, results);
+				System.out.printf("batch of %d positions, depth %d: %.2f s on the workers, %.2f s in this JVM, %d steals%n",
+						positions.size(), depth, nanos / 1e9, localNanos / 1e9, coordinator.getSteals());
+			}
+
+			for (int i = 0; i < 4; i++) {
+				String fen = positions.get(i * 7);
+				search.getMoveOrdering().clear();
+				Search.Result single = search.search(new ChessMatch(fen), depth, 0, 0);
+				Search.Result split = coordinator.analyseRoot(fen, depth);
+				if (single.getScore() != split.getScore()) {
+					throw new IllegalStateException("Root split of " + fen + ": " + split + " / " + single);
+				}
+				System.out.printf("root split: %s, one search: %s%n", split, single);
+			}
+
+			// a worker dies during the batch: its task is analysed by the others
+			ProcessHandle victim = ProcessHandle.current().children().findFirst().orElseThrow();
+			Thread killer = new Thread(() -> {
+				try {
+					Thread.sleep(200);
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				victim.destroyForcibly();
+			});
+			killer.start();
+			List<Search.Result> results = coordinator.analyse(positions, depth);
+			check(positions, expected, results);
+			System.out.printf("batch with worker %d killed: complete, %d workers lost, %d left%n", victim.pid(),
+					coordinator.getLostWorkers(), coordinator.getWorkerCount());
+		}
+	}
+
+	private static void check(List<String> positions, List<Search.Result> expected, List<Search.Result> results) {
+		for (int i = 0; i < positions.size(); i++) {
+			if (results.get(i).getScore() != expected.get(i).getScore()) {
+				throw new IllegalStateException("Score of " + positions.get(i) + ": " + results.get(i) + " / " + expected.get(i));
+			}
+		}
+	}
+}
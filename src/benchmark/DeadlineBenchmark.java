@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.search.Search;
+
+// latency of Search.searchUntil with a fixed budget on a mixed set of positions: the mate puzzles of
+// mate-puzzles.txt and positions of random games from the opening to the endgame
+// each search is given the deadline now + budget; the time until it returns is recorded, and so is the
+// depth reached, to see that the budget is used and not only respected
+public class DeadlineBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		long budgetMillis = args.length > 0 ? Long.parseLong(args[0]) : 20;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		List<String> positions = positions();
+		Search search = new Search();
+		long budget = budgetMillis * 1_000_000;
+		for (int round = 0; round < rounds; round++) {
+			long[] latencies = new long[positions.size()];
+			long depths = 0;
+			int noMove = 0;
+			for (int i = 0; i < positions.size(); i++) {
+				ChessMatch chessMatch = new ChessMatch(positions.get(i));
+				long start = System.nanoTime();
+				Search.Result result = search.searchUntil(chessMatch, Search.MAX_PLY, start + budget);
+				latencies[i] = System.nanoTime() - start;
+				depths += result.getDepth();
+				if (result.getMove() == Move.NONE) {
+					noMove++;
+				}
+			}
+			Arrays.sort(latencies);
+			int n = latencies.length;
+			System.out.printf("%d positions, %d ms budget: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f ms; depth %.1f, %d without a move%n",
+					n, budgetMillis, latencies[n / 2] / 1e6, latencies[n * 9 / 10] / 1e6, latencies[(int)Math.ceil(n * 0.99) - 1] / 1e6,
+					latencies[n - 1] / 1e6, (double)depths / n, noMove);
+		}
+	}
+
+	// positions with at least one legal move
+	private static List<String> positions() throws IOException {
+		List<String> positions = new ArrayList<>();
+		try (BufferedReader reader = MateBenchmark.openPuzzles()) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					positions.add(line.split(";")[0].trim());
+				}
+			}
+		}
+		Random random = new Random(42);
+		while (positions.size() < 300) {
+			ChessMatch chessMatch = new ChessMatch();
+			int plies = random.nextInt(120);
+			for (int ply = 0; ply < plies; ply++) {
+				int[] moves = chessMatch.getLegalMoves();
+				if (moves.length == 0) {
+					break;
+				}
+				chessMatch.doMove(moves[random.nextInt(moves.length)]);
+			}
+			if (chessMatch.getLegalMoves().length > 0) {
+				positions.add(chessMatch.getFen());
+			}
+		}
+		return positions;
+	}
+}
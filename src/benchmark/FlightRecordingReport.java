@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+// summary of the chess events of a flight recording: performChessMove latency per piece type, the
+// rejections by cause, the checkmate tests in and out of check and the games started and ended
+// record with: java -XX:StartFlightRecording=filename=chess.jfr -cp bin benchmark.MetricsBenchmark
+public class FlightRecordingReport {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("usage: FlightRecordingReport <recording.jfr>");
+			return;
+		}
+		Map<String, List<Long>> moves = new TreeMap<>();
+		Map<String, Integer> rejections = new TreeMap<>();
+		List<Long> inCheck = new ArrayList<>();
+		List<Long> notInCheck = new ArrayList<>();
+		long candidates = 0;
+		int checks = 0;
+		int mates = 0;
+		int starts = 0;
+		Map<String, Integer> winners = new TreeMap<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(Paths.get(args[0]))) {
+			switch (event.getEventType().getName()) {
+			case "chess.PerformMove":
+				String rejection = event.getString("rejection");
+				if (rejection != null) {
+					rejections.merge(rejection, 1, Integer::sum);
+					break;
+				}
+				moves.computeIfAbsent(event.getString("piece"), k -> new ArrayList<>()).add(event.getDuration().toNanos());
+				checks += event.getBoolean("check") ? 1 : 0;
+				break;
+			case "chess.CheckMateTest":
+				int tried = event.getInt("candidateMoves");
+				boolean mate = event.getBoolean("checkMate");
+				// out of check no move is tried
+				if (tried > 0 || mate) {
+					inCheck.add(event.getDuration().toNanos());
+					candidates += tried;
+					mates += mate ? 1 : 0;
+				}
+				else {
+					notInCheck.add(event.getDuration().toNanos());
+				}
+				break;
+			case "chess.GameStart":
+				starts++;
+				break;
+			case "chess.GameEnd":
+				winners.merge(event.getString("winner"), 1, Integer::sum);
+				break;
+			default:
+				break;
+			}
+		}
+		System.out.println("performChessMove, legal moves by piece:");
+		for (Map.Entry<String, List<Long>> entry : moves.entrySet()) {
+			print("  " + entry.getKey(), entry.getValue());
+		}
+		System.out.println("  moves giving check: " + checks);
+		System.out.println("performChessMove, rejected moves by cause:");
+		for (Map.Entry<String, Integer> entry : rejections.entrySet()) {
+			System.out.printf("  %7d %s%n", entry.getValue(), entry.getKey());
+		}
+		System.out.println("testCheckMate:");
+		print("  out of check", notInCheck);
+		print("  in check", inCheck);
+		System.out.printf("  candidate moves per test in check: %.1f, mates: %d%n",
+				inCheck.isEmpty() ? 0.0 : (double)candidates / inCheck.size(), mates);
+		System.out.println("games: " + starts + " started, checkmates " + winners);
+	}
+
+	private static void print(String label, List<Long> nanos) {
+		if (nanos.isEmpty()) {
+			System.out.printf("%-16s %8d%n", label, 0);
+			return;
+		}
+		Collections.sort(nanos);
+		long total = 0;
+		for (long n : nanos) {
+			total += n;
+		}
+		System.out.printf("%-16s %8d events, mean %7.0f ns, p50 %7d ns, p99 %8d ns%n", label, nanos.size(),
+				(double)total / nanos.size(), nanos.get(nanos.size() / 2), nanos.get((int)(nanos.size() * 0.99)));
+	}
+}
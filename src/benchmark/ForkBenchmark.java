@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import chess.ChessMatch;
+
+// cost of branching a match: fork() against setting the position up again from its FEN, on positions
+// of random games; every fork is checked to be the same position and independent of the original
+public class ForkBenchmark {
+
+	public static void main(String[] args) {
+		int positions = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int repeat = 200;
+		Random random = new Random(42);
+		ChessMatch[] matches = new ChessMatch[positions];
+		for (int i = 0; i < positions; i++) {
+			matches[i] = randomPosition(random, random.nextInt(80));
+			check(matches[i]);
+		}
+		for (int round = 0; round < 5; round++) {
+			long sink = 0;
+			long start = System.nanoTime();
+			for (int r = 0; r < repeat; r++) {
+				for (ChessMatch chessMatch : matches) {
+					sink += chessMatch.fork().getTurn();
+				}
+			}
+			long forkNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int r = 0; r < repeat; r++) {
+				for (ChessMatch chessMatch : matches) {
+					sink += new ChessMatch(chessMatch.getFen()).getTurn();
+				}
+			}
+			long fenNanos = System.nanoTime() - start;
+			int copies = repeat * positions;
+			System.out.printf("fork %.0f ns, new ChessMatch(getFen()) %.0f ns per copy (%d)%n",
+					(double)forkNanos / copies, (double)fenNanos / copies, sink);
+		}
+	}
+
+	// the fork has the same position, legal moves and keys, and moves played on it leave the original as it was
+	private static void check(ChessMatch chessMatch) {
+		String fen = chessMatch.getFen();
+		ChessMatch fork = chessMatch.fork();
+		if (!fork.getFen().equals(fen) || fork.getPositionKey() != chessMatch.getPositionKey()
+				|| fork.getEvaluation() != chessMatch.getEvaluation()
+				|| !Arrays.equals(fork.getLegalMoves(), chessMatch.getLegalMoves())) {
+			throw new IllegalStateException("The fork differs from " + fen);
+		}
+		for (int move : fork.getLegalMoves()) {
+			fork.doMove(move);
+			if (!chessMatch.getFen().equals(fen)) {
+				throw new IllegalStateException("Playing on the fork changed " + fen);
+			}
+			fork.undo();
+		}
+		if (!fork.getFen().equals(fen)) {
+			throw new IllegalStateException("Undo on the fork changed " + fen);
+		}
+	}
+
+	private static ChessMatch randomPosition(Random random, int plies) {
+		ChessMatch chessMatch = new ChessMatch();
+		for (int ply = 0; ply < plies; ply++) {
+			int[] moves = chessMatch.getLegalMoves();
+			if (moves.length == 0) {
+				break;
+			}
+			chessMatch.doMove(moves[random.nextInt(moves.length)]);
+		}
+		return chessMatch;
+	}
+}
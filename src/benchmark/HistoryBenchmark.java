@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import chess.ChessMatch;
+
+// cost of the move history in a long game: random moves are played with doMove, then all taken back with
+// undo and played again with redo; time and bytes allocated per ply are measured for each of the three
+public class HistoryBenchmark {
+
+	public static void main(String[] args) {
+		int plies = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		for (int round = 0; round < 5; round++) {
+			Random random = new Random(42);
+			int[] line = new int[plies];
+			int played = 0;
+			ChessMatch chessMatch = new ChessMatch();
+			// the random line is chosen first, so that generating moves is not measured
+			while (played < plies) {
+				int[] moves = chessMatch.getLegalMoves();
+				if (moves.length == 0) {
+					// mate or stalemate: the line starts again from there on a new game
+					break;
+				}
+				line[played] = moves[random.nextInt(moves.length)];
+				chessMatch.doMove(line[played++]);
+			}
+			while (chessMatch.getHistorySize() > 0) {
+				chessMatch.undo();
+			}
+
+			long bytes = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			for (int i = 0; i < played; i++) {
+				chessMatch.doMove(line[i]);
+			}
+			long doNanos = System.nanoTime() - start;
+			long doBytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+			bytes = threads.getThreadAllocatedBytes(thread);
+			start = System.nanoTime();
+			for (int i = 0; i < played; i++) {
+				chessMatch.undo();
+			}
+			long undoNanos = System.nanoTime() - start;
+			long undoBytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+			bytes = threads.getThreadAllocatedBytes(thread);
+			start = System.nanoTime();
+			for (int i = 0; i < played; i++) {
+				chessMatch.redo();
+			}
+			long redoNanos = System.nanoTime() - start;
+			long redoBytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+			System.out.printf("%d plies: doMove %.2f us %d B, undo %.2f us %d B, redo %.2f us %d B per ply%n", played,
+					doNanos / 1e3 / played, doBytes / played, undoNanos / 1e3 / played, undoBytes / played,
+					redoNanos / 1e3 / played, redoBytes / played);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.Move;
+import chess.metrics.MoveMetrics;
+
+// cost of a move played the way the interface plays it: the source is chosen and its moves highlighted,
+// a wrong target is tried, then the move is performed; the games are random games generated beforehand
+// the piece moves generated per ply are counted by the possibleMoves histograms of MoveMetrics
+public class LegalMoveCacheBenchmark {
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		List<int[]> lines = new ArrayList<>();
+		Random random = new Random(42);
+		int plies = 0;
+		for (int g = 0; g < games; g++) {
+			int[] line = randomGame(random, 120);
+			lines.add(line);
+			plies += line.length;
+		}
+		MoveMetrics metrics = MoveMetrics.getInstance();
+		for (int round = 0; round < 10; round++) {
+			metrics.reset();
+			long start = System.nanoTime();
+			int rejected = 0;
+			for (int[] line : lines) {
+				rejected += replay(line);
+			}
+			long nanos = System.nanoTime() - start;
+			long generated = 0;
+			for (Map.Entry<String, Long> entry : metrics.getCounts().entrySet()) {
+				if (entry.getKey().startsWith("possibleMoves.")) {
+					generated += entry.getValue();
+				}
+			}
+			System.out.printf("%d plies, %d rejected: %.2f us and %.2f piece move generations per ply%n",
+					plies, rejected, nanos / 1e3 / plies, (double)generated / plies);
+		}
+	}
+
+	// moves of a random game, played with doMove
+	private static int[] randomGame(Random random, int maxPlies) {
+		ChessMatch chessMatch = new ChessMatch();
+		List<Integer> line = new ArrayList<>();
+		for (int ply = 0; ply < maxPlies; ply++) {
+			int[] moves = chessMatch.getLegalMoves();
+			if (moves.length == 0) {
+				break;
+			}
+			int move = moves[random.nextInt(moves.length)];
+			chessMatch.doMove(move);
+			line.add(move);
+		}
+		return line.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	// plays the game through possibleMoves and performChessMove, returns the wrong targets rejected
+	private static int replay(int[] line) {
+		ChessMatch chessMatch = new ChessMatch();
+		int rejected = 0;
+		for (int move : line) {
+			ChessPosition source = position(Move.source(move));
+			boolean[][] highlight = chessMatch.possibleMoves(source);
+			// first square that is not highlighted, as a player missing the target would
+			int wrong = 0;
+			while (wrong < 64 && highlight[Move.row(wrong)][Move.column(wrong)]) {
+				wrong++;
+			}
+			try {
+				chessMatch.performChessMove(source, position(wrong));
+			}
+			catch (ChessException e) {
+				rejected++;
+			}
+			chessMatch.performChessMove(move);
+		}
+		return rejected;
+	}
+
+	private static ChessPosition position(int square) {
+		return new ChessPosition((char)('a' + Move.column(square)), 8 - Move.row(square));
+	}
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import chess.ChessMatch;
+import chess.search.MateSolver;
+
+// nodes and time of the mate solver on a puzzle set (the bundled mate-puzzles.txt, or the file given)
+public class MateBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		long maxNodes = args.length > 1 ? Long.parseLong(args[1]) : 5_000_000;
+		MateSolver solver = new MateSolver();
+		long totalNodes = 0;
+		long totalNanos = 0;
+		int solved = 0;
+		int puzzles = 0;
+		try (BufferedReader reader = args.length > 0 ? Files.newBufferedReader(Paths.get(args[0]))
+				: openPuzzles()) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split(";");
+				int n = Integer.parseInt(fields[1].trim());
+				boolean expectMate = fields.length < 3 || fields[2].trim().equals("mate");
+				MateSolver.Result result = solver.solve(new ChessMatch(fields[0].trim()), n, maxNodes);
+				boolean ok = (result.getStatus() == MateSolver.Status.MATE) == expectMate && result.getStatus() != MateSolver.Status.UNKNOWN;
+				puzzles++;
+				solved += ok ? 1 : 0;
+				totalNodes += result.getNodes();
+				totalNanos += result.getNanos();
+				System.out.printf("%-4s mate in %d: %-40s %8d nodes %9.1f ms%n", ok ? "ok" : "FAIL", n, result, result.getNodes(), result.getNanos() / 1e6);
+			}
+		}
+		System.out.printf("%d/%d puzzles, %d nodes, %.1f s, %.0f nodes/s%n", solved, puzzles, totalNodes, totalNanos / 1e9, totalNodes / (totalNanos / 1e9));
+	}
+
+	// the puzzles bundled with the benchmarks (mate-puzzles.txt, which javac doesn't copy to the output directory)
+	static BufferedReader openPuzzles() throws IOException {
+		InputStream in = MateBenchmark.class.getResourceAsStream("mate-puzzles.txt");
+		if (in == null) {
+			throw new IOException("benchmark/mate-puzzles.txt is not on the class path: copy it from src next to the "
+					+ "compiled classes, or add src to the class path");
+		}
+		return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+}
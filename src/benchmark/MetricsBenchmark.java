@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.Map;
+import java.util.Random;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.metrics.MoveMetrics;
+
+// cost of the move metrics: random games played through performChessMove (with some illegal attempts)
+// with the metrics off and on, then the figures the MBean reports
+public class MetricsBenchmark {
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		MoveMetrics metrics = MoveMetrics.getInstance();
+		for (int round = 0; round < 3; round++) {
+			for (boolean enabled : new boolean[] { false, true }) {
+				metrics.setEnabled(enabled);
+				metrics.reset();
+				long nanos = play(games);
+				System.out.printf("metrics %-3s: %.1f us per game%n", enabled ? "on" : "off", nanos / 1e3 / games);
+			}
+		}
+		System.out.println("performed " + metrics.getPerformedMoves() + ", rejected " + metrics.getRejectedMoves());
+		System.out.println("rejections: " + metrics.getRejectionsByCause());
+		Map<String, Long> counts = metrics.getCounts();
+		Map<String, Double> means = metrics.getMeanNanos();
+		Map<String, Long> p99 = metrics.getP99Nanos();
+		for (String operation : counts.keySet()) {
+			System.out.printf("%-24s %9d calls, mean %8.0f ns, p99 < %8d ns%n", operation, counts.get(operation), means.get(operation), p99.get(operation));
+		}
+	}
+
+	// time spent in performChessMove and possibleMoves
+	private static long play(int games) {
+		Random random = new Random(42);
+		long nanos = 0;
+		for (int g = 0; g < games; g++) {
+			ChessMatch chessMatch = new ChessMatch();
+			for (int ply = 0; ply < 120 && !chessMatch.getCheckMate(); ply++) {
+				int[] moves = chessMatch.getLegalMoves();
+				if (moves.length == 0) {
+					break;
+				}
+				// a random square pair, usually rejected, then a legal move
+				ChessPosition from = new ChessPosition((char)('a' + random.nextInt(8)), 1 + random.nextInt(8));
+				ChessPosition to = new ChessPosition((char)('a' + random.nextInt(8)), 1 + random.nextInt(8));
+				int move = moves[random.nextInt(moves.length)];
+				long start = System.nanoTime();
+				try {
+					chessMatch.possibleMoves(from);
+				}
+				catch (ChessException e) {
+					// not a square of the side to move
+				}
+				try {
+					chessMatch.performChessMove(from, to);
+				}
+				catch (ChessException e) {
+					chessMatch.performChessMove(move);
+				}
+				nanos += System.nanoTime() - start;
+			}
+		}
+		return nanos;
+	}
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessMatch;
+import chess.search.Search;
+import chess.tournament.Tournament;
+
+// nodes searched at a fixed depth with and without MoveOrdering, on the perft positions of the chess
+// programming wiki and the openings of the tournament; both searches must find the same score
+// each variant keeps its Search from one position to the next, so the ordering ages its tables as in a game
+public class MoveOrderingBenchmark {
+	private static final String[] PERFT_POSITIONS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+	};
+
+	public static void main(String[] args) throws IOException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		List<String> positions = new ArrayList<>(List.of(PERFT_POSITIONS));
+		positions.addAll(Tournament.readDefaultOpenings());
+		Search unordered = new Search();
+		unordered.setMoveOrdering(null);
+		Search ordered = new Search();
+		long unorderedNodes = 0;
+		long orderedNodes = 0;
+		long unorderedNanos = 0;
+		long orderedNanos = 0;
+		double logRatios = 0;
+		for (String fen : positions) {
+			Search.Result plain = unordered.search(new ChessMatch(fen), depth, 0, 0);
+			Search.Result result = ordered.search(new ChessMatch(fen), depth, 0, 0);
+			if (plain.getScore() != result.getScore()) {
+				throw new IllegalStateException("Scores differ on " + fen + ": " + plain + " / " + result);
+			}
+			unorderedNodes += plain.getNodes();
+			orderedNodes += result.getNodes();
+			unorderedNanos += plain.getNanos();
+			orderedNanos += result.getNanos();
+			logRatios += Math.log((double)plain.getNodes() / result.getNodes());
+			System.out.printf("%-75s %9d %8d nodes %5.1fx%n", fen, plain.getNodes(), result.getNodes(),
+					(double)plain.getNodes() / result.getNodes());
+		}
+		// a few tactical positions make most of the total, the geometric mean is the typical position
+		System.out.printf("%d positions, depth %d: %d nodes without ordering, %d with (%.1fx fewer, %.1fx geometric mean), %.1f s against %.1f s%n",
+				positions.size(), depth, unorderedNodes, orderedNodes, (double)unorderedNodes / orderedNodes,
+				Math.exp(logRatios / positions.size()), unorderedNanos / 1e9, orderedNanos / 1e9);
+	}
+}
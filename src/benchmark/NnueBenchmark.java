@@ -0,0 +1,68 @@
+package benchmark;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Color;
+import chess.eval.nnue.Accumulator;
+import chess.eval.nnue.Network;
+
+// evaluations per second of the neural network: incremental accumulator updates against full recomputation
+// run with --add-modules jdk.incubator.vector to use the Vector API, or -Dchess.nnue.scalar=true to force the scalar loops
+public class NnueBenchmark {
+
+	public static void main(String[] args) {
+		int hidden = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+		Network network = Network.defaultNetwork(hidden);
+		System.out.println("Hidden neurons: " + hidden + ", operations: " + Network.getVectorOpsName());
+
+		// the accumulators must follow makeMove/undoMove exactly: compare with a full recomputation after a few moves
+		ChessMatch chessMatch = new ChessMatch();
+		chessMatch.setNetwork(network);
+		String[] moves = { "e2", "e4", "d7", "d5", "e4", "d5", "d8", "d5", "b1", "c3", "d5", "a5" };
+		for (int i = 0; i < moves.length; i += 2) {
+			chessMatch.performChessMove(position(moves[i]), position(moves[i + 1]));
+		}
+		Accumulator check = new Accumulator(network);
+		check.refresh(chessMatch.getPieces());
+		int full = check.evaluate(chessMatch.getCurrentPlayer());
+		int incremental = chessMatch.getNeuralEvaluation() * (chessMatch.getCurrentPlayer() == Color.WHITE ? 1 : -1);
+		System.out.println("Incremental " + incremental + " cp, full recomputation " + full + " cp, piece-square " 
+				+ chessMatch.getEvaluation() + " cp (White)");
+
+		ChessPiece[][] pieces = chessMatch.getPieces();
+		ChessPiece knight = pieces[5][2]; // c3
+		Accumulator accumulator = new Accumulator(network);
+		accumulator.refresh(pieces);
+
+		for (int round = 0; round < 3; round++) {
+			long sum = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				// a knight move and back, evaluated after each
+				accumulator.remove(knight, 42);
+				accumulator.add(knight, 36);
+				sum += accumulator.evaluate(Color.BLACK);
+				accumulator.remove(knight, 36);
+				accumulator.add(knight, 42);
+				sum += accumulator.evaluate(Color.WHITE);
+			}
+			double incrementalRate = 2.0 * iterations / ((System.nanoTime() - start) / 1e9);
+
+			int fullIterations = iterations / 10;
+			start = System.nanoTime();
+			for (int i = 0; i < fullIterations; i++) {
+				accumulator.refresh(pieces);
+				sum += accumulator.evaluate(Color.WHITE);
+			}
+			double fullRate = fullIterations / ((System.nanoTime() - start) / 1e9);
+			System.out.printf("Round %d: incremental %,.0f evals/s, full recomputation %,.0f evals/s (%.1fx) [%d]%n",
+					round + 1, incrementalRate, fullRate, incrementalRate / fullRate, sum & 1);
+		}
+	}
+
+	private static ChessPosition position(String s) {
+		return new ChessPosition(s.charAt(0), s.charAt(1) - '0');
+	}
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.ParkedMatch;
+
+// heap taken by idle games: a sample of live matches is measured and the figure taken to the number of games,
+// then that many games are parked and the heap they hold measured; positions come from random games
+// run with a heap big enough for the parked games (ex: -Xmx1g for 1M)
+public class ParkingBenchmark {
+	private static final int POSITIONS = 1000;
+	private static final int LIVE_SAMPLE = 20_000;
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		ChessMatch[] positions = new ChessMatch[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			positions[i] = randomPosition(random, random.nextInt(80));
+			String fen = positions[i].getFen();
+			if (!positions[i].park().unpark().getFen().equals(fen)) {
+				throw new IllegalStateException("Parking changed the position " + fen);
+			}
+		}
+
+		long before = usedHeap();
+		ChessMatch[] live = new ChessMatch[LIVE_SAMPLE];
+		for (int i = 0; i < LIVE_SAMPLE; i++) {
+			live[i] = new ChessMatch(positions[i % POSITIONS].getFen());
+		}
+		double liveBytes = (double)(usedHeap() - before) / LIVE_SAMPLE;
+		// read after the measure, so the sample can't be collected before it
+		long check = live[LIVE_SAMPLE - 1].getTurn();
+		live = null;
+
+		before = usedHeap();
+		ParkedMatch[] parked = new ParkedMatch[games];
+		long start = System.nanoTime();
+		for (int i = 0; i < games; i++) {
+			parked[i] = positions[i % POSITIONS].park();
+		}
+		long parkNanos = System.nanoTime() - start;
+		// the array holding them is counted, as any collection of games would need one
+		double parkedBytes = (double)(usedHeap() - before) / games;
+
+		int unparked = Math.min(games, 100_000);
+		start = System.nanoTime();
+		for (int i = 0; i < unparked; i++) {
+			check += parked[i].unpark().getTurn();
+		}
+		long unparkNanos = System.nanoTime() - start;
+
+		System.out.printf("live ChessMatch: %.0f bytes, %d games would take %.0f MB%n", liveBytes, games, liveBytes * games / 1e6);
+		System.out.printf("ParkedMatch:     %.1f bytes, %d games take %.0f MB%n", parkedBytes, games, parkedBytes * games / 1e6);
+		System.out.printf("park %.2f us, unpark %.2f us (%d)%n", parkNanos / 1e3 / games, unparkNanos / 1e3 / unparked, check);
+	}
+
+	private static ChessMatch randomPosition(Random random, int plies) {
+		ChessMatch chessMatch = new ChessMatch();
+		for (int ply = 0; ply < plies; ply++) {
+			int[] moves = chessMatch.getLegalMoves();
+			if (moves.length == 0) {
+				break;
+			}
+			chessMatch.doMove(moves[random.nextInt(moves.length)]);
+		}
+		return chessMatch;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
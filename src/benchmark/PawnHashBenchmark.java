@@ -0,0 +1,45 @@
+package benchmark;
+
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.eval.PawnHashTable;
+import chess.eval.PawnStructure;
+
+// hit rate of the pawn hash table over random games, and the cost of a probe against a full pawn analysis
+public class PawnHashBenchmark {
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int entries = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 12;
+		Random random = new Random(42);
+		PawnHashTable table = new PawnHashTable(entries);
+		int[] out = new int[PawnStructure.SIZE];
+		long probeNanos = 0;
+		long analyseNanos = 0;
+		long positions = 0;
+		long sum = 0;
+		for (int g = 0; g < games; g++) {
+			ChessMatch chessMatch = new ChessMatch();
+			for (int ply = 0; ply < 120 && !chessMatch.getCheckMate(); ply++) {
+				int[] moves = chessMatch.getLegalMoves();
+				if (moves.length == 0) {
+					break;
+				}
+				chessMatch.performChessMove(moves[random.nextInt(moves.length)]);
+
+				long start = System.nanoTime();
+				sum += table.probe(chessMatch);
+				probeNanos += System.nanoTime() - start;
+				start = System.nanoTime();
+				PawnHashTable.analyse(chessMatch.getPieces(), out);
+				analyseNanos += System.nanoTime() - start;
+				sum += out[PawnStructure.MG];
+				positions++;
+			}
+		}
+		System.out.printf("%d games, %d positions, %d entries%n", games, positions, entries);
+		System.out.printf("Hit rate: %.1f%% (%d hits, %d misses)%n", 100 * table.getHitRate(), table.getHits(), table.getMisses());
+		System.out.printf("Probe: %.0f ns, full analysis: %.0f ns [%d]%n", (double)probeNanos / positions, (double)analyseNanos / positions, sum & 1);
+	}
+}
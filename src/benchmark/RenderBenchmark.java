@@ -0,0 +1,67 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.util.Random;
+
+import aplication.BoardRenderer;
+import chess.ChessMatch;
+import chess.ChessPiece;
+
+// terminal output of the board renderer over random games: bytes and write calls per frame when every
+// frame redraws the whole board against redrawing only the squares that changed
+public class RenderBenchmark {
+
+	// counts what would be sent to the terminal
+	private static class CountingStream extends OutputStream {
+		private long bytes;
+		private long writes;
+
+		@Override
+		public void write(int b) {
+			bytes++;
+			writes++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			bytes += len;
+			writes++;
+		}
+	}
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		for (boolean color : new boolean[] { true, false }) {
+			for (boolean diff : new boolean[] { false, true }) {
+				Random random = new Random(42);
+				CountingStream out = new CountingStream();
+				BoardRenderer renderer = new BoardRenderer(out, color);
+				long frames = 0;
+				long nanos = 0;
+				for (int g = 0; g < games; g++) {
+					ChessMatch chessMatch = new ChessMatch();
+					for (int ply = 0; ply < 120 && !chessMatch.getCheckMate(); ply++) {
+						int[] moves = chessMatch.getLegalMoves();
+						if (moves.length == 0) {
+							break;
+						}
+						chessMatch.performChessMove(moves[random.nextInt(moves.length)]);
+						ChessPiece[][] pieces = chessMatch.getPieces();
+						long start = System.nanoTime();
+						if (!diff) {
+							renderer.invalidate();
+						}
+						renderer.beginFrame();
+						renderer.drawBoard(pieces, null);
+						renderer.flush();
+						nanos += System.nanoTime() - start;
+						frames++;
+					}
+				}
+				System.out.printf("%-8s %-12s %d frames: %.0f bytes/frame, %.2f writes/frame, %.1f us/frame%n",
+						color ? "color" : "no-color", diff ? "diff" : "full redraw", frames,
+						(double)out.bytes / frames, (double)out.writes / frames, nanos / 1e3 / frames);
+			}
+		}
+	}
+}
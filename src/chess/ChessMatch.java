@@ -1,12 +1,25 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
+import chess.book.OpeningBook;
+import chess.clock.ChessClock;
+import chess.eval.IncrementalEvaluation;
+import chess.eval.nnue.Accumulator;
+import chess.eval.nnue.Network;
+import chess.events.MoveEvent;
+import chess.events.MoveEventBroadcaster;
+import chess.metrics.CheckMateTestEvent;
+import chess.metrics.GameEndEvent;
+import chess.metrics.GameStartEvent;
+import chess.metrics.MoveMetrics;
+import chess.metrics.PerformMoveEvent;
 import chess.pieces.Bishop;
 import chess.pieces.King;
 import chess.pieces.Knight;
@@ -15,6 +28,27 @@ import chess.pieces.Queen;
 import chess.pieces.Rook;
 
 public class ChessMatch {
+	private static final int[][] KNIGHT_STEPS = { {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1} };
+	// rook directions first, then bishop directions
+	private static final int[][] DIRECTIONS = { {-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1} };
+	// plies the history holds before it has to grow
+	private static final int HISTORY_CAPACITY = 512;
+	// a history entry is a long: the move as in Move (with the promotion piece), what the move did, and the
+	// state before and after it; squares are stored plus one, 0 for none
+	private static final long HISTORY_MOVE = 0x7FFF;
+	private static final long HISTORY_CAPTURE = 1L << 15;
+	private static final long HISTORY_EN_PASSANT_CAPTURE = 1L << 16;
+	private static final long HISTORY_PROMOTION = 1L << 17;
+	private static final int HISTORY_EN_PASSANT_SHIFT = 18;
+	private static final int HISTORY_PROMOTED_SHIFT = 25;
+	private static final long HISTORY_CHECK = 1L << 32;
+	private static final long HISTORY_CHECK_MATE = 1L << 33;
+	private static final long HISTORY_TURN_PASSED = 1L << 34;
+	// played with performChessMove, which keeps the promoted piece until the next move
+	private static final long HISTORY_GAME_MOVE = 1L << 35;
+	private static final long HISTORY_CHECK_AFTER = 1L << 36;
+	private static final long HISTORY_CHECK_MATE_AFTER = 1L << 37;
+	
 	private int turn;
 	private Color currentPlayer;
 	private Board board;
@@ -25,6 +59,38 @@ public class ChessMatch {
 	
 	private List<Piece> piecesOnTheBoard;
 	private List<Piece> capturedPieces;
+	// plies played with performChessMove and doMove, one entry each (see HISTORY_*): the first historySize
+	// can be taken back with undo, the ones up to historyEnd were taken back and can be played again with redo
+	// the store only grows (doubling) past its capacity, so playing and taking back moves makes no garbage
+	private long[] history;
+	private int historySize;
+	private int historyEnd;
+	// pawns replaced by the piece they were promoted to, the last promotion last
+	private List<ChessPiece> promotedPawns;
+	
+	// hash of the pieces and the side to move, updated on every piece placed or removed
+	// (getPositionKey adds the castling rights and the en passant file, read from the board)
+	private long positionKey;
+	// hash of the pawns only, it changes when a pawn moves, is captured or is promoted
+	private long pawnKey;
+	// material and piece-square score, updated on every piece placed or removed
+	private IncrementalEvaluation evaluation;
+	// neural network accumulators, only kept when a network is set
+	private Accumulator accumulator;
+	private OpeningBook openingBook;
+	// observers of the moves played with performChessMove, null when nobody follows the match
+	private MoveEventBroadcaster broadcaster;
+	// time control of the game, null when it has none
+	private ChessClock clock;
+	// moves tried by the last testCheckMate, for its flight recorder event
+	private int checkMateCandidates;
+	// moves of the pieces in the current position, shared by the validation of performChessMove, the highlight
+	// of possibleMoves and testCheckMate so that each piece generates them once: bit j of moveTargets[square]
+	// is set when the piece on that square can move to square j (its own king is not looked at), and the entry
+	// is only there when bit square of generatedSquares is set
+	// any piece placed on or removed from the board empties it
+	private final long[] moveTargets = new long[64];
+	private long generatedSquares;
 
 	public ChessMatch() {   
 		board = new Board(8,8);
@@ -36,7 +102,71 @@ public class ChessMatch {
 		promoted = null;
 		piecesOnTheBoard = new ArrayList<>();
 		capturedPieces = new ArrayList<>();
+		history = new long[HISTORY_CAPACITY];
+		promotedPawns = new ArrayList<>();
+		evaluation = new IncrementalEvaluation();
 		initialSetup();
+		recordGameStart();
+	}
+	
+	// match starting from a position in Forsyth-Edwards Notation
+	// (ex: "4k3/8/8/8/8/8/8/4K2R w K - 0 1"), the halfmove clock is ignored
+	public ChessMatch(String fen) {
+		board = new Board(8,8);
+		currentPlayer = Color.WHITE;
+		turn = 1;
+		check = false;
+		checkMate = false;
+		enPassantVulnerable = null;
+		promoted = null;
+		piecesOnTheBoard = new ArrayList<>();
+		capturedPieces = new ArrayList<>();
+		history = new long[HISTORY_CAPACITY];
+		promotedPawns = new ArrayList<>();
+		evaluation = new IncrementalEvaluation();
+		fenSetup(fen);
+		recordGameStart();
+	}
+	
+	// copy made by fork: the pieces are new, the keys and evaluations are copied instead of recomputed
+	private ChessMatch(ChessMatch other) {
+		board = new Board(8,8);
+		currentPlayer = other.currentPlayer;
+		turn = other.turn;
+		check = other.check;
+		checkMate = other.checkMate;
+		piecesOnTheBoard = new ArrayList<>(other.piecesOnTheBoard.size());
+		capturedPieces = new ArrayList<>();
+		// a fork is mostly used for short lines
+		history = new long[64];
+		promotedPawns = new ArrayList<>();
+		for(Piece p : other.piecesOnTheBoard) {
+			ChessPiece piece = (ChessPiece)p;
+			ChessPiece copy = copyPiece(piece);
+			// straight on the board: the keys and the evaluations already count the piece
+			board.placePiece(copy, piece.getChessPosition().toPosition());
+			piecesOnTheBoard.add(copy);
+			if(piece == other.enPassantVulnerable) {
+				enPassantVulnerable = copy;
+			}
+			if(piece == other.promoted) {
+				promoted = copy;
+			}
+		}
+		positionKey = other.positionKey;
+		pawnKey = other.pawnKey;
+		evaluation = new IncrementalEvaluation(other.evaluation);
+		accumulator = (other.accumulator == null) ? null : new Accumulator(other.accumulator);
+		openingBook = other.openingBook;
+	}
+	
+	// flight recorder events are only filled in when JFR records them (shouldCommit is false otherwise)
+	private void recordGameStart() {
+		GameStartEvent event = new GameStartEvent();
+		if(event.shouldCommit()) {
+			event.fen = getFen();
+			event.commit();
+		}
 	}
 	
 	public int getTurn() {
@@ -63,6 +193,196 @@ public class ChessMatch {
 		return promoted;
 	}
 	
+	// the same for the same pieces, side to move, castling rights and en passant file: equal keys are
+	// repetitions of the position
+	public long getPositionKey() {
+		return positionKey ^ Zobrist.castlingKey(castlingRights()) ^ Zobrist.enPassantKey(enPassantColumn());
+	}
+	
+	// position key after a move of legalMoves, without playing it
+	public long getPositionKeyAfter(int move) {
+		int source = Move.source(move);
+		int target = Move.target(move);
+		ChessPiece p = (ChessPiece)board.piece(Move.row(source), Move.column(source));
+		ChessPiece captured = (ChessPiece)board.piece(Move.row(target), Move.column(target));
+		long key = positionKey ^ Zobrist.sideKey() ^ Zobrist.pieceKey(p, source);
+		if(captured != null) {
+			key ^= Zobrist.pieceKey(captured, target);
+		}
+		else if(p instanceof Pawn && Move.column(source) != Move.column(target)) {
+			// en passant: the captured pawn is beside the source
+			int square = Move.square(Move.row(source), Move.column(target));
+			key ^= Zobrist.pieceKey((ChessPiece)board.piece(Move.row(square), Move.column(square)), square);
+		}
+		if(p instanceof Pawn && (Move.row(target) == 0 || Move.row(target) == 7)) {
+			int promotion = Move.promotion(move) == Move.PROMOTION_NONE ? Move.PROMOTION_QUEEN : Move.promotion(move);
+			// promotion codes N, B, R, Q are type indexes 1 to 4
+			key ^= Zobrist.pieceKey(p.getColor(), promotion, target);
+		}
+		else {
+			key ^= Zobrist.pieceKey(p, target);
+		}
+		if(p instanceof King && Math.abs(Move.column(target) - Move.column(source)) == 2) {
+			// castling: the rook goes to the other side of the king
+			boolean kingside = Move.column(target) > Move.column(source);
+			int rookSource = Move.square(Move.row(source), kingside ? 7 : 0);
+			int rookTarget = Move.square(Move.row(source), kingside ? 5 : 3);
+			ChessPiece rook = (ChessPiece)board.piece(Move.row(rookSource), Move.column(rookSource));
+			key ^= Zobrist.pieceKey(rook, rookSource) ^ Zobrist.pieceKey(rook, rookTarget);
+		}
+		// the rights of a king or a rook that moves or is captured are lost
+		key ^= Zobrist.castlingKey(castlingRights() & ~(castlingLost(source) | castlingLost(target)));
+		if(p instanceof Pawn && Math.abs(Move.row(target) - Move.row(source)) == 2) {
+			key ^= Zobrist.enPassantKey(capturableEnPassant(p, Move.row(target), Move.column(target)) ? Move.column(target) : -1);
+		}
+		return key;
+	}
+	
+	// castling rights left, as in Zobrist.castlingKey
+	private int castlingRights() {
+		return (canCastle(7, 7) ? 1 : 0) | (canCastle(7, 0) ? 2 : 0) | (canCastle(0, 7) ? 4 : 0) | (canCastle(0, 0) ? 8 : 0);
+	}
+	
+	// castling rights lost when a piece leaves or is captured on the square
+	private static int castlingLost(int square) {
+		switch(square) {
+		case 60: return 3; // e1
+		case 63: return 1; // h1
+		case 56: return 2; // a1
+		case 4: return 12; // e8
+		case 7: return 4; // h8
+		case 0: return 8; // a8
+		default: return 0;
+		}
+	}
+	
+	// column of the pawn that can be captured en passant, -1 if none
+	// it only counts when a pawn of the opponent stands beside it, as in the usual opening book keys
+	private int enPassantColumn() {
+		if(!(enPassantVulnerable instanceof Pawn)) {
+			return -1;
+		}
+		Position position = enPassantVulnerable.getChessPosition().toPosition();
+		return capturableEnPassant(enPassantVulnerable, position.getRow(), position.getColumn()) ? position.getColumn() : -1;
+	}
+	
+	// whether a pawn of the opponent of the pawn stands beside the square
+	private boolean capturableEnPassant(ChessPiece pawn, int row, int column) {
+		for(int c = column - 1; c <= column + 1; c += 2) {
+			if(c >= 0 && c < 8) {
+				ChessPiece piece = (ChessPiece)board.piece(row, c);
+				if(piece instanceof Pawn && piece.getColor() != pawn.getColor()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	public long getPawnKey() {
+		return pawnKey;
+	}
+	
+	// square of the king of that color (encoded as in Move)
+	public int getKingSquare(Color color) {
+		Position position = king(color).getChessPosition().toPosition();
+		return Move.square(position.getRow(), position.getColumn());
+	}
+	
+	// tapered material and piece-square score in centipawns, positive when White is better
+	public int getEvaluation() {
+		return evaluation.score();
+	}
+	
+	public IncrementalEvaluation getIncrementalEvaluation() {
+		return evaluation;
+	}
+	
+	// neural network evaluation in centipawns, positive when White is better
+	public int getNeuralEvaluation() {
+		if(accumulator == null) {
+			throw new IllegalStateException("There is no neural network set for this match");
+		}
+		int score = accumulator.evaluate(currentPlayer);
+		return (currentPlayer == Color.WHITE) ? score : -score;
+	}
+	
+	public Network getNetwork() {
+		return (accumulator == null) ? null : accumulator.getNetwork();
+	}
+	
+	// from now on the accumulators of the network follow every piece placed or removed (null to stop)
+	public void setNetwork(Network network) {
+		if(network == null) {
+			accumulator = null;
+			return;
+		}
+		accumulator = new Accumulator(network);
+		accumulator.refresh(getPieces());
+	}
+	
+	public OpeningBook getOpeningBook() {
+		return openingBook;
+	}
+	
+	public void setOpeningBook(OpeningBook openingBook) {
+		this.openingBook = openingBook;
+	}
+	
+	// book moves for the current position, best weighted first (empty if there is no book or the position is out of book)
+	public int[] getBookMoves() {
+		if(openingBook == null) {
+			return new int[0];
+		}
+		int[] moves = new int[OpeningBook.MAX_MOVES_PER_POSITION];
+		int count = openingBook.probe(getPositionKey(), moves, null);
+		return Arrays.copyOf(moves, count);
+	}
+	
+	public ChessClock getClock() {
+		return clock;
+	}
+	
+	// the clock is pressed by every move played with performChessMove and stopped by checkmate; a move
+	// of a side whose time is over is rejected, and so is every move once a flag has fallen
+	// undo and redo of those moves give the clock back to the side to move, with no time refunded;
+	// doMove doesn't touch it
+	public void setClock(ChessClock clock) {
+		this.clock = clock;
+	}
+	
+	// why the side to move can't move by the clock, null if it can
+	private String clockRejection() {
+		if(clock == null) {
+			return null;
+		}
+		Color flagged = clock.getFlagged();
+		if(flagged == currentPlayer || clock.getRemaining(currentPlayer) == 0) {
+			return "Your time is over";
+		}
+		if(flagged != null) {
+			return "The time of " + flagged + " is over";
+		}
+		Color running = clock.getRunning();
+		if(running != null && running != currentPlayer) {
+			return "The clock of " + running + " is running";
+		}
+		return null;
+	}
+	
+	public MoveEventBroadcaster getBroadcaster() {
+		return broadcaster;
+	}
+	
+	// publishes the moves, checks, mates and promotions of performChessMove and replacePromotedPiece
+	// to the broadcaster (null to stop); it must be set on the thread that plays the match
+	public void setBroadcaster(MoveEventBroadcaster broadcaster) {
+		this.broadcaster = broadcaster;
+		if (broadcaster != null) {
+			broadcaster.snapshot(this);
+		}
+	}
+	
 	//returns matrix of chess pieces corresponding to this game
 	public ChessPiece[][] getPieces() {
 		ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
@@ -74,27 +394,112 @@ public class ChessMatch {
 		return mat;
 	}
 	
+	// piece on a square encoded as in Move, or null
+	public ChessPiece getPiece(int square) {
+		return (ChessPiece)board.piece(Move.row(square), Move.column(square));
+	}
+	
 	public boolean[][] possibleMoves(ChessPosition sourcePosition) {
 		Position position = sourcePosition.toPosition();
 		validateSourcePosition(position);
-		return board.piece(position).possibleMoves();
+		long targets = moveTargets(Move.square(position.getRow(), position.getColumn()));
+		boolean[][] mat = new boolean[board.getRows()][board.getColumns()];
+		for(int i=0; i<board.getRows(); i++) {
+			for(int j=0; j<board.getColumns(); j++) {
+				mat[i][j] = (targets & 1L << Move.square(i, j)) != 0;
+			}
+		}
+		return mat;
 	}
 	
 	public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
+		MoveResult result = tryChessMove(sourcePosition, targetPosition);
+		if(!result.isAccepted()) {
+			throw new ChessException(result.getReason());
+		}
+		return result.getCapturedPiece();
+	}
+	
+	// performChessMove without the exception: a rejected move is a result that gives the reason, so callers
+	// that see many illegal moves (requests from the web) don't pay for a stack trace on each one
+	// the steps of the move are timed and the rejected moves counted by cause (see MoveMetrics)
+	// with JFR recording, every call is also a chess.PerformMove event
+	public MoveResult tryChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
+		return tryChessMove(sourcePosition, targetPosition, null);
+	}
+	
+	// promotionType is the piece a pawn reaching the last row becomes ("Q", "R", "B" or "N"), null to let the
+	// player choose it with replacePromotedPiece (a queen until then)
+	private MoveResult tryChessMove(ChessPosition sourcePosition, ChessPosition targetPosition, String promotionType) {
+		PerformMoveEvent event = new PerformMoveEvent();
+		event.begin();
+		MoveResult result = playChessMove(sourcePosition, targetPosition, promotionType);
+		if(result.isAccepted()) {
+			MoveMetrics.performed();
+		}
+		else {
+			MoveMetrics.rejected(result.getReason());
+		}
+		if(event.shouldCommit()) {
+			event.move = sourcePosition.toString() + targetPosition;
+			if(result.isAccepted()) {
+				ChessPiece movedPiece = (ChessPiece)board.piece(targetPosition.toPosition());
+				event.piece = promoted != null ? "P" : movedPiece.toString();
+				event.check = check;
+				event.checkMate = checkMate;
+			}
+			else {
+				Position source = sourcePosition.toPosition();
+				event.piece = board.thereIsAPiece(source) ? board.piece(source).toString() : null;
+				event.rejection = result.getReason();
+			}
+			event.commit();
+		}
+		return result;
+	}
+	
+	private MoveResult playChessMove(ChessPosition sourcePosition, ChessPosition targetPosition, String promotionType) {
 		Position source = sourcePosition.toPosition();
 		Position target= targetPosition.toPosition();
+		int move = Move.encode(Move.square(source.getRow(), source.getColumn()), Move.square(target.getRow(), target.getColumn()));
+		// checked before the board changes: pressing the clock of the wrong side, or after a flag fell, fails
+		String clockRejection = clockRejection();
+		if(clockRejection != null) {
+			return MoveResult.rejected(move, clockRejection);
+		}
 		// validate if the origin position exists
-		validateSourcePosition(source);
+		long start = MoveMetrics.start();
+		// the validations are timed whether they pass or not, a rejected move costs them too
+		String rejection = sourceRejection(source);
+		MoveMetrics.record(MoveMetrics.VALIDATE_SOURCE, start);
+		if(rejection != null) {
+			return MoveResult.rejected(move, rejection);
+		}
 		// validate if the target position exists
-		validateTargetPosition(source, target);
+		start = MoveMetrics.start();
+		rejection = targetRejection(source, target);
+		MoveMetrics.record(MoveMetrics.VALIDATE_TARGET, start);
+		if(rejection != null) {
+			return MoveResult.rejected(move, rejection);
+		}
+		long entry = historyBefore(source, target);
+		// makeMove empties the moves generated in the position: they are kept in case the move is taken back
+		long generated = generatedSquares;
+		start = MoveMetrics.start();
 		Piece capturePiece = makeMove(source, target); 
+		MoveMetrics.record(MoveMetrics.MAKE_MOVE, start);
 		
 
 		// if true, then the player made a move that put himself in check 
 		//  or a move that kept him in check
-		if(testCheck(currentPlayer)) {
+		start = MoveMetrics.start();
+		boolean selfCheck = testCheck(currentPlayer);
+		MoveMetrics.record(MoveMetrics.TEST_CHECK, start);
+		if(selfCheck) {
+			// the position is back as it was, and so are the moves generated in it (testCheck generates none)
 			undoMove(source, target, capturePiece);
-			throw new ChessException("You can't put yourself in check");
+			generatedSquares = generated;
+			return MoveResult.rejected(move, "You can't put yourself in check");
 		}
 		ChessPiece movedPiece = (ChessPiece)board.piece(target);
 		
@@ -102,56 +507,163 @@ public class ChessMatch {
 		// test Promotion before checking 
 		// because after Promotion the new piece may leave the opponent in check
 		promoted = null; //to ensure you are running a new test
+		String promotion = promotionType != null ? promotionType : "Q";
 		if(movedPiece instanceof Pawn) { //if the moved piece was a pawn
 			//if the moved piece is of <color> and has reached the end of the board
 			if(movedPiece.getColor() == Color.WHITE && target.getRow() == 0 || 
 					movedPiece.getColor() == Color.BLACK && target.getRow() == 7){
 				// piece that arrived at the end
 				 promoted = (ChessPiece)board.piece(target);
-				// by default it changes to Queen
-				// but it is allowed to exchange for another piece
-				 promoted = replacePromotedPiece("Q"); 
+				// to the piece asked for, by default a Queen
+				// that the player may still exchange for another piece
+				 promoted = replacePromoted(promotion); 
+				 promotedPawns.add(movedPiece);
+				 entry |= HISTORY_PROMOTION | (long)Move.promotionCode(promotion) << 12;
 			}
 		}
 		
+		// special move En Passant
+		// set before the checkmate test: the moves of the opponent tried there (and kept for its turn) may capture en passant
+		// if the piece that was moved was a pawn and it moved two squares 
+		// to White Pieces or Black Pieces
+		if(movedPiece instanceof Pawn && (target.getRow() == source.getRow() + 2 ||
+				target.getRow() == source.getRow() - 2)) {
+			// then the vulnerable piece is the one that was moved
+			enPassantVulnerable = movedPiece;
+		}else {
+			// otherwise the piece is not vulnerable
+			enPassantVulnerable = null;
+		}
+		
+		start = MoveMetrics.start();
 		check = (testCheck(opponent(currentPlayer))) ? true : false;
+		MoveMetrics.record(MoveMetrics.TEST_CHECK, start);
 
 		//if the currentPlayer made a move that put the opponent in Check
 		// then check=true, otherwise check=false
-		if(testCheckMate(opponent(currentPlayer))) {
+		start = MoveMetrics.start();
+		CheckMateTestEvent mateEvent = new CheckMateTestEvent();
+		mateEvent.begin();
+		boolean mate = testCheckMate(opponent(currentPlayer));
+		MoveMetrics.record(MoveMetrics.TEST_CHECK_MATE, start);
+		if(mateEvent.shouldCommit()) {
+			mateEvent.side = opponent(currentPlayer).toString();
+			mateEvent.candidateMoves = checkMateCandidates;
+			mateEvent.checkMate = mate;
+			mateEvent.commit();
+		}
+		// the clock is stopped by mate, pressed otherwise; the flag may have fallen during the move
+		// without the scheduler having told it yet: the move is then taken back, the time was over
+		if(clock != null && !(mate ? clock.stop() : clock.press(currentPlayer))) {
+			takeBack(historyAfter(entry, capturePiece));
+			generatedSquares = generated;
+			return MoveResult.rejected(move, "Your time is over");
+		}
+		if(mate) {
 			checkMate = true;
+			GameEndEvent endEvent = new GameEndEvent();
+			if(endEvent.shouldCommit()) {
+				endEvent.winner = currentPlayer.toString();
+				endEvent.turn = turn;
+				endEvent.commit();
+			}
 		}
 		else {
 			nextTurn();
+			entry |= HISTORY_TURN_PASSED;
 		}
-		// special move En Passant
-		// if the piece that was moved was a pawn and it moved two squares 
-		// to White Pieces or Black Pieces
-		if(movedPiece instanceof Pawn && target.getRow() == source.getRow() + 2 ||
-				target.getRow() == source.getRow() - 2) {
-			// then the vulnerable piece is the one that was moved
-			enPassantVulnerable = movedPiece;
-		}else {
-			// otherwise the piece is not vulnerable
-			enPassantVulnerable = null;
+		pushHistory(historyAfter(entry | HISTORY_GAME_MOVE, capturePiece));
+		if(broadcaster != null) {
+			publishMove(source, target, movedPiece.getColor(), promoted != null ? Move.promotionCode(promotion) : Move.PROMOTION_NONE);
+		}
+		MoveResult.Status status = checkMate ? MoveResult.Status.CHECKMATE : check ? MoveResult.Status.CHECK : MoveResult.Status.ACCEPTED;
+		if(promoted != null) {
+			return MoveResult.played(status, Move.encode(Move.source(move), Move.target(move), Move.promotionCode(promotion)),
+					(ChessPiece)capturePiece, promotionType == null);
+		}
+		return MoveResult.played(status, move, (ChessPiece)capturePiece, false);
+	}
+	
+	// events of the move just played: the move, then check or checkmate
+	private void publishMove(Position source, Position target, Color color, int promotion) {
+		int move = Move.encode(Move.square(source.getRow(), source.getColumn()), Move.square(target.getRow(), target.getColumn()), promotion);
+		// the turn has already passed to the opponent, unless the move was mate
+		int moveTurn = checkMate ? turn : turn - 1;
+		broadcaster.publish(MoveEvent.encode(MoveEvent.MOVE, move, color, Move.PROMOTION_NONE, moveTurn));
+		if(checkMate) {
+			broadcaster.publish(MoveEvent.encode(MoveEvent.CHECKMATE, move, color, Move.PROMOTION_NONE, moveTurn));
+		}
+		else if(check) {
+			broadcaster.publish(MoveEvent.encode(MoveEvent.CHECK, move, color, Move.PROMOTION_NONE, moveTurn));
+		}
+		broadcaster.endOfMove(this);
+	}
+	
+	// performs a move encoded as in Move, promoting to the piece of the move (queen if it has none)
+	public ChessPiece performChessMove(int move) {
+		MoveResult result = tryChessMove(move);
+		if(!result.isAccepted()) {
+			throw new ChessException(result.getReason());
 		}
-		return (ChessPiece)capturePiece;
+		return result.getCapturedPiece();
+	}
+	
+	// tryChessMove for a move encoded as in Move: a move with a promotion piece promotes to it before check
+	// and checkmate are tested, and then no promotion is required any more
+	public MoveResult tryChessMove(int move) {
+		int source = Move.source(move);
+		int target = Move.target(move);
+		return tryChessMove(
+				new ChessPosition((char)('a' + Move.column(source)), 8 - Move.row(source)),
+				new ChessPosition((char)('a' + Move.column(target)), 8 - Move.row(target)),
+				Move.promotionType(move));
 	}
 	
 	private void validateSourcePosition(Position position) { 
+		String rejection = sourceRejection(position);
+		if(rejection != null) {
+			throw new ChessException(rejection);
+		}
+	}
+	
+	// why no move of the current player can start on the position, null if one can
+	private String sourceRejection(Position position) {
 		if(!board.thereIsAPiece(position)) {
-			throw new ChessException("There is no piece on source position");
+			return "There is no piece on source position";
 		}
 		// the colors of the player and that player's pieces must be the same
 		if(currentPlayer != ((ChessPiece)board.piece(position)).getColor()){
-			throw new  ChessException("The chosen piece is not yours");
+			return "The chosen piece is not yours";
 		}
-		if(!board.piece(position).isThereAnyPossibleMove()) {
-			throw new ChessException("There is no possible move for the chosen piece");
+		if(moveTargets(Move.square(position.getRow(), position.getColumn())) == 0) {
+			return "There is no possible move for the chosen piece";
 		}
+		return null;
 	}
 	
 	public ChessPiece replacePromotedPiece(String type) {//type is the type of the piece
+		// the square and side of the piece are taken before it leaves the board
+		Position pos = (promoted != null) ? promoted.getChessPosition().toPosition() : null;
+		Color color = (promoted != null) ? promoted.getColor() : null;
+		ChessPiece newPiece = replacePromoted(type);
+		if(newPiece == promoted) {
+			return newPiece;
+		}
+		promoted = newPiece;
+		// the promotion was the last move: redo must promote to the new piece
+		if(historySize > 0) {
+			history[historySize - 1] = (history[historySize - 1] & ~(7L << 12)) | (long)Move.promotionCode(type) << 12;
+		}
+		if(broadcaster != null) {
+			int square = Move.square(pos.getRow(), pos.getColumn());
+			int moveTurn = (currentPlayer == color) ? turn : turn - 1;
+			broadcaster.publish(MoveEvent.encode(MoveEvent.PROMOTION, Move.encode(square, square), color, Move.promotionCode(type), moveTurn));
+			broadcaster.endOfMove(this);
+		}
+		return newPiece;
+	}
+	
+	private ChessPiece replacePromoted(String type) {
 		if(promoted == null) {
 			throw new IllegalStateException("There is no piece to be promoted");
 		}
@@ -160,12 +672,12 @@ public class ChessMatch {
 		}
 		Position pos = promoted.getChessPosition().toPosition();
 		// remove the piece that was promoted, because we are going to replace it
-		Piece p = board.removePiece(pos);
+		Piece p = removeFromBoard(pos);
 		// remove the list of pieces from the board
 		piecesOnTheBoard.remove(p);
 		ChessPiece newPiece = newPiece(type, promoted.getColor());
 		// places the new piece in the position of the promoted piece
-		board.placePiece(newPiece, pos);
+		placeOnBoard(newPiece, pos);
 		// add the new piece that was promoted to the list of pieces on the board
 		piecesOnTheBoard.add(newPiece); 
 		return newPiece;
@@ -178,27 +690,382 @@ public class ChessMatch {
 		return new Bishop(board, color);
 	}
 	
-	private void validateTargetPosition(Position source, Position target) {
-		if (!board.piece(source).possibleMove(target)) {
-			 throw new ChessException("The chosen piece can't move to target position");
+	// why the piece on source can't move to target, null if it can (leaving its king in check is tested after)
+	private String targetRejection(Position source, Position target) {
+		long targets = moveTargets(Move.square(source.getRow(), source.getColumn()));
+		if ((targets & 1L << Move.square(target.getRow(), target.getColumn())) == 0) {
+			 return "The chosen piece can't move to target position";
+		}
+		return null;
+	}
+	
+	// squares the piece on the square can move to (as in moveTargets), generated on the first request in the position
+	private long moveTargets(int square) {
+		if((generatedSquares & 1L << square) == 0) {
+			ChessPiece piece = (ChessPiece)board.piece(Move.row(square), Move.column(square));
+			long start = MoveMetrics.start();
+			boolean[][] mat = piece.possibleMoves();
+			MoveMetrics.record(MoveMetrics.possibleMoves(piece.getTypeIndex()), start);
+			long targets = 0L;
+			for(int i=0; i<board.getRows(); i++) {
+				for(int j=0; j<board.getColumns(); j++) {
+					if(mat[i][j]) {
+						targets |= 1L << Move.square(i, j);
+					}
+				}
+			}
+			moveTargets[square] = targets;
+			generatedSquares |= 1L << square;
 		}
+		return moveTargets[square];
 	}
 	
 	private void nextTurn() {
 		turn++;
+		positionKey ^= Zobrist.sideKey();
 		//if the current player is white, then he changes to black, otherwise he is white
 		currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
 	}
 	
+	private void previousTurn() {
+		turn--;
+		positionKey ^= Zobrist.sideKey();
+		currentPlayer = opponent(currentPlayer);
+	}
+	
+	
+	// legal moves of the current player, written into moves (encoded as in Move)
+	// a pawn reaching the last row gives one move per promotion piece
+	// returns the number of moves, moves must have room for all of them (256 is always enough)
+	public int legalMoves(int[] moves) {
+		int count = 0;
+		List<Piece> list = piecesOnTheBoard.stream().filter(x -> 
+		((ChessPiece)x).getColor() == currentPlayer).collect(Collectors.toList());
+		for(Piece p : list) {
+			boolean[][] mat = p.possibleMoves();
+			Position source = ((ChessPiece)p).getChessPosition().toPosition();
+			for(int i=0; i<board.getRows(); i++) {
+				for(int j=0; j<board.getColumns(); j++) {
+					if(mat[i][j]) {
+						Position target = new Position(i,j);
+						Piece capturedPiece = makeMove(source, target);
+						boolean testCheck = testCheck(currentPlayer);
+						undoMove(source, target, capturedPiece);
+						if(!testCheck) {
+							int move = Move.encode(Move.square(source.getRow(), source.getColumn()), Move.square(i, j));
+							if(p instanceof Pawn && (i == 0 || i == 7)) {
+								moves[count++] = move | (Move.PROMOTION_QUEEN << 12);
+								moves[count++] = move | (Move.PROMOTION_ROOK << 12);
+								moves[count++] = move | (Move.PROMOTION_BISHOP << 12);
+								moves[count++] = move | (Move.PROMOTION_KNIGHT << 12);
+							}
+							else {
+								moves[count++] = move;
+							}
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	public int[] getLegalMoves() {
+		int[] moves = new int[256];
+		return Arrays.copyOf(moves, legalMoves(moves));
+	}
+	
+	// plays a move taken from legalMoves (it is not validated) for analysis: unlike performChessMove
+	// it doesn't look for checkmate (a mated side simply has no legal moves) and it can be taken back with undo
+	// a pawn reaching the last row is promoted to the piece of the move, or to a queen if the move has none
+	public void doMove(int move) {
+		Position source = new Position(Move.row(Move.source(move)), Move.column(Move.source(move)));
+		Position target = new Position(Move.row(Move.target(move)), Move.column(Move.target(move)));
+		long entry = historyBefore(source, target);
+		Piece capturedPiece = makeMove(source, target);
+		ChessPiece movedPiece = (ChessPiece)board.piece(target);
+		if(movedPiece instanceof Pawn && (target.getRow() == 0 || target.getRow() == 7)) {
+			String type = Move.promotion(move) == Move.PROMOTION_NONE ? "Q" : Move.promotionType(move);
+			promote(target, type);
+			entry |= HISTORY_PROMOTION | (long)Move.promotionCode(type) << 12;
+		}
+		enPassantVulnerable = (movedPiece instanceof Pawn && Math.abs(target.getRow() - source.getRow()) == 2) ? movedPiece : null;
+		promoted = null;
+		checkMate = false;
+		nextTurn();
+		check = testCheck(currentPlayer);
+		pushHistory(historyAfter(entry | HISTORY_TURN_PASSED, capturedPiece));
+	}
+	
+	// takes back the last move, played with performChessMove or doMove; it can be played again with redo
+	public void undo() {
+		if(historySize == 0) {
+			throw new IllegalStateException("There is no move to take back");
+		}
+		long entry = history[--historySize];
+		takeBack(entry);
+		gameMoveChanged(entry);
+	}
+	
+	// a move played with performChessMove was taken back or played again: the clock follows the side to
+	// move, and the subscribers of the broadcaster resync to the position (the moves of a search, played
+	// with doMove, touch neither)
+	private void gameMoveChanged(long entry) {
+		if((entry & HISTORY_GAME_MOVE) == 0) {
+			return;
+		}
+		if(clock != null) {
+			clock.switchTo(currentPlayer);
+		}
+		if(broadcaster != null) {
+			broadcaster.reset(this);
+		}
+	}
+	
+	// puts the position back as it was before the move of the entry, the history is left as it is
+	private void takeBack(long entry) {
+		int move = (int)(entry & HISTORY_MOVE);
+		if((entry & HISTORY_TURN_PASSED) != 0) {
+			previousTurn();
+		}
+		Position source = new Position(Move.row(Move.source(move)), Move.column(Move.source(move)));
+		Position target = new Position(Move.row(Move.target(move)), Move.column(Move.target(move)));
+		if((entry & HISTORY_PROMOTION) != 0) {
+			// put the pawn back in place of the promoted piece, undoMove takes it to the source
+			piecesOnTheBoard.remove(removeFromBoard(target));
+			ChessPiece pawn = promotedPawns.remove(promotedPawns.size() - 1);
+			placeOnBoard(pawn, target);
+			piecesOnTheBoard.add(pawn);
+		}
+		Piece capturedPiece = ((entry & HISTORY_CAPTURE) != 0) ? capturedPieces.get(capturedPieces.size() - 1) : null;
+		// undoMove recognizes en passant by the vulnerable pawn, which is the one captured
+		enPassantVulnerable = ((entry & HISTORY_EN_PASSANT_CAPTURE) != 0) ? (ChessPiece)capturedPiece : null;
+		undoMove(source, target, capturedPiece);
+		// the position is back as it was, the pieces are found on their squares
+		enPassantVulnerable = pieceOnHistorySquare(entry, HISTORY_EN_PASSANT_SHIFT);
+		promoted = pieceOnHistorySquare(entry, HISTORY_PROMOTED_SHIFT);
+		check = (entry & HISTORY_CHECK) != 0;
+		checkMate = (entry & HISTORY_CHECK_MATE) != 0;
+	}
+	
+	// plays again the last move taken back with undo, as it was played (no new validation or checkmate test)
+	public void redo() {
+		if(historySize == historyEnd) {
+			throw new IllegalStateException("There is no move to play again");
+		}
+		long entry = history[historySize];
+		int move = (int)(entry & HISTORY_MOVE);
+		Position source = new Position(Move.row(Move.source(move)), Move.column(Move.source(move)));
+		Position target = new Position(Move.row(Move.target(move)), Move.column(Move.target(move)));
+		makeMove(source, target);
+		ChessPiece movedPiece = (ChessPiece)board.piece(target);
+		ChessPiece newPiece = ((entry & HISTORY_PROMOTION) != 0) ? promote(target, Move.promotionType(move)) : null;
+		enPassantVulnerable = (movedPiece instanceof Pawn && Math.abs(target.getRow() - source.getRow()) == 2) ? movedPiece : null;
+		promoted = ((entry & HISTORY_GAME_MOVE) != 0) ? newPiece : null;
+		if((entry & HISTORY_TURN_PASSED) != 0) {
+			nextTurn();
+		}
+		check = (entry & HISTORY_CHECK_AFTER) != 0;
+		checkMate = (entry & HISTORY_CHECK_MATE_AFTER) != 0;
+		historySize++;
+		gameMoveChanged(entry);
+	}
+	
+	// replaces the pawn on the target by a piece of the type (B, N, R or Q), the pawn is kept for undo
+	private ChessPiece promote(Position target, String type) {
+		ChessPiece pawn = (ChessPiece)removeFromBoard(target);
+		piecesOnTheBoard.remove(pawn);
+		promotedPawns.add(pawn);
+		ChessPiece newPiece = newPiece(type, pawn.getColor());
+		placeOnBoard(newPiece, target);
+		piecesOnTheBoard.add(newPiece);
+		return newPiece;
+	}
+	
+	// history entry of a move about to be played: the move and the state before it
+	private long historyBefore(Position source, Position target) {
+		long entry = Move.encode(Move.square(source.getRow(), source.getColumn()), Move.square(target.getRow(), target.getColumn()));
+		ChessPiece piece = (ChessPiece)board.piece(source);
+		if(piece instanceof Pawn && source.getColumn() != target.getColumn() && board.piece(target) == null) {
+			entry |= HISTORY_EN_PASSANT_CAPTURE;
+		}
+		entry |= (long)(squareOf(enPassantVulnerable) + 1) << HISTORY_EN_PASSANT_SHIFT;
+		entry |= (long)(squareOf(promoted) + 1) << HISTORY_PROMOTED_SHIFT;
+		return entry | (check ? HISTORY_CHECK : 0) | (checkMate ? HISTORY_CHECK_MATE : 0);
+	}
+	
+	// the entry completed with the capture and the state after the move
+	private long historyAfter(long entry, Piece capturedPiece) {
+		entry |= (capturedPiece != null) ? HISTORY_CAPTURE : 0;
+		return entry | (check ? HISTORY_CHECK_AFTER : 0) | (checkMate ? HISTORY_CHECK_MATE_AFTER : 0);
+	}
+	
+	// a new move drops the moves that were taken back
+	private void pushHistory(long entry) {
+		if(historySize == history.length) {
+			history = Arrays.copyOf(history, history.length * 2);
+		}
+		history[historySize++] = entry;
+		historyEnd = historySize;
+	}
+	
+	private ChessPiece pieceOnHistorySquare(long entry, int shift) {
+		int square = (int)((entry >>> shift) & 127) - 1;
+		return (square < 0) ? null : getPiece(square);
+	}
+	
+	// square of a piece on the board as in Move, -1 for null
+	private int squareOf(ChessPiece piece) {
+		if(piece == null) {
+			return -1;
+		}
+		Position position = piece.getChessPosition().toPosition();
+		return Move.square(position.getRow(), position.getColumn());
+	}
+	
+	// pieces captured in the moves that can be taken back, in the order they were taken
+	public List<ChessPiece> getCapturedPieces() {
+		List<ChessPiece> list = new ArrayList<>(capturedPieces.size());
+		for(Piece p : capturedPieces) {
+			list.add((ChessPiece)p);
+		}
+		return list;
+	}
+	
+	// number of moves that can be taken back with undo
+	public int getHistorySize() {
+		return historySize;
+	}
+	
+	// number of moves taken back that can be played again with redo
+	public int getRedoSize() {
+		return historyEnd - historySize;
+	}
+	
+	// compact copy of the position, to keep a match that sits idle (see ParkedMatch), unpark gives it back
+	// a match that ended in checkmate is not parked: its side to move is the winner, which no position can say
+	public ParkedMatch park() {
+		if(checkMate) {
+			throw new IllegalStateException("A match that ended in checkmate can't be parked");
+		}
+		ChessPiece[] pieces = new ChessPiece[64];
+		for(int square = 0; square < 64; square++) {
+			pieces[square] = getPiece(square);
+		}
+		int castling = (canCastle(7, 7) ? 1 : 0) | (canCastle(7, 0) ? 2 : 0) | (canCastle(0, 7) ? 4 : 0) | (canCastle(0, 0) ? 8 : 0);
+		int enPassantColumn = (enPassantVulnerable instanceof Pawn) ? enPassantVulnerable.getChessPosition().toPosition().getColumn() : -1;
+		return new ParkedMatch(pieces, currentPlayer, castling, enPassantColumn, turn);
+	}
+	
+	// independent copy of the match, for analysis on another thread or to try a line without touching the game
+	// it has the position, the evaluation state and the opening book, but none of the moves that undo could
+	// take back and no broadcaster; much cheaper than new ChessMatch(getFen()), which sets the position up again
+	public ChessMatch fork() {
+		return new ChessMatch(this);
+	}
+	
+	private ChessPiece copyPiece(ChessPiece piece) {
+		ChessPiece copy;
+		switch(piece.getTypeIndex()) {
+		case 0: copy = new Pawn(board, piece.getColor(), this); break;
+		case 5: copy = new King(board, piece.getColor(), this); break;
+		default: copy = newPiece(piece.toString(), piece.getColor()); break;
+		}
+		copy.setMoveCount(piece.getMoveCount());
+		return copy;
+	}
+	
+	// current position in Forsyth-Edwards Notation
+	public String getFen() {
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<board.getRows(); i++) {
+			int empty = 0;
+			for(int j=0; j<board.getColumns(); j++) {
+				ChessPiece p = (ChessPiece)board.piece(i, j);
+				if(p == null) {
+					empty++;
+					continue;
+				}
+				if(empty > 0) {
+					sb.append(empty);
+					empty = 0;
+				}
+				sb.append(p.getColor() == Color.WHITE ? p.toString() : p.toString().toLowerCase());
+			}
+			if(empty > 0) {
+				sb.append(empty);
+			}
+			if(i < board.getRows() - 1) {
+				sb.append('/');
+			}
+		}
+		sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+		String castling = (canCastle(7, 7) ? "K" : "") + (canCastle(7, 0) ? "Q" : "")
+				+ (canCastle(0, 7) ? "k" : "") + (canCastle(0, 0) ? "q" : "");
+		sb.append(castling.isEmpty() ? "-" : castling);
+		if(enPassantVulnerable instanceof Pawn) {
+			Position pos = enPassantVulnerable.getChessPosition().toPosition();
+			int row = (enPassantVulnerable.getColor() == Color.WHITE) ? pos.getRow() + 1 : pos.getRow() - 1;
+			sb.append(' ').append(Move.squareName(Move.square(row, pos.getColumn())));
+		}
+		else {
+			sb.append(" -");
+		}
+		sb.append(" 0 ").append((turn + 1) / 2);
+		return sb.toString();
+	}
+	
+	// true if the king and the rook of that corner have never moved
+	private boolean canCastle(int row, int rookColumn) {
+		ChessPiece king = (ChessPiece)board.piece(row, 4);
+		ChessPiece rook = (ChessPiece)board.piece(row, rookColumn);
+		return king instanceof King && king.getMoveCount() == 0 && rook instanceof Rook && rook.getMoveCount() == 0 
+				&& king.getColor() == rook.getColor() && king.getColor() == (row == 7 ? Color.WHITE : Color.BLACK);
+	}
+	
+	// every piece placed on or removed from the board goes through these two methods,
+	// so the position key and the evaluation follow the board
+	private void placeOnBoard(Piece piece, Position position) {
+		board.placePiece(piece, position);
+		generatedSquares = 0L;
+		int square = Move.square(position.getRow(), position.getColumn());
+		long key = Zobrist.pieceKey((ChessPiece)piece, square);
+		positionKey ^= key;
+		if(piece instanceof Pawn) {
+			pawnKey ^= key;
+		}
+		evaluation.add((ChessPiece)piece, square);
+		if(accumulator != null) {
+			accumulator.add((ChessPiece)piece, square);
+		}
+	}
+	
+	private Piece removeFromBoard(Position position) {
+		Piece piece = board.removePiece(position);
+		if(piece != null) {
+			generatedSquares = 0L;
+			int square = Move.square(position.getRow(), position.getColumn());
+			long key = Zobrist.pieceKey((ChessPiece)piece, square);
+			positionKey ^= key;
+			if(piece instanceof Pawn) {
+				pawnKey ^= key;
+			}
+			evaluation.remove((ChessPiece)piece, square);
+			if(accumulator != null) {
+				accumulator.remove((ChessPiece)piece, square);
+			}
+		}
+		return piece;
+	}
 	
 	private Piece makeMove(Position source, Position target) {
 		// removes the piece that was in the original position
-		ChessPiece p = (ChessPiece)board.removePiece(source);
+		ChessPiece p = (ChessPiece)removeFromBoard(source);
 		p.increaseMoveCount();
 		// remove the possible piece that is in the destination (captured)
-		Piece capturedPiece = board.removePiece(target);
+		Piece capturedPiece = removeFromBoard(target);
 		// puts position p in the destination position
-		board.placePiece(p, target);
+		placeOnBoard(p, target);
 		
 		if (capturedPiece != null) {
 			piecesOnTheBoard.remove(capturedPiece);
@@ -213,9 +1080,9 @@ public class ChessMatch {
 			// destination position of the King's right tower
 			Position targetT =  new Position(source.getRow(), source.getColumn() + 1);
 			// remove the tower
-			ChessPiece rook = (ChessPiece)board.removePiece(sourceT);
+			ChessPiece rook = (ChessPiece)removeFromBoard(sourceT);
 			// place the tower in the target position (targetT)
-			board.placePiece(rook, targetT);
+			placeOnBoard(rook, targetT);
 			rook.increaseMoveCount();
 		}
 		
@@ -227,9 +1094,9 @@ public class ChessMatch {
 			// destination position of the King's right tower
 			Position targetT =  new Position(source.getRow(), source.getColumn() - 1);
 			// remove the tower
-			ChessPiece rook = (ChessPiece)board.removePiece(sourceT);
+			ChessPiece rook = (ChessPiece)removeFromBoard(sourceT);
 			// place the tower in the target position (targetT)
-			board.placePiece(rook, targetT);
+			placeOnBoard(rook, targetT);
 			rook.increaseMoveCount();
 		}
 		
@@ -244,7 +1111,7 @@ public class ChessMatch {
 				}else {
 					pawnPosition = new Position(target.getRow()-1, target.getColumn());
 				}
-				capturedPiece = board.removePiece(pawnPosition);
+				capturedPiece = removeFromBoard(pawnPosition);
 				capturedPieces.add(capturedPiece);
 				piecesOnTheBoard.remove(capturedPiece);  
 			}
@@ -253,12 +1120,12 @@ public class ChessMatch {
  	}
 	
 	private void undoMove(Position source, Position target, Piece capturedPiece) {
-		ChessPiece p = (ChessPiece)board.removePiece(target);
+		ChessPiece p = (ChessPiece)removeFromBoard(target);
 		p.decreaseMoveCount();
 		// place the piece where it was, at the origin
-		board.placePiece(p, source);
+		placeOnBoard(p, source);
 		if (capturedPiece != null) {
-			board.placePiece(capturedPiece, target);
+			placeOnBoard(capturedPiece, target);
 			piecesOnTheBoard.add(capturedPiece);   
 			capturedPieces.remove(capturedPiece);
 		}
@@ -270,8 +1137,8 @@ public class ChessMatch {
 			Position sourceT =  new Position(source.getRow(), source.getColumn() + 3);
 			// destination position of the King's right tower
 			Position targetT =  new Position(source.getRow(), source.getColumn() + 1);
-			ChessPiece rook = (ChessPiece)board.removePiece(targetT); 
-			board.placePiece(rook, sourceT); 
+			ChessPiece rook = (ChessPiece)removeFromBoard(targetT); 
+			placeOnBoard(rook, sourceT); 
 			rook.decreaseMoveCount();   
 		}
 		// special move Castling Queenside Rook
@@ -279,8 +1146,8 @@ public class ChessMatch {
 		if(p instanceof King && target.getColumn() == source.getColumn() - 2) {
 			Position sourceT =  new Position(source.getRow(), source.getColumn() - 4);
 			Position targetT =  new Position(source.getRow(), source.getColumn() - 1);
-			ChessPiece rook = (ChessPiece)board.removePiece(targetT); 
-			board.placePiece(rook, sourceT); 
+			ChessPiece rook = (ChessPiece)removeFromBoard(targetT); 
+			placeOnBoard(rook, sourceT); 
 			rook.decreaseMoveCount();   
 		}
 		
@@ -290,14 +1157,14 @@ public class ChessMatch {
 			if(source.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerable){
 				Position pawnPosition;
 				// remove piece that was in the wrong place
-				ChessPiece pawn = (ChessPiece)board.removePiece(target);
+				ChessPiece pawn = (ChessPiece)removeFromBoard(target);
 				if(p.getColor() == Color.WHITE) {
 					//then the piece to be captured is below my white piece, one line down
 					pawnPosition = new Position(3, target.getColumn());
 				}else {
 					pawnPosition = new Position(4, target.getColumn());
 				}
-				board.placePiece(pawn, pawnPosition);
+				placeOnBoard(pawn, pawnPosition);
 			}
 		}
 	}
@@ -308,10 +1175,8 @@ public class ChessMatch {
 	
 	//look for the king of that color in the list of pieces in play
 	private ChessPiece king(Color color) {
-		List<Piece> list = piecesOnTheBoard.stream().filter(x -> 
-		((ChessPiece)x).getColor() == color).collect(Collectors.toList()); 
-		for (Piece p : list) {
-			if(p instanceof King) {
+		for (Piece p : piecesOnTheBoard) {
+			if(p instanceof King && ((ChessPiece)p).getColor() == color) {
 				return ((ChessPiece)p);
 			}
 		}
@@ -320,19 +1185,66 @@ public class ChessMatch {
 	
 	private boolean testCheck(Color color) {
 		Position kingPosition = king(color).getChessPosition().toPosition();
-		// list of pieces on the board filtered with the color of that king's opponent
-		List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x -> 
-		((ChessPiece)x).getColor() == opponent(color)).collect(Collectors.toList()) ;
-		for(Piece p : opponentPieces) {
-			boolean[][] mat = p.possibleMoves();
-			if(mat[kingPosition.getRow()][kingPosition.getColumn()] == true) {
+		// same answer as looking for the king's square in the possibleMoves of every opponent piece,
+		// but only the squares a piece could attack the king from are looked at
+		return isAttacked(kingPosition.getRow(), kingPosition.getColumn(), opponent(color));
+	}
+	
+	// true if a piece of that color could capture on the square
+	private boolean isAttacked(int row, int column, Color color) {
+		// pawns capture diagonally forward: white pawns attack the row above them
+		int pawnRow = (color == Color.WHITE) ? row + 1 : row - 1;
+		if(isPieceAt(pawnRow, column - 1, color, Pawn.class) || isPieceAt(pawnRow, column + 1, color, Pawn.class)) {
+			return true;
+		}
+		for(int[] step : KNIGHT_STEPS) {
+			if(isPieceAt(row + step[0], column + step[1], color, Knight.class)) {
+				return true;
+			}
+		}
+		for(int i=-1; i<=1; i++) {
+			for(int j=-1; j<=1; j++) {
+				if((i != 0 || j != 0) && isPieceAt(row + i, column + j, color, King.class)) {
+					return true;
+				}
+			}
+		}
+		for(int[] direction : DIRECTIONS) {
+			ChessPiece p = firstPiece(row, column, direction[0], direction[1]);
+			if(p != null && p.getColor() == color && (p instanceof Queen 
+					|| (direction[0] == 0 || direction[1] == 0 ? p instanceof Rook : p instanceof Bishop))) {
 				return true;
 			}
 		}
 		return false;
 	}
 	
+	private boolean isPieceAt(int row, int column, Color color, Class<? extends ChessPiece> type) {
+		if(row < 0 || row >= board.getRows() || column < 0 || column >= board.getColumns()) {
+			return false;
+		}
+		Piece p = board.piece(row, column);
+		return type.isInstance(p) && ((ChessPiece)p).getColor() == color;
+	}
+	
+	// first piece found walking from the square in a direction, or null
+	private ChessPiece firstPiece(int row, int column, int rowStep, int columnStep) {
+		int i = row + rowStep;
+		int j = column + columnStep;
+		while(i >= 0 && i < board.getRows() && j >= 0 && j < board.getColumns()) {
+			Piece p = board.piece(i, j);
+			if(p != null) {
+				return (ChessPiece)p;
+			}
+			i += rowStep;
+			j += columnStep;
+		}
+		return null;
+	}
+	
+	// the moves of the pieces tried here stay in moveTargets, the next ply validates its move without generating them again
 	private boolean testCheckMate(Color color) {
+		checkMateCandidates = 0;
 		//if it is not in check, it is also not in checkMate
 		if(!testCheck(color)) { 
 			return false;
@@ -342,33 +1254,145 @@ public class ChessMatch {
 		((ChessPiece)x).getColor() == color).collect(Collectors.toList());
 		// if there is a piece "p" that has a movement that removes the check, return false
 		for(Piece p : list) {
-			boolean[][] mat = p.possibleMoves();
-			for(int i=0; i<board.getRows(); i++) {
-				for(int j=0; j<board.getColumns(); j++) {
-					//if it is a possible movement
-					if(mat[i][j]) { 
-						Position source = ((ChessPiece)p).getChessPosition().toPosition();
-						Position target = new Position(i,j);
-						Piece capturedPiece = makeMove(source, target);
-						//tests if the king of my color is still in check
-						boolean testCheck = testCheck(color); 
-						undoMove(source, target, capturedPiece);
-						if(!testCheck) {
-							return false;
-						}
-					}
+			Position source = ((ChessPiece)p).getChessPosition().toPosition();
+			long targets = moveTargets(Move.square(source.getRow(), source.getColumn()));
+			while(targets != 0) {
+				int square = Long.numberOfTrailingZeros(targets);
+				targets &= targets - 1;
+				checkMateCandidates++;
+				Position target = new Position(Move.row(square), Move.column(square));
+				// the move is taken back, so the moves generated in the position are still valid after it
+				long generated = generatedSquares;
+				Piece capturedPiece = makeMove(source, target);
+				//tests if the king of my color is still in check
+				boolean testCheck = testCheck(color); 
+				undoMove(source, target, capturedPiece);
+				generatedSquares = generated;
+				if(!testCheck) {
+					return false;
 				}
 			}
-			
 		}
 		return true;
 	}
 	
 	private void placeNewPiece(char column, int row, ChessPiece piece) {
-		 board.placePiece(piece, new ChessPosition(column, row).toPosition());
+		 placeOnBoard(piece, new ChessPosition(column, row).toPosition());
 		 piecesOnTheBoard.add(piece);
 	}
 	 
+	private void fenSetup(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		if(fields.length < 2) {
+			throw new ChessException("Invalid FEN: " + fen);
+		}
+		String[] rows = fields[0].split("/");
+		if(rows.length != 8) {
+			throw new ChessException("Invalid FEN: there must be 8 rows");
+		}
+		int[] kings = new int[2];
+		for(int i=0; i<8; i++) {
+			int j = 0;
+			for(char c : rows[i].toCharArray()) {
+				if(c >= '1' && c <= '8') {
+					j += c - '0';
+					continue;
+				}
+				if(j > 7) {
+					throw new ChessException("Invalid FEN: row " + (8 - i) + " has more than 8 squares");
+				}
+				Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+				ChessPiece piece = fenPiece(Character.toUpperCase(c), color);
+				if(piece instanceof King) {
+					kings[color == Color.WHITE ? 0 : 1]++;
+				}
+				placeOnBoard(piece, new Position(i, j));
+				piecesOnTheBoard.add(piece);
+				// a pawn out of its initial row can't move two squares
+				if(piece instanceof Pawn && i != (color == Color.WHITE ? 6 : 1)) {
+					piece.increaseMoveCount();
+				}
+				j++;
+			}
+			if(j != 8) {
+				throw new ChessException("Invalid FEN: row " + (8 - i) + " doesn't have 8 squares");
+			}
+		}
+		if(kings[0] != 1 || kings[1] != 1) {
+			throw new ChessException("Invalid FEN: there must be one king of each color");
+		}
+		if(fields[1].equals("b")) {
+			nextTurn();
+		}
+		else if(!fields[1].equals("w")) {
+			throw new ChessException("Invalid FEN: side to move must be w or b");
+		}
+		
+		// castling rights: rooks without the right and kings without any right count as moved
+		String castling = fields.length > 2 ? fields[2] : "-";
+		markMovedUnlessCastling(7, 7, castling.indexOf('K') >= 0);
+		markMovedUnlessCastling(7, 0, castling.indexOf('Q') >= 0);
+		markMovedUnlessCastling(0, 7, castling.indexOf('k') >= 0);
+		markMovedUnlessCastling(0, 0, castling.indexOf('q') >= 0);
+		for(Piece p : piecesOnTheBoard) {
+			if(p instanceof King) {
+				ChessPiece king = (ChessPiece)p;
+				Position pos = king.getChessPosition().toPosition();
+				int homeRow = (king.getColor() == Color.WHITE) ? 7 : 0;
+				boolean rights = (king.getColor() == Color.WHITE) ? castling.indexOf('K') >= 0 || castling.indexOf('Q') >= 0
+						: castling.indexOf('k') >= 0 || castling.indexOf('q') >= 0;
+				if(!rights || pos.getRow() != homeRow || pos.getColumn() != 4) {
+					king.increaseMoveCount();
+				}
+			}
+		}
+		
+		// en passant: the vulnerable pawn is the one that passed over the given square
+		if(fields.length > 3 && !fields[3].equals("-")) {
+			int square = fields[3].length() == 2 ? Move.parseSquare(fields[3].charAt(0), fields[3].charAt(1)) : -1;
+			if(square < 0) {
+				throw new ChessException("Invalid FEN: en passant square " + fields[3]);
+			}
+			int row = Move.row(square) + ((currentPlayer == Color.WHITE) ? 1 : -1);
+			if(row >= 0 && row < 8 && board.piece(row, Move.column(square)) instanceof Pawn) {
+				enPassantVulnerable = (ChessPiece)board.piece(row, Move.column(square));
+			}
+		}
+		if(fields.length > 5) {
+			try {
+				int fullMove = Integer.parseInt(fields[5]);
+				if(fullMove > 1) {
+					turn += 2 * (fullMove - 1);
+				}
+			}
+			catch (NumberFormatException e) {
+				throw new ChessException("Invalid FEN: full move number " + fields[5]);
+			}
+		}
+		
+		if(testCheck(opponent(currentPlayer))) {
+			throw new ChessException("Invalid FEN: the side not to move is in check");
+		}
+		check = testCheck(currentPlayer);
+		checkMate = testCheckMate(currentPlayer);
+	}
+	
+	private void markMovedUnlessCastling(int row, int column, boolean right) {
+		ChessPiece rook = (ChessPiece)board.piece(row, column);
+		if(rook instanceof Rook && !right) {
+			rook.increaseMoveCount();
+		}
+	}
+	
+	private ChessPiece fenPiece(char type, Color color) {
+		switch(type) {
+		case 'K': return new King(board, color, this);
+		case 'P': return new Pawn(board, color, this);
+		case 'Q': case 'R': case 'B': case 'N': return newPiece(String.valueOf(type), color);
+		default: throw new ChessException("Invalid FEN: unknown piece " + type);
+		}
+	}
+	
 	private void initialSetup() {
 		placeNewPiece('a', 1, new Rook(board, Color.WHITE));
 		placeNewPiece('b', 1, new Knight(board, Color.WHITE));
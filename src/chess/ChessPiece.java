@@ -3,6 +3,11 @@ package chess;
 import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
+import chess.pieces.Bishop;
+import chess.pieces.King;
+import chess.pieces.Knight;
+import chess.pieces.Pawn;
+import chess.pieces.Queen;
 
 
 public abstract class ChessPiece extends Piece{
@@ -31,6 +36,21 @@ public abstract class ChessPiece extends Piece{
 		moveCount--;
 	}
 	
+	// for the copy of a piece made by ChessMatch.fork
+	void setMoveCount(int moveCount) {
+		this.moveCount = moveCount;
+	}
+	
+	// index of the piece type used by the analysis tables: 0=P, 1=N, 2=B, 3=R, 4=Q, 5=K
+	public int getTypeIndex() {
+		if (this instanceof Pawn) return 0;
+		if (this instanceof Knight) return 1;
+		if (this instanceof Bishop) return 2;
+		if (this instanceof Queen) return 4;
+		if (this instanceof King) return 5;
+		return 3;
+	}
+	
 	public ChessPosition getChessPosition() {
 		return ChessPosition.fromPosition(position); 
 	} 
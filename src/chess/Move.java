@@ -0,0 +1,101 @@
+package chess;
+
+// compact move encoded in an int, used by the analysis tools (book, search, protocols)
+// bits 0-5: source square, bits 6-11: target square, bits 12-14: promotion piece
+// a square is the matrix position row * 8 + column (a8 = 0, h1 = 63)
+public final class Move {
+	public static final int NONE = 0;
+
+	public static final int PROMOTION_NONE = 0;
+	public static final int PROMOTION_KNIGHT = 1;
+	public static final int PROMOTION_BISHOP = 2;
+	public static final int PROMOTION_ROOK = 3;
+	public static final int PROMOTION_QUEEN = 4;
+
+	private static final String PROMOTION_LETTERS = " nbrq";
+
+	private Move() {
+	}
+
+	public static int encode(int source, int target) {
+		return source | (target << 6);
+	}
+
+	public static int encode(int source, int target, int promotion) {
+		return source | (target << 6) | (promotion << 12);
+	}
+
+	public static int source(int move) {
+		return move & 63;
+	}
+
+	public static int target(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+	public static int square(int row, int column) {
+		return row * 8 + column;
+	}
+
+	public static int row(int square) {
+		return square >>> 3;
+	}
+
+	public static int column(int square) {
+		return square & 7;
+	}
+
+	// piece letter used by ChessMatch.replacePromotedPiece ("Q", "R", "B", "N")
+	public static String promotionType(int move) {
+		int promotion = promotion(move);
+		return promotion == PROMOTION_NONE ? null : String.valueOf(Character.toUpperCase(PROMOTION_LETTERS.charAt(promotion)));
+	}
+
+	// promotion piece (PROMOTION_*) from the letter used by ChessMatch.replacePromotedPiece, PROMOTION_NONE if it is none
+	public static int promotionCode(String type) {
+		int promotion = (type.length() == 1) ? PROMOTION_LETTERS.indexOf(Character.toLowerCase(type.charAt(0))) : -1;
+		return promotion < 0 ? PROMOTION_NONE : promotion;
+	}
+
+	// coordinate notation (ex: e2e4, e7e8q) to move, or NONE if the text is not a valid move
+	public static int parse(CharSequence s) {
+		if (s.length() != 4 && s.length() != 5) {
+			return NONE;
+		}
+		int source = parseSquare(s.charAt(0), s.charAt(1));
+		int target = parseSquare(s.charAt(2), s.charAt(3));
+		if (source < 0 || target < 0) {
+			return NONE;
+		}
+		int promotion = PROMOTION_NONE;
+		if (s.length() == 5) {
+			promotion = PROMOTION_LETTERS.indexOf(Character.toLowerCase(s.charAt(4)));
+			if (promotion <= 0) {
+				return NONE;
+			}
+		}
+		return encode(source, target, promotion);
+	}
+
+	// square from its chess coordinates (ex: 'e', '2'), or -1 if they are off the board
+	public static int parseSquare(char column, char row) {
+		if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+			return -1;
+		}
+		return square(8 - (row - '0'), column - 'a');
+	}
+
+	public static String squareName(int square) {
+		return "" + (char)('a' + column(square)) + (8 - row(square));
+	}
+
+	public static String toString(int move) {
+		String s = squareName(source(move)) + squareName(target(move));
+		int promotion = promotion(move);
+		return promotion == PROMOTION_NONE ? s : s + PROMOTION_LETTERS.charAt(promotion);
+	}
+}
@@ -0,0 +1,69 @@
+package chess;
+
+// outcome of a move tried with ChessMatch.tryChessMove: the move is either rejected, with the reason
+// performChessMove would have thrown as a ChessException, or played, and then it may give check or mate
+// a pawn that reached the last row without a promotion piece chosen is a queen until replacePromotedPiece
+public final class MoveResult {
+
+	public enum Status {
+		REJECTED, ACCEPTED, CHECK, CHECKMATE
+	}
+
+	private final Status status;
+	private final int move;
+	private final String reason;
+	private final ChessPiece capturedPiece;
+	private final boolean promotionRequired;
+
+	private MoveResult(Status status, int move, String reason, ChessPiece capturedPiece, boolean promotionRequired) {
+		this.status = status;
+		this.move = move;
+		this.reason = reason;
+		this.capturedPiece = capturedPiece;
+		this.promotionRequired = promotionRequired;
+	}
+
+	static MoveResult rejected(int move, String reason) {
+		return new MoveResult(Status.REJECTED, move, reason, null, false);
+	}
+
+	static MoveResult played(Status status, int move, ChessPiece capturedPiece, boolean promotionRequired) {
+		return new MoveResult(status, move, null, capturedPiece, promotionRequired);
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isAccepted() {
+		return status != Status.REJECTED;
+	}
+
+	// move as in Move, with the promotion piece it was played with
+	public int getMove() {
+		return move;
+	}
+
+	// why the move was rejected, null if it was played
+	public String getReason() {
+		return reason;
+	}
+
+	public ChessPiece getCapturedPiece() {
+		return capturedPiece;
+	}
+
+	// the move promoted a pawn to a queen by default: the piece can still be chosen with replacePromotedPiece
+	public boolean isPromotionRequired() {
+		return promotionRequired;
+	}
+
+	@Override
+	public String toString() {
+		String text = Move.toString(move) + " " + status;
+		if (reason != null) {
+			return text + ": " + reason;
+		}
+		return promotionRequired ? text + ", promotion required" : text;
+	}
+}
@@ -0,0 +1,104 @@
+package chess;
+
+import chess.pieces.King;
+import chess.pieces.Pawn;
+
+// standard algebraic notation (SAN) of moves, as written in PGN files (ex: Nf3, exd5, O-O, e8=Q+)
+public final class Notation {
+
+	private Notation() {
+	}
+
+	// SAN of a legal move of the side to move, computed before the move is played
+	// (the match is left as it was)
+	public static String toSan(ChessMatch chessMatch, int move) {
+		StringBuilder sb = sanWithoutCheck(chessMatch, move);
+		chessMatch.doMove(move);
+		if (chessMatch.getCheck()) {
+			sb.append(chessMatch.getLegalMoves().length == 0 ? '#' : '+');
+		}
+		chessMatch.undo();
+		return sb.toString();
+	}
+
+	// legal move of the side to move written in SAN (as read in PGN files), Move.NONE if there is none
+	// check and annotation marks (+, #, !, ?) are ignored, and castling may be written with zeros
+	public static int parseSan(ChessMatch chessMatch, String san) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		String body = san.substring(0, end).replace('0', 'O');
+		boolean castling = body.startsWith("O-O");
+		for (int move : chessMatch.getLegalMoves()) {
+			// only the moves to the square of the SAN are written out
+			if (!castling && !body.contains(Move.squareName(Move.target(move)))) {
+				continue;
+			}
+			if (sanWithoutCheck(chessMatch, move).toString().equals(body)) {
+				return move;
+			}
+		}
+		return Move.NONE;
+	}
+
+	private static StringBuilder sanWithoutCheck(ChessMatch chessMatch, int move) {
+		int source = Move.source(move);
+		int target = Move.target(move);
+		ChessPiece piece = chessMatch.getPiece(source);
+		StringBuilder sb = new StringBuilder();
+		if (piece instanceof King && Math.abs(Move.column(target) - Move.column(source)) == 2) {
+			sb.append(Move.column(target) > Move.column(source) ? "O-O" : "O-O-O");
+		}
+		else if (piece instanceof Pawn) {
+			if (Move.column(source) != Move.column(target)) {
+				sb.append((char)('a' + Move.column(source))).append('x');
+			}
+			sb.append(Move.squareName(target));
+			if (Move.row(target) == 0 || Move.row(target) == 7) {
+				String type = Move.promotionType(move);
+				sb.append('=').append(type == null ? "Q" : type);
+			}
+		}
+		else {
+			sb.append(piece.toString());
+			appendDisambiguation(chessMatch, move, piece, sb);
+			if (chessMatch.getPiece(target) != null) {
+				sb.append('x');
+			}
+			sb.append(Move.squareName(target));
+		}
+		return sb;
+	}
+
+	// file, rank or both of the source when another piece of the same type can reach the target
+	private static void appendDisambiguation(ChessMatch chessMatch, int move, ChessPiece piece, StringBuilder sb) {
+		int source = Move.source(move);
+		boolean ambiguous = false;
+		boolean sameColumn = false;
+		boolean sameRow = false;
+		for (int other : chessMatch.getLegalMoves()) {
+			int otherSource = Move.source(other);
+			if (otherSource == source || Move.target(other) != Move.target(move)
+					|| chessMatch.getPiece(otherSource).getClass() != piece.getClass()) {
+				continue;
+			}
+			ambiguous = true;
+			sameColumn |= Move.column(otherSource) == Move.column(source);
+			sameRow |= Move.row(otherSource) == Move.row(source);
+		}
+		if (!ambiguous) {
+			return;
+		}
+		String name = Move.squareName(source);
+		if (!sameColumn) {
+			sb.append(name.charAt(0));
+		}
+		else if (!sameRow) {
+			sb.append(name.charAt(1));
+		}
+		else {
+			sb.append(name);
+		}
+	}
+}
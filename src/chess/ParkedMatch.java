@@ -0,0 +1,155 @@
+package chess;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// compact form of an idle match: 48 bytes on the heap instead of the kilobytes of a ChessMatch
+// the board is kept as 64 four-bit squares (type index + 1, plus 8 for Black) in four longs, and the side
+// to move, castling rights, en passant file and turn in one int
+// only the position is kept: the moves that could be taken back with undo, the broadcaster, the opening
+// book and the network are not, they are set again on the match returned by unpark
+public final class ParkedMatch {
+	private static final int BLACK_TO_MOVE = 1;
+	private static final int CASTLING_SHIFT = 1;
+	private static final int EN_PASSANT_SHIFT = 5;
+	private static final int TURN_SHIFT = 9;
+	// castling rights in the order of the FEN: K, Q, k, q
+	private static final String CASTLING = "KQkq";
+	private static final String PIECES = "PNBRQK";
+
+	// squares 0-15, 16-31, 32-47 and 48-63 (a8 = 0), four bits per square
+	private final long squares0;
+	private final long squares1;
+	private final long squares2;
+	private final long squares3;
+	private final int state;
+
+	// squares as in Move, castling as the bits of CASTLING, enPassantColumn -1 for none
+	ParkedMatch(ChessPiece[] pieces, Color currentPlayer, int castling, int enPassantColumn, int turn) {
+		long[] squares = new long[4];
+		for (int square = 0; square < 64; square++) {
+			ChessPiece piece = pieces[square];
+			if (piece != null) {
+				long code = piece.getTypeIndex() + 1 + (piece.getColor() == Color.BLACK ? 8 : 0);
+				squares[square >> 4] |= code << ((square & 15) * 4);
+			}
+		}
+		squares0 = squares[0];
+		squares1 = squares[1];
+		squares2 = squares[2];
+		squares3 = squares[3];
+		state = (currentPlayer == Color.BLACK ? BLACK_TO_MOVE : 0) | castling << CASTLING_SHIFT
+				| (enPassantColumn + 1) << EN_PASSANT_SHIFT | turn << TURN_SHIFT;
+	}
+
+	private ParkedMatch(long squares0, long squares1, long squares2, long squares3, int state) {
+		this.squares0 = squares0;
+		this.squares1 = squares1;
+		this.squares2 = squares2;
+		this.squares3 = squares3;
+		this.state = state;
+	}
+
+	// the 36 bytes of the parked match, as read back by read (ex: to send a position to another process)
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(squares0);
+		out.writeLong(squares1);
+		out.writeLong(squares2);
+		out.writeLong(squares3);
+		out.writeInt(state);
+	}
+
+	public static ParkedMatch read(DataInput in) throws IOException {
+		return new ParkedMatch(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readInt());
+	}
+
+	// match in the parked position, ready to be played again
+	public ChessMatch unpark() {
+		return new ChessMatch(getFen());
+	}
+
+	public Color getCurrentPlayer() {
+		return (state & BLACK_TO_MOVE) != 0 ? Color.BLACK : Color.WHITE;
+	}
+
+	public int getTurn() {
+		return state >>> TURN_SHIFT;
+	}
+
+	// parked position in Forsyth-Edwards Notation, as ChessMatch.getFen gave it
+	public String getFen() {
+		StringBuilder sb = new StringBuilder(90);
+		for (int row = 0; row < 8; row++) {
+			int empty = 0;
+			for (int column = 0; column < 8; column++) {
+				int code = code(row * 8 + column);
+				if (code == 0) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append(empty);
+					empty = 0;
+				}
+				char letter = PIECES.charAt((code & 7) - 1);
+				sb.append((code & 8) != 0 ? Character.toLowerCase(letter) : letter);
+			}
+			if (empty > 0) {
+				sb.append(empty);
+			}
+			if (row < 7) {
+				sb.append('/');
+			}
+		}
+		sb.append(getCurrentPlayer() == Color.WHITE ? " w " : " b ");
+		int castling = (state >>> CASTLING_SHIFT) & 15;
+		for (int i = 0; i < 4; i++) {
+			if ((castling & 1 << i) != 0) {
+				sb.append(CASTLING.charAt(i));
+			}
+		}
+		if (castling == 0) {
+			sb.append('-');
+		}
+		int enPassantColumn = ((state >>> EN_PASSANT_SHIFT) & 15) - 1;
+		if (enPassantColumn >= 0) {
+			// the square passed over is behind the pawn that moved, which is the opponent of the side to move
+			int row = getCurrentPlayer() == Color.WHITE ? 2 : 5;
+			sb.append(' ').append(Move.squareName(Move.square(row, enPassantColumn)));
+		}
+		else {
+			sb.append(" -");
+		}
+		sb.append(" 0 ").append((getTurn() + 1) / 2);
+		return sb.toString();
+	}
+
+	private int code(int square) {
+		long squares = square < 16 ? squares0 : square < 32 ? squares1 : square < 48 ? squares2 : squares3;
+		return (int)(squares >>> ((square & 15) * 4)) & 15;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ParkedMatch)) {
+			return false;
+		}
+		ParkedMatch other = (ParkedMatch)obj;
+		return squares0 == other.squares0 && squares1 == other.squares1 && squares2 == other.squares2
+				&& squares3 == other.squares3 && state == other.state;
+	}
+
+	@Override
+	public int hashCode() {
+		long h = squares0 * 31 + squares1;
+		h = h * 31 + squares2;
+		h = h * 31 + squares3;
+		return Long.hashCode(h * 31 + state);
+	}
+
+	@Override
+	public String toString() {
+		return getFen();
+	}
+}
@@ -0,0 +1,80 @@
+package chess;
+
+// random 64-bit keys used to hash chess positions (Zobrist hashing)
+// the key of a position is the XOR of the keys of its pieces plus the side to move,
+// so it can be updated incrementally when a piece is placed or removed, and of its castling rights
+// and en passant file, so that positions that only differ by them (not repetitions) get different keys
+public final class Zobrist {
+	// [color][piece type][square]
+	private static final long[][][] PIECE_KEYS = new long[2][6][64];
+	private static final long BLACK_TO_MOVE;
+	// White kingside, White queenside, Black kingside, Black queenside
+	private static final long[] CASTLING_KEYS = new long[4];
+	// file of the pawn that can be captured en passant
+	private static final long[] EN_PASSANT_KEYS = new long[8];
+
+	static {
+		// fixed seed: keys must be the same on every run, they are stored in book and archive files
+		long seed = 0x9E3779B97F4A7C15L;
+		for (int c = 0; c < 2; c++) {
+			for (int t = 0; t < 6; t++) {
+				for (int sq = 0; sq < 64; sq++) {
+					seed = next(seed);
+					PIECE_KEYS[c][t][sq] = mix(seed);
+				}
+			}
+		}
+		seed = next(seed);
+		BLACK_TO_MOVE = mix(seed);
+		for (int i = 0; i < 4; i++) {
+			seed = next(seed);
+			CASTLING_KEYS[i] = mix(seed);
+		}
+		for (int column = 0; column < 8; column++) {
+			seed = next(seed);
+			EN_PASSANT_KEYS[column] = mix(seed);
+		}
+	}
+
+	private Zobrist() {
+	}
+
+	public static long pieceKey(Color color, int typeIndex, int square) {
+		return PIECE_KEYS[color == Color.WHITE ? 0 : 1][typeIndex][square];
+	}
+
+	public static long pieceKey(ChessPiece piece, int square) {
+		return pieceKey(piece.getColor(), piece.getTypeIndex(), square);
+	}
+
+	public static long sideKey() {
+		return BLACK_TO_MOVE;
+	}
+
+	// rights: bit 0 White kingside, 1 White queenside, 2 Black kingside, 3 Black queenside
+	public static long castlingKey(int rights) {
+		long key = 0;
+		for (int i = 0; i < 4; i++) {
+			if ((rights & 1 << i) != 0) {
+				key ^= CASTLING_KEYS[i];
+			}
+		}
+		return key;
+	}
+
+	// column of the pawn that can be captured en passant, 0 if none (-1)
+	public static long enPassantKey(int column) {
+		return column < 0 ? 0 : EN_PASSANT_KEYS[column];
+	}
+
+	// splitmix64
+	private static long next(long seed) {
+		return seed + 0x9E3779B97F4A7C15L;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,384 @@
+package chess.annotation;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.ChessException;
+
+// annotates a PGN archive in stages, each on its own threads: a reader parses the games, a bounded queue
+// hands them to the workers (each with its own GameAnnotator, and so its own search and matches), and a
+// writer puts the annotated games back in the order of the archive
+// at most maxInFlight games are between the reader and the writer: the reader takes a permit before a game
+// and the writer gives it back once the game is written, so memory stays flat whatever the archive size,
+// and a long game only holds up the reader once the games after it fill the window
+// after each game written, the output is forced to disk and the checkpoint (games and bytes written) replaced
+// atomically: a run started again after a crash truncates the output to the checkpoint and skips the games
+// already annotated; the checkpoint is removed once the archive is done
+// a game that fails to be annotated is written as it was read, after a comment with the error, and the run
+// goes on: failing on it would stop every run started again from the checkpoint at the same game
+// usage: java chess.annotation.AnnotationPipeline <input.pgn> <output.pgn> [workers] [depth]
+public class AnnotationPipeline {
+	private static final Annotated END = new Annotated(-1, null);
+
+	private final Path input;
+	private final Path output;
+	private final Path checkpoint;
+	private final int workers;
+	private final int depth;
+	private final int maxInFlight;
+
+	private final Stage reader = new Stage("reader", 1);
+	private final Stage annotators;
+	private final Stage writer = new Stage("writer", 1);
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+	private final AtomicLong gamesWritten = new AtomicLong();
+	private final AtomicLong gamesNotAnnotated = new AtomicLong();
+	private long gamesResumed;
+	private final List<Thread> threads = new ArrayList<>();
+	private volatile boolean aborted;
+	private volatile Throwable failure;
+
+	public AnnotationPipeline(Path input, Path output, int workers, int depth, int maxInFlight) {
+		if (workers < 1 || maxInFlight < 1) {
+			throw new IllegalArgumentException("At least one worker and one game in flight: " + workers + ", " + maxInFlight);
+		}
+		this.input = input;
+		this.output = output;
+		this.checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+		this.workers = workers;
+		this.depth = depth;
+		this.maxInFlight = maxInFlight;
+		annotators = new Stage("workers", workers);
+	}
+
+	public Path getCheckpoint() {
+		return checkpoint;
+	}
+
+	// annotates the archive, from the checkpoint if a run before this one was cut short
+	// a pipeline runs once; an aborted run throws an IOException
+	public synchronized void run() throws IOException, InterruptedException {
+		if (!threads.isEmpty()) {
+			throw new IllegalStateException("The pipeline already ran");
+		}
+		long offset = 0;
+		if (Files.exists(checkpoint)) {
+			String[] fields = Files.readString(checkpoint, StandardCharsets.UTF_8).trim().split(" ");
+			gamesResumed = Long.parseLong(fields[0]);
+			offset = Long.parseLong(fields[1]);
+		}
+		BlockingQueue<Job> jobs = new ArrayBlockingQueue<>(maxInFlight);
+		// never holds more than maxInFlight games: the permits bound it
+		BlockingQueue<Annotated> annotated = new LinkedBlockingQueue<>();
+		Semaphore permits = new Semaphore(maxInFlight);
+
+		try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			// what was written after the checkpoint was not acknowledged: it is written again
+			out.truncate(offset);
+			out.position(offset);
+			synchronized (threads) {
+				threads.add(new Thread(() -> read(jobs, permits), "annotation-reader"));
+				for (int i = 0; i < workers; i++) {
+					threads.add(new Thread(() -> annotate(jobs, annotated), "annotation-worker-" + i));
+				}
+				threads.add(new Thread(() -> write(annotated, permits, out), "annotation-writer"));
+				for (Thread thread : threads) {
+					thread.setDaemon(true);
+					thread.start();
+					if (aborted) {
+						thread.interrupt();
+					}
+				}
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+		if (failure != null) {
+			throw new IOException("Annotation of " + input + " failed", failure);
+		}
+		if (aborted) {
+			throw new IOException("Annotation of " + input + " aborted after " + getGamesWritten() + " games");
+		}
+		Files.deleteIfExists(checkpoint);
+	}
+
+	// stops the pipeline at once, as a crash would (the checkpoint is left as it is); run throws
+	public void abort() {
+		aborted = true;
+		synchronized (threads) {
+			for (Thread thread : threads) {
+				thread.interrupt();
+			}
+		}
+	}
+
+	private void read(BlockingQueue<Job> jobs, Semaphore permits) {
+		try (PgnReader pgn = new PgnReader(new InputStreamReader(Files.newInputStream(input), StandardCharsets.UTF_8))) {
+			for (long i = 0; i < gamesResumed; i++) {
+				if (pgn.next() == null) {
+					throw new IOException("The checkpoint is past the end of " + input);
+				}
+			}
+			long index = gamesResumed;
+			while (true) {
+				long t0 = System.nanoTime();
+				PgnGame game = pgn.next();
+				long t1 = System.nanoTime();
+				reader.busy(t1 - t0);
+				if (game == null) {
+					break;
+				}
+				permits.acquire();
+				peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				jobs.put(new Job(index++, game));
+				reader.blocked(System.nanoTime() - t1);
+				reader.items.incrementAndGet();
+			}
+		}
+		catch (InterruptedException e) {
+			return;
+		}
+		catch (IOException | RuntimeException e) {
+			if (!aborted) {
+				fail(e);
+			}
+			return;
+		}
+		try {
+			for (int i = 0; i < workers; i++) {
+				jobs.put(Job.END);
+			}
+		}
+		catch (InterruptedException e) {
+			// aborted
+		}
+	}
+
+	private void annotate(BlockingQueue<Job> jobs, BlockingQueue<Annotated> annotated) {
+		GameAnnotator annotator = new GameAnnotator(depth);
+		try {
+			while (true) {
+				long t0 = System.nanoTime();
+				Job job = jobs.take();
+				long t1 = System.nanoTime();
+				annotators.blocked(t1 - t0);
+				if (job == Job.END) {
+					annotated.put(END);
+					return;
+				}
+				String text;
+				try {
+					text = annotator.annotate(job.game);
+				}
+				catch (RuntimeException e) {
+					text = GameAnnotator.unannotated(job.game, e.toString());
+				}
+				if (text.contains("{not annotated: ")) {
+					gamesNotAnnotated.incrementAndGet();
+				}
+				annotators.busy(System.nanoTime() - t1);
+				annotators.items.incrementAndGet();
+				annotated.put(new Annotated(job.index, text));
+			}
+		}
+		catch (InterruptedException e) {
+			// aborted
+		}
+		catch (RuntimeException e) {
+			fail(e);
+		}
+	}
+
+	// writes the games in the order of the archive: the ones annotated before their turn wait in the buffer
+	private void write(BlockingQueue<Annotated> annotated, Semaphore permits, FileChannel out) {
+		Map<Long, String> buffer = new HashMap<>();
+		long next = gamesResumed;
+		int ended = 0;
+		try {
+			while (ended < workers) {
+				long t0 = System.nanoTime();
+				Annotated game = annotated.take();
+				long t1 = System.nanoTime();
+				writer.blocked(t1 - t0);
+				if (game == END) {
+					ended++;
+					continue;
+				}
+				buffer.put(game.index, game.text);
+				String text;
+				while ((text = buffer.remove(next)) != null) {
+					ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+					while (bytes.hasRemaining()) {
+						out.write(bytes);
+					}
+					out.force(false);
+					next++;
+					saveCheckpoint(next, out.position());
+					gamesWritten.incrementAndGet();
+					writer.items.incrementAndGet();
+					inFlight.decrementAndGet();
+					permits.release();
+				}
+				writer.busy(System.nanoTime() - t1);
+			}
+		}
+		catch (InterruptedException e) {
+			// aborted
+		}
+		catch (IOException | RuntimeException e) {
+			if (!aborted) {
+				fail(e);
+			}
+		}
+	}
+
+	// written beside, then moved over the old one: a crash leaves either the old checkpoint or the new one
+	private void saveCheckpoint(long games, long offset) throws IOException {
+		Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		Files.writeString(temp, games + " " + offset + "\n", StandardCharsets.UTF_8);
+		Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void fail(Throwable e) {
+		if (failure == null) {
+			failure = e;
+		}
+		abort();
+	}
+
+	// games written to the output by this run (the ones of the run before it left out)
+	public long getGamesWritten() {
+		return gamesWritten.get();
+	}
+
+	// games of this run written as they were read, with the reason they could not be annotated
+	public long getGamesNotAnnotated() {
+		return gamesNotAnnotated.get();
+	}
+
+	// games skipped because the checkpoint had them
+	public long getGamesResumed() {
+		return gamesResumed;
+	}
+
+	// most games read but not yet written at the same time
+	public int getPeakInFlight() {
+		return peakInFlight.get();
+	}
+
+	public List<Stage> getStages() {
+		return List.of(reader, annotators, writer);
+	}
+
+	// games through a stage, the time its threads spent working and waiting on the stages next to it
+	// the stage with the lowest games/s (per second of work of all its threads) is the bottleneck
+	public static final class Stage {
+		private final String name;
+		private final int threads;
+		private final AtomicLong items = new AtomicLong();
+		private final AtomicLong busyNanos = new AtomicLong();
+		private final AtomicLong blockedNanos = new AtomicLong();
+
+		Stage(String name, int threads) {
+			this.name = name;
+			this.threads = threads;
+		}
+
+		void busy(long nanos) {
+			busyNanos.addAndGet(nanos);
+		}
+
+		void blocked(long nanos) {
+			blockedNanos.addAndGet(nanos);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getGames() {
+			return items.get();
+		}
+
+		public long getBusyNanos() {
+			return busyNanos.get();
+		}
+
+		public long getBlockedNanos() {
+			return blockedNanos.get();
+		}
+
+		// games per second the stage keeps up with its threads working all the time
+		public double getGamesPerSecond() {
+			long busy = busyNanos.get();
+			return busy == 0 ? 0 : items.get() * 1e9 * threads / busy;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%-8s %d threads, %d games, busy %.2f s, blocked %.2f s, %.1f games/s",
+					name, threads, getGames(), getBusyNanos() / 1e9, getBlockedNanos() / 1e9, getGamesPerSecond());
+		}
+	}
+
+	private static final class Job {
+		static final Job END = new Job(-1, null);
+
+		final long index;
+		final PgnGame game;
+
+		Job(long index, PgnGame game) {
+			this.index = index;
+			this.game = game;
+		}
+	}
+
+	private static final class Annotated {
+		final long index;
+		final String text;
+
+		Annotated(long index, String text) {
+			this.index = index;
+			this.text = text;
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("usage: AnnotationPipeline <input.pgn> <output.pgn> [workers] [depth]");
+			System.exit(2);
+		}
+		int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int depth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		AnnotationPipeline pipeline = new AnnotationPipeline(Paths.get(args[0]), Paths.get(args[1]), workers, depth, workers * 4);
+		long start = System.nanoTime();
+		pipeline.run();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf(Locale.ROOT, "%d games in %.1f s (%d from the checkpoint, %d not annotated)%n",
+				pipeline.getGamesWritten(), seconds, pipeline.getGamesResumed(), pipeline.getGamesNotAnnotated());
+		for (Stage stage : pipeline.getStages()) {
+			System.out.println(stage);
+		}
+	}
+}
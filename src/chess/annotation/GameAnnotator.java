@@ -0,0 +1,156 @@
+package chess.annotation;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import chess.Notation;
+import chess.search.Search;
+
+// annotates a game: every position of the main line is searched to a fixed depth, the moves are followed
+// by the evaluation (from White, in pawns) and the moves that lose 1 pawn or more against the best move
+// are marked ? (3 pawns or more: ??), with the best move and its evaluation
+// the move ordering is cleared before each game, so that a game is annotated the same whatever the
+// games before it: the output does not depend on which worker of an AnnotationPipeline had the game
+// not thread safe: each worker has its own
+public class GameAnnotator {
+	public static final int MISTAKE = 100;
+	public static final int BLUNDER = 300;
+
+	private final Search search = new Search();
+	private final int depth;
+
+	public GameAnnotator(int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Depth must be 1 or more: " + depth);
+		}
+		this.depth = depth;
+	}
+
+	// the game in PGN with the annotations; a move that can't be read ends the annotation with a comment,
+	// and a game whose FEN can't be set up is written as it was read, after a comment
+	public String annotate(PgnGame game) {
+		search.getMoveOrdering().clear();
+		ChessMatch chessMatch;
+		try {
+			chessMatch = game.newMatch();
+		}
+		catch (RuntimeException e) {
+			return unannotated(game, "invalid FEN " + game.getTag("FEN"));
+		}
+		List<String> moves = game.getMoves();
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			appendTag(sb, tag.getKey(), tag.getValue());
+		}
+		appendTag(sb, "Annotator", "chess.annotation depth " + depth);
+		sb.append('\n');
+
+		String fen = game.getTag("FEN");
+		String[] fields = fen != null ? fen.trim().split("\\s+") : new String[0];
+		// a move number that can't be read counts from 1
+		int number = fields.length > 5 && fields[5].matches("[1-9][0-9]{0,5}") ? Integer.parseInt(fields[5]) : 1;
+		boolean first = true;
+		int lineLength = 0;
+		Search.Result before = analyse(chessMatch);
+		for (String san : moves) {
+			Color mover = chessMatch.getCurrentPlayer();
+			int move = Notation.parseSan(chessMatch, san);
+			if (move == Move.NONE) {
+				lineLength = appendToken(sb, "{unreadable move " + san.replace('}', ')') + "}", lineLength);
+				break;
+			}
+			String played = Notation.toSan(chessMatch, move);
+			String best = before.getMove() == Move.NONE ? null : Notation.toSan(chessMatch, before.getMove());
+			chessMatch.doMove(move);
+			Search.Result after = analyse(chessMatch);
+			// what the move gives away against the best move, for the side that played it
+			int loss = move == before.getMove() ? 0 : before.getScore() + after.getScore();
+			String token = played;
+			if (loss >= BLUNDER) {
+				token += "??";
+			}
+			else if (loss >= MISTAKE) {
+				token += "?";
+			}
+			if (mover == Color.WHITE) {
+				token = number + ". " + token;
+			}
+			else if (first) {
+				token = number + "... " + token;
+			}
+			if (mover == Color.BLACK) {
+				number++;
+			}
+			first = false;
+			lineLength = appendToken(sb, token, lineLength);
+			String comment = formatScore(-after.getScore(), mover);
+			if (loss >= MISTAKE && best != null) {
+				comment += "; best " + best + " " + formatScore(before.getScore(), mover);
+			}
+			lineLength = appendToken(sb, "{" + comment + "}", lineLength);
+			before = after;
+		}
+		appendToken(sb, game.getResult(), lineLength);
+		sb.append("\n\n");
+		return sb.toString();
+	}
+
+	// the game in PGN as it was read (tags, moves and result), after a comment with the reason it was not
+	// annotated
+	static String unannotated(PgnGame game, String reason) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			appendTag(sb, tag.getKey(), tag.getValue());
+		}
+		sb.append('\n');
+		int lineLength = appendToken(sb, "{not annotated: " + reason.replace('}', ')') + "}", 0);
+		for (String san : game.getMoves()) {
+			lineLength = appendToken(sb, san, lineLength);
+		}
+		appendToken(sb, game.getResult(), lineLength);
+		sb.append("\n\n");
+		return sb.toString();
+	}
+
+	// score of the side to move; a side without legal moves is mated or stalemated
+	private Search.Result analyse(ChessMatch chessMatch) {
+		if (chessMatch.getLegalMoves().length == 0) {
+			return new Search.Result(Move.NONE, chessMatch.getCheck() ? -Search.MATE : 0, depth, 1, 0, new int[0]);
+		}
+		return search.search(chessMatch, depth, 0, 0);
+	}
+
+	// score of a side as seen from White: "+0.35", "-1.20", "#3" (White mates in 3), "#-2" (Black mates in 2),
+	// "#0" and "#-0" once mated
+	private static String formatScore(int score, Color side) {
+		int white = side == Color.WHITE ? score : -score;
+		if (Math.abs(white) >= Search.MATE_BOUND) {
+			int moves = (Search.MATE - Math.abs(white) + 1) / 2;
+			return white > 0 ? "#" + moves : "#-" + moves;
+		}
+		return String.format(Locale.ROOT, "%+.2f", white / 100.0);
+	}
+
+	private static void appendTag(StringBuilder sb, String name, String value) {
+		sb.append('[').append(name).append(" \"")
+				.append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+	}
+
+	// PGN lines are kept under 80 characters
+	private static int appendToken(StringBuilder sb, String token, int lineLength) {
+		if (lineLength > 0 && lineLength + 1 + token.length() > 79) {
+			sb.append('\n');
+			lineLength = 0;
+		}
+		else if (lineLength > 0) {
+			sb.append(' ');
+			lineLength++;
+		}
+		sb.append(token);
+		return lineLength + token.length();
+	}
+}
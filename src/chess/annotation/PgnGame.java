@@ -0,0 +1,45 @@
+package chess.annotation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessMatch;
+
+// game of a PGN archive as PgnReader reads it: the tags in the order of the file, the moves of the
+// main line in SAN (comments, variations, NAGs and move numbers left out) and the result
+public final class PgnGame {
+	private final Map<String, String> tags;
+	private final List<String> moves;
+	private final String result;
+
+	public PgnGame(Map<String, String> tags, List<String> moves, String result) {
+		this.tags = Collections.unmodifiableMap(tags);
+		this.moves = Collections.unmodifiableList(moves);
+		this.result = result;
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	// value of the tag, null if the game has none
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	public List<String> getMoves() {
+		return moves;
+	}
+
+	// "1-0", "0-1", "1/2-1/2" or "*"
+	public String getResult() {
+		return result;
+	}
+
+	// new match at the position the game starts from (the FEN tag, or the initial position)
+	public ChessMatch newMatch() {
+		String fen = tags.get("FEN");
+		return fen != null ? new ChessMatch(fen) : new ChessMatch();
+	}
+}
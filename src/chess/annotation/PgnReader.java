@@ -0,0 +1,134 @@
+package chess.annotation;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// reads the games of a PGN archive one at a time, so that an archive of any size is read in constant memory
+// only the main line is kept: {comments}, ;comments, (variations), $NAGs and move numbers are skipped
+public class PgnReader implements Closeable {
+	private final BufferedReader in;
+	// a {comment} or a (variation) may go on over several lines
+	private boolean inComment;
+	private int variationDepth;
+
+	public PgnReader(Reader reader) {
+		in = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+	}
+
+	// next game of the archive, null at its end
+	// a game cut short by the end of the file (no result) is returned with the result "*"
+	public PgnGame next() throws IOException {
+		Map<String, String> tags = new LinkedHashMap<>();
+		List<String> moves = new ArrayList<>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!inComment && variationDepth == 0 && line.startsWith("[")) {
+				parseTag(line, tags);
+				continue;
+			}
+			if (line.startsWith("%")) {
+				// escape line
+				continue;
+			}
+			String result = parseMovetext(line, moves);
+			if (result != null) {
+				return new PgnGame(tags, moves, result);
+			}
+		}
+		if (tags.isEmpty() && moves.isEmpty()) {
+			return null;
+		}
+		return new PgnGame(tags, moves, "*");
+	}
+
+	// adds the moves of the line, and returns the result if the game ends on it
+	private String parseMovetext(String line, List<String> moves) {
+		int i = 0;
+		while (i < line.length()) {
+			char c = line.charAt(i);
+			if (inComment) {
+				inComment = c != '}';
+				i++;
+			}
+			else if (c == '{') {
+				inComment = true;
+				i++;
+			}
+			else if (c == ';') {
+				// comment up to the end of the line
+				return null;
+			}
+			else if (c == '(') {
+				variationDepth++;
+				i++;
+			}
+			else if (c == ')') {
+				variationDepth = Math.max(variationDepth - 1, 0);
+				i++;
+			}
+			else if (Character.isWhitespace(c)) {
+				i++;
+			}
+			else {
+				int start = i;
+				while (i < line.length() && !Character.isWhitespace(line.charAt(i)) && "{};()".indexOf(line.charAt(i)) < 0) {
+					i++;
+				}
+				if (variationDepth > 0) {
+					continue;
+				}
+				String token = line.substring(start, i);
+				if (isResult(token)) {
+					return token;
+				}
+				token = withoutMoveNumber(token);
+				if (!token.isEmpty() && token.charAt(0) != '$') {
+					moves.add(token);
+				}
+			}
+		}
+		return null;
+	}
+
+	// [Name "value"], with \" and \\ escaped in the value; a malformed tag is left out, the game is still read
+	private static void parseTag(String line, Map<String, String> tags) {
+		int space = line.indexOf(' ');
+		int open = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (space < 0 || open < 0 || close <= open || space > open) {
+			return;
+		}
+		String value = line.substring(open + 1, close).replace("\\\"", "\"").replace("\\\\", "\\");
+		tags.put(line.substring(1, space), value);
+	}
+
+	private static boolean isResult(String token) {
+		return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+	}
+
+	// "12.", "12..." or "12.e4" without the number
+	private static String withoutMoveNumber(String token) {
+		int i = 0;
+		while (i < token.length() && Character.isDigit(token.charAt(i))) {
+			i++;
+		}
+		if (i == 0 || i == token.length() || token.charAt(i) != '.') {
+			return token;
+		}
+		while (i < token.length() && token.charAt(i) == '.') {
+			i++;
+		}
+		return token.substring(i);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
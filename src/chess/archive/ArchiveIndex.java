@@ -0,0 +1,132 @@
+package chess.archive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import chess.ChessMatch;
+
+// read-only index of a game archive, written by ArchiveIndexWriter: the games (ids in the order they were
+// ingested) that reached a position (by its Zobrist key, so wherever the pieces came from) and the games
+// that had some material on the board at one point (by MaterialSignature)
+// the posting lists are memory-mapped (see PostingLists): a query is a binary search on the keys file and
+// the decoding of its own list, so its time grows with the log of the archive size and the games it returns
+// safe for use by several threads; the mappings are released by the garbage collector
+public class ArchiveIndex {
+	static final String POSITIONS = "positions";
+	static final String MATERIAL = "material";
+	static final String INFO = "archive.info";
+
+	private final PostingLists positions;
+	private final PostingLists material;
+	private final int games;
+
+	private ArchiveIndex(PostingLists positions, PostingLists material, int games) {
+		this.positions = positions;
+		this.material = material;
+		this.games = games;
+	}
+
+	public static ArchiveIndex open(Path directory) throws IOException {
+		String[] info = Files.readString(directory.resolve(INFO), StandardCharsets.UTF_8).trim().split(" ");
+		if (info.length != 2 || !info[0].equals("games")) {
+			throw new IOException("Invalid archive index: " + directory);
+		}
+		return new ArchiveIndex(PostingLists.open(directory, POSITIONS), PostingLists.open(directory, MATERIAL),
+				Integer.parseInt(info[1]));
+	}
+
+	public int getGames() {
+		return games;
+	}
+
+	// distinct positions and material signatures of the archive
+	public long getPositions() {
+		return positions.size();
+	}
+
+	public long getSignatures() {
+		return material.size();
+	}
+
+	// size of the index files
+	public long getBytes() {
+		return positions.getBytes() + material.getBytes();
+	}
+
+	// ids of the games that reached the position, in increasing order
+	public int[] gamesWithPosition(long positionKey) {
+		return positions.get(positionKey);
+	}
+
+	public int[] gamesWithPosition(ChessMatch chessMatch) {
+		return positions.get(chessMatch.getPositionKey());
+	}
+
+	public int countGamesWithPosition(long positionKey) {
+		return positions.count(positionKey);
+	}
+
+	// ids of the games that had exactly this material (ex: KRPKR, White with the pawn) at one point
+	public int[] gamesWithMaterial(long signature) {
+		return material.get(signature);
+	}
+
+	public int[] gamesWithMaterial(String name) {
+		return material.get(MaterialSignature.parse(name));
+	}
+
+	// the material with either side having the pieces written first (KRPKR or KRKRP)
+	public int[] gamesWithMaterialEitherSide(String name) {
+		long signature = MaterialSignature.parse(name);
+		return union(material.get(signature), material.get(MaterialSignature.mirror(signature)));
+	}
+
+	public int countGamesWithMaterial(long signature) {
+		return material.count(signature);
+	}
+
+	// ids in both sorted lists (ex: the games that reached a position and then an endgame)
+	public static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int n = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+			if (a[i] < b[j]) {
+				i++;
+			}
+			else if (a[i] > b[j]) {
+				j++;
+			}
+			else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	// ids in either sorted list, once
+	public static int[] union(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[n++] = a[i++];
+			}
+			else if (i == a.length || b[j] < a[i]) {
+				result[n++] = b[j++];
+			}
+			else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+}
@@ -0,0 +1,123 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.Notation;
+import chess.annotation.PgnGame;
+import chess.search.MoveOrdering;
+
+// builds an ArchiveIndex while games are ingested: each game gets the next id (0, 1, 2... the order of
+// ingestion) and is replayed once, its position keys and material signatures going to the posting lists
+// memory is bounded by the buffer (24 bytes per posting buffered, with the room to sort them): the
+// postings of a large archive are sorted in runs on disk, merged by close
+// the material signature is only computed again after a capture or a promotion, the moves that change it
+public class ArchiveIndexWriter implements Closeable {
+	public static final int DEFAULT_BUFFER = 1 << 20;
+
+	private final Path directory;
+	private final PostingListWriter positions;
+	private final PostingListWriter material;
+	private int games;
+	private long plies;
+	private int rejectedMoves;
+	private boolean closed;
+
+	public ArchiveIndexWriter(Path directory) throws IOException {
+		this(directory, DEFAULT_BUFFER);
+	}
+
+	// bufferedPostings: postings of each kind held in memory before a run is written
+	public ArchiveIndexWriter(Path directory, int bufferedPostings) throws IOException {
+		if (bufferedPostings < 1) {
+			throw new IllegalArgumentException("bufferedPostings must be at least 1");
+		}
+		this.directory = Files.createDirectories(directory);
+		positions = new PostingListWriter(directory, ArchiveIndex.POSITIONS, bufferedPostings);
+		// far fewer signatures than positions per game
+		material = new PostingListWriter(directory, ArchiveIndex.MATERIAL, Math.max(bufferedPostings / 16, 1));
+	}
+
+	// id of the game; the moves after one that can't be read are left out
+	public int add(PgnGame game) throws IOException {
+		ChessMatch chessMatch = game.newMatch();
+		List<String> sans = game.getMoves();
+		int[] moves = new int[sans.size()];
+		int count = 0;
+		for (String san : sans) {
+			int move = Notation.parseSan(chessMatch, san);
+			if (move == Move.NONE) {
+				rejectedMoves++;
+				break;
+			}
+			chessMatch.doMove(move);
+			moves[count++] = move;
+		}
+		for (int i = 0; i < count; i++) {
+			chessMatch.undo();
+		}
+		return add(chessMatch, moves, count);
+	}
+
+	// id of the game played from the position of the match (which is left as it was) with the moves
+	public int add(ChessMatch chessMatch, int[] moves, int count) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("The index is closed");
+		}
+		int game = games++;
+		long signature = MaterialSignature.of(chessMatch);
+		positions.add(chessMatch.getPositionKey());
+		material.add(signature);
+		int played = 0;
+		try {
+			for (; played < count; played++) {
+				boolean tactical = MoveOrdering.isTactical(chessMatch, moves[played]);
+				chessMatch.doMove(moves[played]);
+				if (tactical) {
+					signature = MaterialSignature.of(chessMatch);
+					material.add(signature);
+				}
+				positions.add(chessMatch.getPositionKey());
+			}
+		}
+		finally {
+			plies += played;
+			for (; played > 0; played--) {
+				chessMatch.undo();
+			}
+			positions.endGame(game);
+			material.endGame(game);
+		}
+		return game;
+	}
+
+	public int getGames() {
+		return games;
+	}
+
+	public long getPlies() {
+		return plies;
+	}
+
+	public int getRejectedMoves() {
+		return rejectedMoves;
+	}
+
+	// merges the runs into the index files; the index can then be opened
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		positions.finish();
+		material.finish();
+		Files.writeString(directory.resolve(ArchiveIndex.INFO), "games " + games + "\n", StandardCharsets.UTF_8);
+	}
+}
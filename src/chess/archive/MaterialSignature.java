@@ -0,0 +1,68 @@
+package chess.archive;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.tablebase.Material;
+
+// the pieces on the board as a 64-bit number: 4 bits per color and type of piece other than the king
+// (white P N B R Q in bits 0-19, black in bits 20-39), so two positions with the same pieces, wherever
+// they stand, have the same signature
+// written as in Material, the white pieces then the black pieces (ex: KRPKR), with an optional 'v'
+// between the sides (KRPvKR)
+public final class MaterialSignature {
+	private static final String TYPE_LETTERS = "PNBRQK";
+	// canonical order of Material, king first
+	private static final int[] ORDER = { 4, 3, 2, 1, 0 };
+
+	private MaterialSignature() {
+	}
+
+	public static long of(ChessMatch chessMatch) {
+		long signature = 0;
+		for (int square = 0; square < 64; square++) {
+			ChessPiece piece = chessMatch.getPiece(square);
+			if (piece != null && piece.getTypeIndex() < 5) {
+				signature += 1L << shift(piece.getColor(), piece.getTypeIndex());
+			}
+		}
+		return signature;
+	}
+
+	public static long parse(String name) {
+		Material material = new Material(name.replace("v", "").replace("V", ""));
+		long signature = 0;
+		for (int i = 0; i < material.size(); i++) {
+			if (material.getType(i) < 5) {
+				signature += 1L << shift(material.getColor(i), material.getType(i));
+			}
+		}
+		return signature;
+	}
+
+	// the same pieces with the colors swapped (KRPKR for KRKRP)
+	public static long mirror(long signature) {
+		return (signature >>> 20) | ((signature & 0xFFFFF) << 20);
+	}
+
+	public static int count(long signature, Color color, int typeIndex) {
+		return (int)(signature >>> shift(color, typeIndex)) & 0xF;
+	}
+
+	public static String toString(long signature) {
+		StringBuilder sb = new StringBuilder();
+		for (Color color : new Color[] { Color.WHITE, Color.BLACK }) {
+			sb.append('K');
+			for (int type : ORDER) {
+				for (int i = count(signature, color, type); i > 0; i--) {
+					sb.append(TYPE_LETTERS.charAt(type));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int shift(Color color, int typeIndex) {
+		return (color == Color.WHITE ? 0 : 20) + typeIndex * 4;
+	}
+}
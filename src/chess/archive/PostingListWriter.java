@@ -0,0 +1,258 @@
+package chess.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// builds the posting lists of one kind of key (<name>.keys and <name>.postings, read by PostingLists) in
+// bounded memory: the (key, game) pairs are buffered in primitive arrays, and a full buffer is sorted and
+// written to a run file; finish merges the runs
+// the keys are kept flipped (key ^ Long.MIN_VALUE), so that their signed order is the unsigned order the
+// files are searched in; the games come in increasing order and the sort is stable, so the games of a
+// key stay sorted
+final class PostingListWriter {
+	private final Path directory;
+	private final String name;
+	private final long[] keys;
+	private final int[] games;
+	private final long[] keysAux;
+	private final int[] gamesAux;
+	private int size;
+	private final List<Path> runs = new ArrayList<>();
+	// keys of the game being added, each one is kept once
+	private long[] gameKeys = new long[256];
+	private int gameSize;
+	private long postings;
+	private long distinctKeys;
+
+	PostingListWriter(Path directory, String name, int capacity) {
+		this.directory = directory;
+		this.name = name;
+		keys = new long[capacity];
+		games = new int[capacity];
+		keysAux = new long[capacity];
+		gamesAux = new int[capacity];
+	}
+
+	void add(long key) {
+		if (gameSize == gameKeys.length) {
+			gameKeys = Arrays.copyOf(gameKeys, gameSize * 2);
+		}
+		gameKeys[gameSize++] = key ^ Long.MIN_VALUE;
+	}
+
+	void endGame(int game) throws IOException {
+		Arrays.sort(gameKeys, 0, gameSize);
+		for (int i = 0; i < gameSize; i++) {
+			if (i > 0 && gameKeys[i] == gameKeys[i - 1]) {
+				continue;
+			}
+			if (size == keys.length) {
+				writeRun();
+			}
+			keys[size] = gameKeys[i];
+			games[size] = game;
+			size++;
+			postings++;
+		}
+		gameSize = 0;
+	}
+
+	long getPostings() {
+		return postings;
+	}
+
+	long getDistinctKeys() {
+		return distinctKeys;
+	}
+
+	// the buffer sorted by key, as (flipped key, game) pairs
+	private void writeRun() throws IOException {
+		sort();
+		Path run = Files.createTempFile(directory, name, ".run");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+			for (int i = 0; i < size; i++) {
+				out.writeLong(keys[i]);
+				out.writeInt(games[i]);
+			}
+		}
+		runs.add(run);
+		size = 0;
+	}
+
+	// bottom-up merge sort of the pairs by key (stable, so the games of a key keep their order)
+	private void sort() {
+		long[] fromKeys = keys;
+		int[] fromGames = games;
+		long[] toKeys = keysAux;
+		int[] toGames = gamesAux;
+		for (int width = 1; width < size; width *= 2) {
+			for (int low = 0; low < size; low += 2 * width) {
+				int mid = Math.min(low + width, size);
+				int high = Math.min(low + 2 * width, size);
+				int i = low;
+				int j = mid;
+				for (int k = low; k < high; k++) {
+					if (i < mid && (j >= high || fromKeys[i] <= fromKeys[j])) {
+						toKeys[k] = fromKeys[i];
+						toGames[k] = fromGames[i++];
+					}
+					else {
+						toKeys[k] = fromKeys[j];
+						toGames[k] = fromGames[j++];
+					}
+				}
+			}
+			long[] keysSwap = fromKeys;
+			fromKeys = toKeys;
+			toKeys = keysSwap;
+			int[] gamesSwap = fromGames;
+			fromGames = toGames;
+			toGames = gamesSwap;
+		}
+		if (fromKeys != keys) {
+			System.arraycopy(fromKeys, 0, keys, 0, size);
+			System.arraycopy(fromGames, 0, games, 0, size);
+		}
+	}
+
+	// merges the runs into the keys file (key and offset of its list, 16 bytes per key, sorted) and the
+	// postings file (per key: number of games, first game, then the gaps between games, as varints)
+	void finish() throws IOException {
+		if (size > 0 || runs.isEmpty()) {
+			writeRun();
+		}
+		PriorityQueue<Run> queue = new PriorityQueue<>();
+		try (DataOutputStream keysOut = new DataOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(directory.resolve(name + ".keys")), 1 << 16));
+				CountingOutputStream postingsOut = new CountingOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(directory.resolve(name + ".postings")), 1 << 16))) {
+			for (Path path : runs) {
+				Run run = new Run(path);
+				if (run.next()) {
+					queue.add(run);
+				}
+				else {
+					run.close();
+				}
+			}
+			int[] list = new int[1024];
+			int count = 0;
+			long current = 0;
+			while (!queue.isEmpty()) {
+				Run run = queue.poll();
+				if (count > 0 && run.key != current) {
+					writeList(keysOut, postingsOut, current, list, count);
+					count = 0;
+				}
+				current = run.key;
+				if (count == list.length) {
+					list = Arrays.copyOf(list, count * 2);
+				}
+				list[count++] = run.game;
+				if (run.next()) {
+					queue.add(run);
+				}
+				else {
+					run.close();
+				}
+			}
+			if (count > 0) {
+				writeList(keysOut, postingsOut, current, list, count);
+			}
+		}
+		finally {
+			for (Run run : queue) {
+				run.close();
+			}
+			for (Path run : runs) {
+				Files.deleteIfExists(run);
+			}
+			runs.clear();
+		}
+	}
+
+	private void writeList(DataOutputStream keysOut, CountingOutputStream postingsOut, long flippedKey, int[] list, int count)
+			throws IOException {
+		keysOut.writeLong(flippedKey ^ Long.MIN_VALUE);
+		keysOut.writeLong(postingsOut.written);
+		writeVarint(postingsOut, count);
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			writeVarint(postingsOut, list[i] - previous);
+			previous = list[i];
+		}
+		distinctKeys++;
+	}
+
+	// 7 bits per byte, the high bit set on every byte but the last
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static final class Run implements Comparable<Run> {
+		private final DataInputStream in;
+		long key;
+		int game;
+
+		Run(Path path) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+		}
+
+		boolean next() throws IOException {
+			try {
+				key = in.readLong();
+			}
+			catch (EOFException e) {
+				return false;
+			}
+			game = in.readInt();
+			return true;
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+
+		// the runs hold increasing games: on the same key, the run with the lower game goes first
+		@Override
+		public int compareTo(Run other) {
+			int c = Long.compare(key, other.key);
+			return c != 0 ? c : Integer.compare(game, other.game);
+		}
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+		private final OutputStream out;
+		long written;
+
+		CountingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			written++;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package chess.archive;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// posting lists written by PostingListWriter, memory-mapped: a lookup is a binary search on the keys file
+// and the decoding of one list of the postings file, and only the pages it touches are read from disk
+// the files are mapped in chunks of 1 GB (a MappedByteBuffer holds at most 2 GB); keys entries never
+// cross a chunk, a list may
+final class PostingLists {
+	static final int ENTRY_SIZE = 16;
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+	private static final int[] NONE = new int[0];
+
+	private final MappedByteBuffer[] keys;
+	private final MappedByteBuffer[] postings;
+	private final long entries;
+	private final long postingsSize;
+
+	private PostingLists(MappedByteBuffer[] keys, long entries, MappedByteBuffer[] postings, long postingsSize) {
+		this.keys = keys;
+		this.entries = entries;
+		this.postings = postings;
+		this.postingsSize = postingsSize;
+	}
+
+	static PostingLists open(Path directory, String name) throws IOException {
+		Path keysFile = directory.resolve(name + ".keys");
+		Path postingsFile = directory.resolve(name + ".postings");
+		try (FileChannel keysChannel = FileChannel.open(keysFile, StandardOpenOption.READ);
+				FileChannel postingsChannel = FileChannel.open(postingsFile, StandardOpenOption.READ)) {
+			if (keysChannel.size() % ENTRY_SIZE != 0) {
+				throw new IOException("Invalid archive index file: " + keysFile);
+			}
+			return new PostingLists(map(keysChannel), keysChannel.size() / ENTRY_SIZE, map(postingsChannel), postingsChannel.size());
+		}
+	}
+
+	// the mapping stays valid once the channel is closed
+	private static MappedByteBuffer[] map(FileChannel channel) throws IOException {
+		long size = channel.size();
+		MappedByteBuffer[] chunks = new MappedByteBuffer[(int)((size + CHUNK_MASK) >>> CHUNK_BITS)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long)i << CHUNK_BITS;
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_MASK + 1, size - start));
+			chunks[i].order(ByteOrder.BIG_ENDIAN);
+		}
+		return chunks;
+	}
+
+	long size() {
+		return entries;
+	}
+
+	long getBytes() {
+		return entries * ENTRY_SIZE + postingsSize;
+	}
+
+	// games of the key, in increasing order (empty if none)
+	int[] get(long key) {
+		long entry = find(key);
+		if (entry < 0) {
+			return NONE;
+		}
+		long[] position = { offsetAt(entry) };
+		int[] games = new int[readVarint(position)];
+		int game = 0;
+		for (int i = 0; i < games.length; i++) {
+			game += readVarint(position);
+			games[i] = game;
+		}
+		return games;
+	}
+
+	// number of games of the key, without decoding them
+	int count(long key) {
+		long entry = find(key);
+		return entry < 0 ? 0 : readVarint(new long[] { offsetAt(entry) });
+	}
+
+	// index of the entry of the key, -1 if none (the keys are sorted unsigned, as in OpeningBook)
+	private long find(long key) {
+		long low = 0;
+		long high = entries;
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low < entries && keyAt(low) == key ? low : -1;
+	}
+
+	private long keyAt(long entry) {
+		long offset = entry * ENTRY_SIZE;
+		return keys[(int)(offset >>> CHUNK_BITS)].getLong((int)(offset & CHUNK_MASK));
+	}
+
+	private long offsetAt(long entry) {
+		long offset = entry * ENTRY_SIZE + 8;
+		return keys[(int)(offset >>> CHUNK_BITS)].getLong((int)(offset & CHUNK_MASK));
+	}
+
+	// varint at position[0], which is moved past it
+	private int readVarint(long[] position) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			long p = position[0]++;
+			int b = postings[(int)(p >>> CHUNK_BITS)].get((int)(p & CHUNK_MASK));
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package chess.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MoveResult;
+
+// non-blocking access to a ChessMatch: every call is queued and the match only ever runs one task at
+// a time, in the order the calls were made, so handlers on any thread can share it without locking
+// moves complete with a MoveResult, an illegal move is a REJECTED result and not a ChessException
+// the tasks run on the executor given (one shared by many matches is fine: the queue is per match),
+// or on a thread of their own that close() ends
+public class AsyncChessMatch implements AutoCloseable {
+	private final ChessMatch chessMatch;
+	private final Executor executor;
+	// executor created for this match, null when it was given
+	private final ExecutorService ownExecutor;
+	// last task queued: the next one runs when it completes, normally or not
+	private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+	public AsyncChessMatch(ChessMatch chessMatch, Executor executor) {
+		this.chessMatch = chessMatch;
+		this.executor = executor;
+		this.ownExecutor = null;
+	}
+
+	public AsyncChessMatch(ChessMatch chessMatch) {
+		this.chessMatch = chessMatch;
+		this.ownExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "chess-match");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor = ownExecutor;
+	}
+
+	// move encoded as in Move; without a promotion piece a promotion is to a queen and the result
+	// says the promotion is required (see promote)
+	public CompletableFuture<MoveResult> move(int move) {
+		return submit(m -> m.tryChessMove(move));
+	}
+
+	public CompletableFuture<MoveResult> move(ChessPosition source, ChessPosition target) {
+		return submit(m -> m.tryChessMove(source, target));
+	}
+
+	// replaces the piece of the last promotion (B, N, R or Q); completes exceptionally with
+	// IllegalStateException if the last move was not a promotion
+	public CompletableFuture<ChessPiece> promote(String type) {
+		return submit(m -> m.replacePromotedPiece(type));
+	}
+
+	// runs the task on the match once the tasks queued before it are done, ex: submit(ChessMatch::getFen)
+	// a task that throws completes its future exceptionally and the next ones still run
+	// after close, the executor of the match throws RejectedExecutionException
+	public synchronized <T> CompletableFuture<T> submit(Function<ChessMatch, T> task) {
+		CompletableFuture<T> next = tail.handleAsync((result, failure) -> task.apply(chessMatch), executor);
+		tail = next;
+		return next;
+	}
+
+	// future completed when every task queued so far is done
+	public synchronized CompletableFuture<Void> flush() {
+		return tail.handle((result, failure) -> (Void)null);
+	}
+
+	// the tasks already queued still run
+	@Override
+	public void close() {
+		if (ownExecutor != null) {
+			ownExecutor.shutdown();
+		}
+	}
+}
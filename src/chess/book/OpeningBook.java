@@ -0,0 +1,90 @@
+package chess.book;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// read-only opening book memory-mapped from a file written by OpeningBookBuilder
+// the file is a sequence of entries sorted by position key:
+// key (8 bytes) | move (2 bytes) | weight (2 bytes)
+// a probe is a binary search on the mapped buffer and does not allocate
+public class OpeningBook {
+	public static final int ENTRY_SIZE = 12;
+	public static final int MAX_MOVES_PER_POSITION = 64;
+
+	private final MappedByteBuffer buffer;
+	private final int entries;
+
+	// probe latency statistics
+	private long probeCount;
+	private long probeNanos;
+
+	private OpeningBook(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+		this.entries = buffer.capacity() / ENTRY_SIZE;
+	}
+
+	public static OpeningBook open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() % ENTRY_SIZE != 0 || channel.size() / ENTRY_SIZE > Integer.MAX_VALUE) {
+				throw new IOException("Invalid opening book file: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			return new OpeningBook(buffer);
+		}
+	}
+
+	public int size() {
+		return entries;
+	}
+
+	// fills moves (and weights, if not null) with the book moves of the position, best weighted first
+	// returns the number of moves found (0 if the position is not in the book)
+	public int probe(long key, int[] moves, int[] weights) {
+		long start = System.nanoTime();
+		// lower bound: first entry whose key is >= key
+		int low = 0;
+		int high = entries;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int count = 0;
+		for (int i = low; i < entries && count < moves.length && keyAt(i) == key; i++) {
+			int offset = i * ENTRY_SIZE;
+			moves[count] = buffer.getShort(offset + 8) & 0xFFFF;
+			if (weights != null && count < weights.length) {
+				weights[count] = buffer.getShort(offset + 10) & 0xFFFF;
+			}
+			count++;
+		}
+		probeNanos += System.nanoTime() - start;
+		probeCount++;
+		return count;
+	}
+
+	private long keyAt(int index) {
+		return buffer.getLong(index * ENTRY_SIZE);
+	}
+
+	public long getProbeCount() {
+		return probeCount;
+	}
+
+	public double getAverageProbeNanos() {
+		return probeCount == 0 ? 0.0 : (double)probeNanos / probeCount;
+	}
+
+	public void resetStatistics() {
+		probeCount = 0;
+		probeNanos = 0;
+	}
+}
@@ -0,0 +1,135 @@
+package chess.book;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import boardgame.BoardException;
+import chess.ChessMatch;
+import chess.Move;
+
+// converts a collection of games into an opening book file read by OpeningBook
+// games are text, one game per line, with the moves in coordinate notation (ex: e2e4 e7e5 g1f3 ...)
+// move numbers, results and other tokens that are not moves are ignored, lines starting with # are comments
+public class OpeningBookBuilder {
+	private final int maxPlies;
+	// (position key, move) -> number of games that played the move in the position
+	private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+	private int games;
+	private int rejectedMoves;
+
+	public OpeningBookBuilder(int maxPlies) {
+		if (maxPlies < 1) {
+			throw new IllegalArgumentException("maxPlies must be at least 1");
+		}
+		this.maxPlies = maxPlies;
+	}
+
+	public void addGames(Path gamesFile) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(gamesFile)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					addGame(line);
+				}
+			}
+		}
+	}
+
+	public void addGame(String moves) {
+		ChessMatch chessMatch = new ChessMatch();
+		int plies = 0;
+		for (String token : moves.split("\\s+")) {
+			if (plies >= maxPlies || chessMatch.getCheckMate()) {
+				break;
+			}
+			int move = Move.parse(token);
+			if (move == Move.NONE) {
+				continue;
+			}
+			long key = chessMatch.getPositionKey();
+			try {
+				chessMatch.performChessMove(move);
+			}
+			catch (BoardException e) {
+				// illegal move in the game record: keep what was read before it
+				rejectedMoves++;
+				break;
+			}
+			counts.computeIfAbsent(key, k -> new HashMap<>()).merge(move, 1, Integer::sum);
+			plies++;
+		}
+		games++;
+	}
+
+	public int getGames() {
+		return games;
+	}
+
+	public int getPositions() {
+		return counts.size();
+	}
+
+	public int getRejectedMoves() {
+		return rejectedMoves;
+	}
+
+	// writes the entries sorted by key (unsigned, as OpeningBook searches them) and by weight inside a key
+	public void write(Path bookFile) throws IOException {
+		long[] keys = new long[counts.size()];
+		int n = 0;
+		for (long key : counts.keySet()) {
+			keys[n++] = key ^ Long.MIN_VALUE; // signed order of the flipped keys is the unsigned order
+		}
+		Arrays.sort(keys);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(bookFile)))) {
+			for (long flipped : keys) {
+				long key = flipped ^ Long.MIN_VALUE;
+				Map<Integer, Integer> moves = counts.get(key);
+				Integer[] sorted = moves.keySet().toArray(new Integer[0]);
+				Arrays.sort(sorted, (a, b) -> moves.get(b) - moves.get(a));
+				for (int i = 0; i < sorted.length && i < OpeningBook.MAX_MOVES_PER_POSITION; i++) {
+					out.writeLong(key);
+					out.writeShort(sorted[i]);
+					out.writeShort(Math.min(moves.get(sorted[i]), 0xFFFF));
+				}
+			}
+		}
+	}
+
+	// usage: OpeningBookBuilder <games file> <book file> [max plies]
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: OpeningBookBuilder <games file> <book file> [max plies]");
+			return;
+		}
+		int maxPlies = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+		builder.addGames(Paths.get(args[0]));
+		builder.write(Paths.get(args[1]));
+		System.out.println("Games: " + builder.getGames() + ", positions: " + builder.getPositions()
+				+ ", rejected moves: " + builder.getRejectedMoves());
+
+		OpeningBook book = OpeningBook.open(Paths.get(args[1]));
+		ChessMatch chessMatch = new ChessMatch();
+		chessMatch.setOpeningBook(book);
+		int[] moves = chessMatch.getBookMoves();
+		System.out.print("Book moves from the initial position:");
+		for (int move : moves) {
+			System.out.print(" " + Move.toString(move));
+		}
+		System.out.println();
+		for (int i = 0; i < 100000; i++) {
+			book.probe(chessMatch.getPositionKey(), moves, null);
+		}
+		System.out.printf("Average probe latency: %.1f ns%n", book.getAverageProbeNanos());
+	}
+}
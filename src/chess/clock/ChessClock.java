@@ -0,0 +1,188 @@
+package chess.clock;
+
+import chess.Color;
+
+// clock of one match: the time left to each side, and the increment added after each of its moves
+// only the side to move runs; its timer in the wheel of the scheduler is moved at each press, in
+// constant time, and when it expires the flag of that side falls and the listener is told
+// the clock is read and pressed from any thread, under the lock of its scheduler
+public class ChessClock {
+	private final ClockScheduler scheduler;
+	private final FlagListener listener;
+	private final long incrementNanos;
+	// time left, White then Black, at the moment the running side started
+	private final long[] remaining = new long[2];
+	private final Timer timer = new Timer(this);
+	// null when stopped
+	private Color running;
+	private long startedAt;
+	private Color flagged;
+
+	ChessClock(ClockScheduler scheduler, long timeNanos, long incrementNanos, FlagListener listener) {
+		if (timeNanos <= 0 || incrementNanos < 0) {
+			throw new IllegalArgumentException("Invalid time control: " + timeNanos + " + " + incrementNanos);
+		}
+		this.scheduler = scheduler;
+		this.listener = listener;
+		this.incrementNanos = incrementNanos;
+		remaining[0] = timeNanos;
+		remaining[1] = timeNanos;
+	}
+
+	// the side has moved: if it was running it gets the increment, then its opponent runs
+	// the first press starts the clock (the time of the first move is not counted)
+	// returns false if the time of the side was already over: its flag falls and the clock stops
+	// (the scheduler may not have told it yet), and false with nothing done once a flag has fallen
+	public boolean press(Color color) {
+		boolean timeOver;
+		synchronized (scheduler) {
+			if (flagged != null) {
+				return false;
+			}
+			if (running != null && running != color) {
+				throw new IllegalStateException("The clock of " + running + " is running, not the one of " + color);
+			}
+			long now = scheduler.now();
+			timeOver = running != null && !consume(now);
+			if (timeOver) {
+				flag();
+			}
+			else {
+				if (running != null) {
+					remaining[index(color)] += incrementNanos;
+				}
+				running = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+				startedAt = now;
+				scheduler.schedule(timer, now + remaining[index(running)]);
+			}
+		}
+		if (timeOver) {
+			notifyFlag();
+		}
+		return !timeOver;
+	}
+
+	// the game is over: the time of the running side is counted and nothing runs any more
+	// returns false if that time was already over: its flag falls, as with press
+	public boolean stop() {
+		boolean timeOver = false;
+		synchronized (scheduler) {
+			if (flagged != null) {
+				return false;
+			}
+			if (running != null) {
+				timeOver = !consume(scheduler.now());
+				if (timeOver) {
+					flag();
+				}
+				else {
+					running = null;
+					scheduler.cancel(timer);
+				}
+			}
+		}
+		if (timeOver) {
+			notifyFlag();
+		}
+		return !timeOver;
+	}
+
+	// the side to move changed without a move being played (a move taken back or played again): the
+	// time of the running side is counted, then the side runs, with no increment for anyone
+	// nothing changes once a flag has fallen
+	public void switchTo(Color color) {
+		boolean timeOver = false;
+		synchronized (scheduler) {
+			if (flagged != null) {
+				return;
+			}
+			long now = scheduler.now();
+			timeOver = running != null && !consume(now);
+			if (timeOver) {
+				flag();
+			}
+			else {
+				running = color;
+				startedAt = now;
+				scheduler.schedule(timer, now + remaining[index(running)]);
+			}
+		}
+		if (timeOver) {
+			notifyFlag();
+		}
+	}
+
+	// time left to the side, counting the time the side to move has been thinking
+	public long getRemaining(Color color) {
+		synchronized (scheduler) {
+			long time = remaining[index(color)];
+			if (running == color) {
+				time -= scheduler.now() - startedAt;
+			}
+			return Math.max(time, 0);
+		}
+	}
+
+	public long getIncrement() {
+		return incrementNanos;
+	}
+
+	public Color getRunning() {
+		synchronized (scheduler) {
+			return running;
+		}
+	}
+
+	// side whose time ran out, null if none
+	public Color getFlagged() {
+		synchronized (scheduler) {
+			return flagged;
+		}
+	}
+
+	public boolean isFlagged() {
+		return getFlagged() != null;
+	}
+
+	// the timer of the running side expired (called by the scheduler with its lock held)
+	// returns whether the flag fell; it is moved instead if the clock had time left
+	boolean expire(long now) {
+		if (running == null) {
+			return false;
+		}
+		if (consume(now)) {
+			scheduler.schedule(timer, now + remaining[index(running)]);
+			return false;
+		}
+		flag();
+		return true;
+	}
+
+	void notifyFlag() {
+		if (listener != null) {
+			listener.flagFall(this, flagged);
+		}
+	}
+
+	// counts the time of the running side up to now; returns whether it has time left
+	private boolean consume(long now) {
+		int i = index(running);
+		remaining[i] -= now - startedAt;
+		startedAt = now;
+		if (remaining[i] <= 0) {
+			remaining[i] = 0;
+			return false;
+		}
+		return true;
+	}
+
+	private void flag() {
+		flagged = running;
+		running = null;
+		scheduler.cancel(timer);
+	}
+
+	private static int index(Color color) {
+		return color == Color.WHITE ? 0 : 1;
+	}
+}
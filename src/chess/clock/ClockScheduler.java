@@ -0,0 +1,136 @@
+package chess.clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// runs the clocks of many matches from one thread: the running side of each clock has a timer in a
+// hierarchical timing wheel for the tick its time is over, and the thread only looks at the timers due
+// at each tick, so the cost of a tick doesn't grow with the number of clocks
+// the flags are raised at the first tick at or after the moment the time is over, never before it
+// with a ManualTimeSource, advance() is called after moving the time instead of starting the thread
+public class ClockScheduler implements AutoCloseable {
+	private final TimeSource timeSource;
+	private final long tickNanos;
+	// time of tick 0
+	private final long origin;
+	private final TimingWheel wheel;
+	private final List<Timer> expired = new ArrayList<>();
+	private Thread thread;
+	private volatile boolean running;
+	private long flags;
+
+	public ClockScheduler() {
+		this(TimeSource.SYSTEM, 1_000_000L);
+	}
+
+	public ClockScheduler(TimeSource timeSource, long tickNanos) {
+		if (tickNanos <= 0) {
+			throw new IllegalArgumentException("The tick must be positive: " + tickNanos);
+		}
+		this.timeSource = timeSource;
+		this.tickNanos = tickNanos;
+		this.origin = timeSource.nanoTime();
+		this.wheel = new TimingWheel(0);
+	}
+
+	// clock with the same time for both sides, not running (see ChessClock.press)
+	public ChessClock newClock(long timeNanos, long incrementNanos, FlagListener listener) {
+		return new ChessClock(this, timeNanos, incrementNanos, listener);
+	}
+
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	// clocks running, that is with a timer in the wheel
+	public synchronized int getRunningClocks() {
+		return wheel.size();
+	}
+
+	// flags raised since the scheduler was created
+	public synchronized long getFlags() {
+		return flags;
+	}
+
+	// starts the thread that advances the wheel at every tick
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, "chess-clocks");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void close() {
+		Thread t;
+		synchronized (this) {
+			t = thread;
+			thread = null;
+			running = false;
+		}
+		if (t != null) {
+			LockSupport.unpark(t);
+			try {
+				t.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// processes the ticks up to now: the clocks whose time is over are flagged, then their listeners told
+	// returns the number of flags raised
+	public int advance() {
+		List<ChessClock> flagged;
+		synchronized (this) {
+			long now = timeSource.nanoTime();
+			if (wheel.advance(tick(now), expired) == 0) {
+				return 0;
+			}
+			flagged = new ArrayList<>(expired.size());
+			for (Timer timer : expired) {
+				if (timer.clock.expire(now)) {
+					flagged.add(timer.clock);
+				}
+			}
+			expired.clear();
+			flags += flagged.size();
+		}
+		for (ChessClock clock : flagged) {
+			clock.notifyFlag();
+		}
+		return flagged.size();
+	}
+
+	private void run() {
+		while (running) {
+			advance();
+			long now = timeSource.nanoTime();
+			LockSupport.parkNanos(origin + (tick(now) + 1) * tickNanos - now);
+		}
+	}
+
+	long now() {
+		return timeSource.nanoTime();
+	}
+
+	// called by the clocks with the lock of the scheduler held
+	void schedule(Timer timer, long time) {
+		// first tick at or after the time
+		wheel.schedule(timer, Math.floorDiv(time - origin + tickNanos - 1, tickNanos));
+	}
+
+	void cancel(Timer timer) {
+		wheel.cancel(timer);
+	}
+
+	// tick the wheel is at once the time has come
+	private long tick(long time) {
+		return Math.floorDiv(time - origin, tickNanos);
+	}
+}
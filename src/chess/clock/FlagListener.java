@@ -0,0 +1,9 @@
+package chess.clock;
+
+import chess.Color;
+
+// told when the time of a side runs out (see ChessClock)
+@FunctionalInterface
+public interface FlagListener {
+	void flagFall(ChessClock clock, Color color);
+}
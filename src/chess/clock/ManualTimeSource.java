@@ -0,0 +1,33 @@
+package chess.clock;
+
+// simulated time: it only moves when told to, so a scheduler driven by advance() on it is deterministic
+public class ManualTimeSource implements TimeSource {
+	private volatile long now;
+
+	public ManualTimeSource() {
+		this(0);
+	}
+
+	public ManualTimeSource(long start) {
+		now = start;
+	}
+
+	@Override
+	public long nanoTime() {
+		return now;
+	}
+
+	public synchronized void advance(long nanos) {
+		if (nanos < 0) {
+			throw new IllegalArgumentException("Time can't go back: " + nanos);
+		}
+		now += nanos;
+	}
+
+	public synchronized void set(long nanoTime) {
+		if (nanoTime < now) {
+			throw new IllegalArgumentException("Time can't go back: " + nanoTime + " < " + now);
+		}
+		now = nanoTime;
+	}
+}
@@ -0,0 +1,9 @@
+package chess.clock;
+
+// time read by the clocks, in nanoseconds from an arbitrary origin
+// SYSTEM for real games; a ManualTimeSource lets simulations and checks decide when time passes
+public interface TimeSource {
+	TimeSource SYSTEM = System::nanoTime;
+
+	long nanoTime();
+}
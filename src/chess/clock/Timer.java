@@ -0,0 +1,22 @@
+package chess.clock;
+
+// entry of a clock in the TimingWheel: a node of the doubly linked list of its slot, so that it is
+// taken out in constant time when the clock is pressed
+final class Timer {
+	final ChessClock clock;
+	// tick at which the time of the running side is over
+	long deadline;
+	Timer prev;
+	Timer next;
+	// -1 when not in the wheel
+	int level = -1;
+	int slot;
+
+	Timer(ChessClock clock) {
+		this.clock = clock;
+	}
+
+	boolean isScheduled() {
+		return level >= 0;
+	}
+}
@@ -0,0 +1,130 @@
+package chess.clock;
+
+import java.util.List;
+
+// hierarchical timing wheel (Varghese and Lauck): LEVELS wheels of 64 slots, a slot of level n spanning
+// 64^n ticks, so that 6 levels cover 64^6 ticks (over two years of 1 ms ticks)
+// a timer goes in the level of the highest 6 bits in which its deadline differs from the current tick;
+// when the current tick enters a slot of a higher level, its timers are placed again, one level lower
+// (cascade), until they reach level 0 where the slot is their deadline
+// scheduling and cancelling take constant time, and so does each tick apart from the timers it moves
+// not thread safe: ClockScheduler uses it under its lock
+final class TimingWheel {
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 6;
+	// furthest deadline a timer can be placed for; farther ones are placed there and placed again on the cascade
+	private static final long RANGE = (1L << (BITS * LEVELS)) - 1;
+
+	private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+	// last tick processed: timers due at it or before have expired
+	private long currentTick;
+	private int size;
+
+	TimingWheel(long tick) {
+		currentTick = tick;
+	}
+
+	long getCurrentTick() {
+		return currentTick;
+	}
+
+	int size() {
+		return size;
+	}
+
+	// a deadline already passed expires on the next tick
+	void schedule(Timer timer, long deadline) {
+		if (timer.isScheduled()) {
+			cancel(timer);
+		}
+		timer.deadline = Math.max(deadline, currentTick + 1);
+		place(timer);
+		size++;
+	}
+
+	void cancel(Timer timer) {
+		if (!timer.isScheduled()) {
+			return;
+		}
+		unlink(timer);
+		size--;
+	}
+
+	// processes the ticks up to tick, adding the timers that expired to expired; returns their number
+	int advance(long tick, List<Timer> expired) {
+		int count = 0;
+		if (size == 0 && tick > currentTick) {
+			// nothing to cascade or expire on the way
+			currentTick = tick;
+			return 0;
+		}
+		while (currentTick < tick) {
+			long t = ++currentTick;
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((t & ((1L << (BITS * level)) - 1)) == 0) {
+					cascade(level, (int)(t >>> (BITS * level)) & MASK);
+				}
+			}
+			int slot = (int)t & MASK;
+			Timer timer = slots[0][slot];
+			while (timer != null) {
+				Timer next = timer.next;
+				unlink(timer);
+				size--;
+				expired.add(timer);
+				count++;
+				timer = next;
+			}
+			if (size == 0) {
+				currentTick = tick;
+			}
+		}
+		return count;
+	}
+
+	private void cascade(int level, int slot) {
+		Timer timer = slots[level][slot];
+		slots[level][slot] = null;
+		while (timer != null) {
+			Timer next = timer.next;
+			timer.prev = null;
+			timer.next = null;
+			place(timer);
+			timer = next;
+		}
+	}
+
+	// on a cascade, a timer due at the current tick goes in its level 0 slot, which expires right after
+	private void place(Timer timer) {
+		long deadline = Math.min(timer.deadline, currentTick + RANGE);
+		long diff = deadline ^ currentTick;
+		int level = diff == 0 ? 0 : Math.min((63 - Long.numberOfLeadingZeros(diff)) / BITS, LEVELS - 1);
+		int slot = (int)(deadline >>> (BITS * level)) & MASK;
+		Timer head = slots[level][slot];
+		timer.prev = null;
+		timer.next = head;
+		if (head != null) {
+			head.prev = timer;
+		}
+		slots[level][slot] = timer;
+		timer.level = level;
+		timer.slot = slot;
+	}
+
+	private void unlink(Timer timer) {
+		if (timer.prev != null) {
+			timer.prev.next = timer.next;
+		}
+		else {
+			slots[timer.level][timer.slot] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.prev = timer.prev;
+		}
+		timer.prev = null;
+		timer.next = null;
+		timer.level = -1;
+	}
+}
@@ -0,0 +1,356 @@
+package chess.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.ChessMatch;
+import chess.ParkedMatch;
+import chess.search.Search;
+
+// spreads analysis over worker processes (AnalysisWorker), each with its own heap and GC, on this machine
+// or others: the workers connect to the port of the coordinator and talk the binary Protocol
+// a batch is split in one deque of tasks per worker; a worker takes the tasks of its deque from the front,
+// and once it is empty steals from the back of the fullest one, so that the workers given the long
+// searches are helped by the others; a task whose worker dies is given to the workers left
+// a batch is analysed by one caller at a time
+public class AnalysisCoordinator implements AutoCloseable {
+	private static final int ACCEPT_TIMEOUT_MILLIS = 30_000;
+
+	private final ServerSocket serverSocket;
+	private final List<Connection> workers = new ArrayList<>();
+	private final List<Process> processes = new ArrayList<>();
+	private ExecutorService executor;
+	private final AtomicLong steals = new AtomicLong();
+	private final AtomicLong lostWorkers = new AtomicLong();
+
+	// listens on the address and port (0 for any free port)
+	public AnalysisCoordinator(InetAddress bindAddress, int port) throws IOException {
+		serverSocket = new ServerSocket(port, 50, bindAddress);
+	}
+
+	// coordinator on the loopback address with that many workers started as child processes of this JVM
+	public static AnalysisCoordinator startLocal(int workers, List<String> jvmOptions) throws IOException {
+		AnalysisCoordinator coordinator = new AnalysisCoordinator(InetAddress.getLoopbackAddress(), 0);
+		try {
+			coordinator.launchWorkers(workers, jvmOptions);
+			coordinator.awaitWorkers(workers);
+		}
+		catch (IOException | RuntimeException e) {
+			coordinator.close();
+			throw e;
+		}
+		return coordinator;
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	// starts workers with the java and class path of this JVM, connecting back to this coordinator
+	public synchronized void launchWorkers(int count, List<String> jvmOptions) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (int i = 0; i < count; i++) {
+			List<String> command = new ArrayList<>();
+			command.add(java);
+			command.addAll(jvmOptions);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(AnalysisWorker.class.getName());
+			command.add(Integer.toString(getPort()));
+			command.add(serverSocket.getInetAddress().getHostAddress());
+			processes.add(new ProcessBuilder(command)
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start());
+		}
+	}
+
+	// waits for that many more workers to connect (started by launchWorkers or by hand on other hosts)
+	public synchronized void awaitWorkers(int count) throws IOException {
+		serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+		for (int i = 0; i < count; i++) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (SocketTimeoutException e) {
+				throw new IOException("Only " + i + " of " + count + " workers connected", e);
+			}
+			socket.setTcpNoDelay(true);
+			Connection connection = new Connection(socket);
+			Protocol.expect(connection.in.readUnsignedByte(), Protocol.HELLO);
+			connection.pid = connection.in.readLong();
+			workers.add(connection);
+		}
+		if (executor != null) {
+			executor.shutdown();
+		}
+		executor = Executors.newFixedThreadPool(workers.size(), r -> {
+			Thread thread = new Thread(r, "analysis-coordinator");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// workers connected and still alive
+	public synchronized int getWorkerCount() {
+		return (int)workers.stream().filter(w -> w.alive).count();
+	}
+
+	// tasks taken from the deque of another worker, since the coordinator started
+	public long getSteals() {
+		return steals.get();
+	}
+
+	// workers whose connection failed during a task, since the coordinator started
+	public long getLostWorkers() {
+		return lostWorkers.get();
+	}
+
+	// best move of each position (FEN) at the depth, in the order of the positions
+	public synchronized List<Search.Result> analyse(List<String> fens, int depth) throws IOException {
+		Task[] tasks = new Task[fens.size()];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new Task(i, new ChessMatch(fens.get(i)).park(), depth);
+		}
+		Search.Result[] results = run(tasks);
+		List<Search.Result> list = new ArrayList<>(results.length);
+		for (Search.Result result : results) {
+			list.add(result);
+		}
+		return list;
+	}
+
+	// best move of the position at the depth (2 or more), each root move searched by a worker to depth - 1
+	// the subtrees are searched without the bounds of one another, so this takes more nodes than one
+	// search, in exchange for being spread; the score is the one a single search gives
+	public synchronized Search.Result analyseRoot(String fen, int depth) throws IOException {
+		if (depth < 2) {
+			throw new IllegalArgumentException("The root is split from depth 2: " + depth);
+		}
+		long start = System.nanoTime();
+		ChessMatch chessMatch = new ChessMatch(fen);
+		int[] moves = chessMatch.getLegalMoves();
+		if (moves.length == 0) {
+			return AnalysisWorker.analyse(new Search(), chessMatch, depth);
+		}
+		Task[] tasks = new Task[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			chessMatch.doMove(moves[i]);
+			tasks[i] = new Task(i, chessMatch.park(), depth - 1);
+			chessMatch.undo();
+		}
+		Search.Result[] results = run(tasks);
+		int best = 0;
+		long nodes = 0;
+		for (int i = 0; i < moves.length; i++) {
+			nodes += results[i].getNodes();
+			if (rootScore(results[i]) > rootScore(results[best])) {
+				best = i;
+			}
+		}
+		int[] line = results[best].getPv();
+		int[] pv = new int[line.length + 1];
+		pv[0] = moves[best];
+		System.arraycopy(line, 0, pv, 1, line.length);
+		return new Search.Result(moves[best], rootScore(results[best]), depth, nodes, System.nanoTime() - start, pv);
+	}
+
+	// score of the side to move at the root from the score of the reply; a mate is one ply further away
+	private static int rootScore(Search.Result reply) {
+		int score = -reply.getScore();
+		if (score >= Search.MATE_BOUND) {
+			return score - 1;
+		}
+		if (score <= -Search.MATE_BOUND) {
+			return score + 1;
+		}
+		return score;
+	}
+
+	// tasks in contiguous blocks, one deque per worker alive; batches are repeated while tasks are left
+	// (the ones of a worker that died after the others had finished)
+	private Search.Result[] run(Task[] tasks) throws IOException {
+		Search.Result[] results = new Search.Result[tasks.length];
+		List<Task> left = List.of(tasks);
+		while (!left.isEmpty()) {
+			List<Connection> alive = new ArrayList<>();
+			for (Connection worker : workers) {
+				if (worker.alive) {
+					alive.add(worker);
+				}
+			}
+			if (alive.isEmpty()) {
+				throw new IOException("No worker left, " + left.size() + " tasks not analysed");
+			}
+			List<Deque<Task>> deques = new ArrayList<>();
+			for (int w = 0; w < alive.size(); w++) {
+				Deque<Task> deque = new ConcurrentLinkedDeque<>();
+				int from = left.size() * w / alive.size();
+				int to = left.size() * (w + 1) / alive.size();
+				deque.addAll(left.subList(from, to));
+				deques.add(deque);
+			}
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < alive.size(); w++) {
+				Connection worker = alive.get(w);
+				int own = w;
+				futures.add(executor.submit(() -> serve(worker, deques, own, results)));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted", e);
+				}
+				catch (ExecutionException e) {
+					throw new IOException("Analysis failed", e.getCause());
+				}
+			}
+			List<Task> missing = new ArrayList<>();
+			for (Task task : tasks) {
+				if (results[task.id] == null) {
+					missing.add(task);
+				}
+			}
+			left = missing;
+		}
+		return results;
+	}
+
+	// runs the tasks of its deque on the worker, then the ones it can steal
+	private void serve(Connection worker, List<Deque<Task>> deques, int own, Search.Result[] results) {
+		while (true) {
+			Task task = deques.get(own).pollFirst();
+			if (task == null) {
+				task = steal(deques, own);
+				if (task == null) {
+					return;
+				}
+			}
+			try {
+				Protocol.writeTask(worker.out, task.id, task.depth, task.position);
+				worker.out.flush();
+				Protocol.expect(worker.in.readUnsignedByte(), Protocol.RESULT);
+				if (worker.in.readInt() != task.id) {
+					throw new IOException("Result of another task");
+				}
+				results[task.id] = Protocol.readResult(worker.in);
+			}
+			catch (IOException e) {
+				// the worker is lost: its task goes back where the others look for work
+				worker.alive = false;
+				deques.get(own).addFirst(task);
+				lostWorkers.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	// last task of the fullest other deque
+	private Task steal(List<Deque<Task>> deques, int own) {
+		while (true) {
+			Deque<Task> fullest = null;
+			int size = 0;
+			for (int w = 0; w < deques.size(); w++) {
+				int s = deques.get(w).size();
+				if (w != own && s > size) {
+					fullest = deques.get(w);
+					size = s;
+				}
+			}
+			if (fullest == null) {
+				return null;
+			}
+			Task task = fullest.pollLast();
+			if (task != null) {
+				steals.incrementAndGet();
+				return task;
+			}
+			// emptied meanwhile, look again
+		}
+	}
+
+	// tells the workers to quit and waits for the processes started here
+	@Override
+	public synchronized void close() {
+		for (Connection worker : workers) {
+			try {
+				if (worker.alive) {
+					worker.out.writeByte(Protocol.QUIT);
+					worker.out.flush();
+				}
+				worker.socket.close();
+			}
+			catch (IOException e) {
+				// already gone
+			}
+		}
+		for (Process process : processes) {
+			try {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			}
+			catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		try {
+			serverSocket.close();
+		}
+		catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	private static final class Task {
+		final int id;
+		final ParkedMatch position;
+		final int depth;
+
+		Task(int id, ParkedMatch position, int depth) {
+			this.id = id;
+			this.position = position;
+			this.depth = depth;
+		}
+	}
+
+	private static final class Connection {
+		final Socket socket;
+		final DataInputStream in;
+		final DataOutputStream out;
+		long pid;
+		volatile boolean alive = true;
+
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+	}
+}
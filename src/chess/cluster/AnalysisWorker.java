@@ -0,0 +1,71 @@
+package chess.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.ParkedMatch;
+import chess.search.Search;
+
+// process analysing positions for an AnalysisCoordinator: it connects to the coordinator, then searches
+// every position it is sent to the depth asked and sends the result back, until told to quit
+// usage: java chess.cluster.AnalysisWorker <port> [host]  (the host is localhost by default)
+public class AnalysisWorker {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: AnalysisWorker <port> [host]");
+			System.exit(2);
+		}
+		int port = Integer.parseInt(args[0]);
+		String host = args.length > 1 ? args[1] : "localhost";
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+					new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+		}
+	}
+
+	private static void serve(DataInputStream in, DataOutputStream out) throws IOException {
+		out.writeByte(Protocol.HELLO);
+		out.writeLong(ProcessHandle.current().pid());
+		out.flush();
+		// one search for all the tasks, its move ordering cleared before each one: a result doesn't depend on
+		// the tasks the worker had before, nor on which worker had the task
+		Search search = new Search();
+		while (true) {
+			int type;
+			try {
+				type = in.readUnsignedByte();
+			}
+			catch (EOFException e) {
+				// the coordinator is gone
+				return;
+			}
+			if (type == Protocol.QUIT) {
+				return;
+			}
+			Protocol.expect(type, Protocol.TASK);
+			int id = in.readInt();
+			int depth = in.readUnsignedByte();
+			ChessMatch chessMatch = ParkedMatch.read(in).unpark();
+			search.getMoveOrdering().clear();
+			Protocol.writeResult(out, id, analyse(search, chessMatch, depth));
+			out.flush();
+		}
+	}
+
+	// a side without legal moves is mated or stalemated: the search has no move to score then
+	static Search.Result analyse(Search search, ChessMatch chessMatch, int depth) {
+		if (chessMatch.getLegalMoves().length == 0) {
+			return new Search.Result(Move.NONE, chessMatch.getCheck() ? -Search.MATE : 0, depth, 1, 0, new int[0]);
+		}
+		return search.search(chessMatch, depth, 0, 0);
+	}
+}
@@ -0,0 +1,67 @@
+package chess.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import chess.ParkedMatch;
+import chess.search.Search;
+
+// binary messages between the AnalysisCoordinator and its workers, each a type byte then its fields
+// HELLO   worker -> coordinator: pid (long)
+// TASK    coordinator -> worker: task id (int), depth (byte), position (ParkedMatch, 36 bytes)
+// RESULT  worker -> coordinator: task id (int), move (short), score (int), depth (byte), nodes (long),
+//         nanos (long), length of the principal variation (byte) then its moves (short)
+// QUIT    coordinator -> worker: no field, the worker exits
+// a task is 42 bytes and a result about 30 plus 2 per move of the line; moves fit in a short (see Move)
+final class Protocol {
+	static final byte HELLO = 1;
+	static final byte TASK = 2;
+	static final byte RESULT = 3;
+	static final byte QUIT = 4;
+
+	private Protocol() {
+	}
+
+	static void writeTask(DataOutput out, int id, int depth, ParkedMatch position) throws IOException {
+		out.writeByte(TASK);
+		out.writeInt(id);
+		out.writeByte(depth);
+		position.write(out);
+	}
+
+	static void writeResult(DataOutput out, int id, Search.Result result) throws IOException {
+		out.writeByte(RESULT);
+		out.writeInt(id);
+		out.writeShort(result.getMove());
+		out.writeInt(result.getScore());
+		out.writeByte(result.getDepth());
+		out.writeLong(result.getNodes());
+		out.writeLong(result.getNanos());
+		int[] pv = result.getPv();
+		out.writeByte(pv.length);
+		for (int move : pv) {
+			out.writeShort(move);
+		}
+	}
+
+	// the type byte already read
+	static Search.Result readResult(DataInput in) throws IOException {
+		int move = in.readUnsignedShort();
+		int score = in.readInt();
+		int depth = in.readUnsignedByte();
+		long nodes = in.readLong();
+		long nanos = in.readLong();
+		int[] pv = new int[in.readUnsignedByte()];
+		for (int i = 0; i < pv.length; i++) {
+			pv[i] = in.readUnsignedShort();
+		}
+		return new Search.Result(move, score, depth, nodes, nanos, pv);
+	}
+
+	static void expect(int type, int expected) throws IOException {
+		if (type != expected) {
+			throw new IOException("Unexpected message " + type + ", expected " + expected);
+		}
+	}
+}
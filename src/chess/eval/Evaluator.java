@@ -0,0 +1,34 @@
+package chess.eval;
+
+import chess.ChessMatch;
+import chess.Color;
+
+// static evaluation used by the analysis tools: the incremental piece-square score of the match
+// plus the pawn structure, cached by pawn key
+// not thread safe: each thread analysing positions needs its own evaluator
+public class Evaluator {
+	private final PawnHashTable pawnHashTable;
+
+	public Evaluator() {
+		this(1 << 14);
+	}
+
+	public Evaluator(int pawnHashEntries) {
+		pawnHashTable = new PawnHashTable(pawnHashEntries);
+	}
+
+	// centipawns, positive when White is better
+	public int evaluate(ChessMatch chessMatch) {
+		return chessMatch.getEvaluation() + pawnHashTable.probe(chessMatch);
+	}
+
+	// centipawns for the side to move
+	public int evaluateForSideToMove(ChessMatch chessMatch) {
+		int score = evaluate(chessMatch);
+		return chessMatch.getCurrentPlayer() == Color.WHITE ? score : -score;
+	}
+
+	public PawnHashTable getPawnHashTable() {
+		return pawnHashTable;
+	}
+}
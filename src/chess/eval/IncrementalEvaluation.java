@@ -0,0 +1,61 @@
+package chess.eval;
+
+import chess.ChessPiece;
+import chess.Color;
+
+// material and piece-square score of a position, kept up to date by ChessMatch
+// every time a piece is placed on or removed from the board, so reading it costs nothing
+// scores are in centipawns from White's point of view
+public class IncrementalEvaluation {
+	private int mg;
+	private int eg;
+	private int phase;
+
+	public IncrementalEvaluation() {
+	}
+
+	// copy of the score of another position
+	public IncrementalEvaluation(IncrementalEvaluation other) {
+		mg = other.mg;
+		eg = other.eg;
+		phase = other.phase;
+	}
+
+	public void add(ChessPiece piece, int square) {
+		int type = piece.getTypeIndex();
+		mg += PieceSquareTables.mg(piece.getColor(), type, square);
+		eg += PieceSquareTables.eg(piece.getColor(), type, square);
+		phase += PieceSquareTables.PHASE[type];
+	}
+
+	public void remove(ChessPiece piece, int square) {
+		int type = piece.getTypeIndex();
+		mg -= PieceSquareTables.mg(piece.getColor(), type, square);
+		eg -= PieceSquareTables.eg(piece.getColor(), type, square);
+		phase -= PieceSquareTables.PHASE[type];
+	}
+
+	public int getMiddlegame() {
+		return mg;
+	}
+
+	public int getEndgame() {
+		return eg;
+	}
+
+	// 24 with all the pieces on the board, 0 with only kings and pawns (promotions can take it above 24)
+	public int getPhase() {
+		return phase;
+	}
+
+	// middlegame and endgame scores blended by the game phase
+	public int score() {
+		int mgPhase = Math.min(phase, PieceSquareTables.MAX_PHASE);
+		return (mg * mgPhase + eg * (PieceSquareTables.MAX_PHASE - mgPhase)) / PieceSquareTables.MAX_PHASE;
+	}
+
+	// score from the point of view of the given side
+	public int score(Color color) {
+		return color == Color.WHITE ? score() : -score();
+	}
+}
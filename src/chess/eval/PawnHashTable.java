@@ -0,0 +1,106 @@
+package chess.eval;
+
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+
+// fixed-size cache of the pawn structure terms, indexed by the pawn key of ChessMatch
+// the pawns change in few moves, so most probes find the terms already computed
+public class PawnHashTable {
+	private final long[] keys;
+	private final boolean[] filled;
+	// PawnStructure.SIZE values per entry
+	private final int[] values;
+	private final int mask;
+	private final int[] work = new int[PawnStructure.SIZE];
+
+	private long hits;
+	private long misses;
+
+	// size in entries, rounded down to a power of two
+	public PawnHashTable(int entries) {
+		if (entries < 1) {
+			throw new IllegalArgumentException("The pawn hash table needs at least 1 entry");
+		}
+		int size = Integer.highestOneBit(entries);
+		keys = new long[size];
+		filled = new boolean[size];
+		values = new int[size * PawnStructure.SIZE];
+		mask = size - 1;
+	}
+
+	// tapered pawn structure score of the match in centipawns, positive when White is better
+	public int probe(ChessMatch chessMatch) {
+		long key = chessMatch.getPawnKey();
+		int index = (int)(key ^ (key >>> 32)) & mask;
+		int offset = index * PawnStructure.SIZE;
+		if (filled[index] && keys[index] == key) {
+			hits++;
+		}
+		else {
+			misses++;
+			analyse(chessMatch.getPieces(), work);
+			System.arraycopy(work, 0, values, offset, PawnStructure.SIZE);
+			keys[index] = key;
+			filled[index] = true;
+		}
+		int mg = values[offset + PawnStructure.MG] 
+				+ shield(chessMatch, Color.WHITE, offset) + shield(chessMatch, Color.BLACK, offset);
+		int eg = values[offset + PawnStructure.EG];
+		int phase = Math.min(chessMatch.getIncrementalEvaluation().getPhase(), PieceSquareTables.MAX_PHASE);
+		return (mg * phase + eg * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+	}
+
+	// the shield only counts while the king is on its first two rows
+	private int shield(ChessMatch chessMatch, Color color, int offset) {
+		int square = chessMatch.getKingSquare(color);
+		int row = Move.row(square);
+		boolean home = (color == Color.WHITE) ? row >= 6 : row <= 1;
+		if (!home) {
+			return 0;
+		}
+		return values[offset + PawnStructure.SHIELD + (color == Color.WHITE ? 0 : 8) + Move.column(square)];
+	}
+
+	// full analysis from the board, what a miss costs
+	public static void analyse(ChessPiece[][] pieces, int[] out) {
+		long white = 0;
+		long black = 0;
+		for (int i = 0; i < pieces.length; i++) {
+			for (int j = 0; j < pieces[i].length; j++) {
+				ChessPiece p = pieces[i][j];
+				if (p != null && p.getTypeIndex() == 0) {
+					if (p.getColor() == Color.WHITE) {
+						white |= 1L << (i * 8 + j);
+					}
+					else {
+						black |= 1L << (i * 8 + j);
+					}
+				}
+			}
+		}
+		PawnStructure.analyse(white, black, out);
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public double getHitRate() {
+		long probes = hits + misses;
+		return probes == 0 ? 0.0 : (double)hits / probes;
+	}
+
+	public void clear() {
+		Arrays.fill(filled, false);
+		hits = 0;
+		misses = 0;
+	}
+}
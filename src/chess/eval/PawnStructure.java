@@ -0,0 +1,110 @@
+package chess.eval;
+
+// pawn structure terms (passed, doubled and isolated pawns, king pawn shields) computed from the pawns only
+// pawns are given as 64-bit sets with bit (row * 8 + column) set for each pawn, as in Move
+// scores are in centipawns from White's point of view
+public final class PawnStructure {
+	// bonus of a passed pawn by the number of rows it has advanced
+	private static final int[] PASSED_MG = { 0, 5, 10, 15, 25, 40, 60, 0 };
+	private static final int[] PASSED_EG = { 0, 10, 20, 35, 60, 100, 150, 0 };
+	private static final int DOUBLED_MG = -10;
+	private static final int DOUBLED_EG = -20;
+	private static final int ISOLATED_MG = -10;
+	private static final int ISOLATED_EG = -15;
+	// shield pawn one or two rows in front of the king, or no pawn at all on the file
+	private static final int SHIELD_NEAR = 12;
+	private static final int SHIELD_FAR = 6;
+	private static final int SHIELD_OPEN = -10;
+
+	// index of the values written by analyse
+	public static final int MG = 0;
+	public static final int EG = 1;
+	// middlegame shield of White (then Black) for the king on each column
+	public static final int SHIELD = 2;
+	public static final int SIZE = SHIELD + 16;
+
+	private PawnStructure() {
+	}
+
+	public static void analyse(long whitePawns, long blackPawns, int[] out) {
+		int mg = 0;
+		int eg = 0;
+		for (int color = 0; color < 2; color++) {
+			long own = (color == 0) ? whitePawns : blackPawns;
+			long enemy = (color == 0) ? blackPawns : whitePawns;
+			int sign = (color == 0) ? 1 : -1;
+			int sideMg = 0;
+			int sideEg = 0;
+			for (int column = 0; column < 8; column++) {
+				int count = Long.bitCount(own & fileMask(column));
+				if (count > 1) {
+					sideMg += DOUBLED_MG * (count - 1);
+					sideEg += DOUBLED_EG * (count - 1);
+				}
+				if (count > 0 && (own & adjacentFilesMask(column)) == 0) {
+					sideMg += ISOLATED_MG * count;
+					sideEg += ISOLATED_EG * count;
+				}
+			}
+			for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+				int square = Long.numberOfTrailingZeros(pawns);
+				int row = square >>> 3;
+				int column = square & 7;
+				if ((enemy & frontSpan(color, row, column)) == 0) {
+					int advanced = (color == 0) ? 6 - row : row - 1;
+					sideMg += PASSED_MG[advanced];
+					sideEg += PASSED_EG[advanced];
+				}
+			}
+			mg += sign * sideMg;
+			eg += sign * sideEg;
+			for (int kingColumn = 0; kingColumn < 8; kingColumn++) {
+				out[SHIELD + color * 8 + kingColumn] = sign * shield(own, color, kingColumn);
+			}
+		}
+		out[MG] = mg;
+		out[EG] = eg;
+	}
+
+	// shield of a king on its first row, on the given column
+	private static int shield(long own, int color, int kingColumn) {
+		int score = 0;
+		int near = (color == 0) ? 6 : 1;
+		int far = (color == 0) ? 5 : 2;
+		for (int column = Math.max(0, kingColumn - 1); column <= Math.min(7, kingColumn + 1); column++) {
+			if ((own & (1L << (near * 8 + column))) != 0) {
+				score += SHIELD_NEAR;
+			}
+			else if ((own & (1L << (far * 8 + column))) != 0) {
+				score += SHIELD_FAR;
+			}
+			else if ((own & fileMask(column)) == 0) {
+				score += SHIELD_OPEN;
+			}
+		}
+		return score;
+	}
+
+	private static long fileMask(int column) {
+		return 0x0101010101010101L << column;
+	}
+
+	private static long adjacentFilesMask(int column) {
+		long mask = 0;
+		if (column > 0) {
+			mask |= fileMask(column - 1);
+		}
+		if (column < 7) {
+			mask |= fileMask(column + 1);
+		}
+		return mask;
+	}
+
+	// squares in front of a pawn on its own and the adjacent columns, where an enemy pawn stops it being passed
+	private static long frontSpan(int color, int row, int column) {
+		long files = fileMask(column) | adjacentFilesMask(column);
+		// rows above (White) or below (Black) the pawn
+		long rows = (color == 0) ? (1L << (row * 8)) - 1 : (row == 7 ? 0 : -1L << ((row + 1) * 8));
+		return files & rows;
+	}
+}
@@ -0,0 +1,218 @@
+package chess.eval;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+
+// static exchange evaluation (SEE): material won or lost by the sequence of captures on one square,
+// each side capturing with its least valuable attacker and free to stop when going on would lose more
+// attackers are searched again after every capture, so sliders behind the piece that just captured
+// (x-rays) join the exchange; pins and checks are ignored
+// set the position once, then evaluate any number of captures on it (not thread safe)
+public class StaticExchange {
+	// indexed by ChessPiece.getTypeIndex(): P, N, B, R, Q, K
+	public static final int[] VALUE = { 100, 320, 330, 500, 900, 20000 };
+
+	private static final int EMPTY = -1;
+	private static final int[][] KNIGHT_STEPS = { {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1} };
+	private static final int[][] ROOK_DIRECTIONS = { {-1, 0}, {1, 0}, {0, -1}, {0, 1} };
+	private static final int[][] BISHOP_DIRECTIONS = { {-1, -1}, {-1, 1}, {1, -1}, {1, 1} };
+
+	// piece type and color of each square (encoded as in Move)
+	private final int[] types = new int[64];
+	private final boolean[] white = new boolean[64];
+	private final int[] gain = new int[32];
+	// attackers taken off the board copy during an exchange, put back at the end
+	private final int[] removedSquares = new int[32];
+	private final int[] removedTypes = new int[32];
+
+	public StaticExchange() {
+		clear();
+	}
+
+	private void clear() {
+		for (int i = 0; i < 64; i++) {
+			types[i] = EMPTY;
+		}
+	}
+
+	public void setPosition(ChessMatch chessMatch) {
+		setPosition(chessMatch.getPieces());
+	}
+
+	public void setPosition(ChessPiece[][] pieces) {
+		clear();
+		for (int i = 0; i < 8; i++) {
+			for (int j = 0; j < 8; j++) {
+				ChessPiece p = pieces[i][j];
+				if (p != null) {
+					types[i * 8 + j] = p.getTypeIndex();
+					white[i * 8 + j] = p.getColor() == Color.WHITE;
+				}
+			}
+		}
+	}
+
+	// material the side making the capture wins (negative if it loses) at the end of the exchange
+	// the move is expected to be a capture of the current position; a quiet move gives the loss of the moved piece if it can be taken
+	public int evaluate(int move) {
+		int source = Move.source(move);
+		int target = Move.target(move);
+		int attacker = types[source];
+		if (attacker == EMPTY) {
+			return 0;
+		}
+		boolean side = white[source];
+		int victim = types[target];
+		int enPassant = -1;
+		if (victim == EMPTY && attacker == 0 && Move.column(source) != Move.column(target)) {
+			// en passant: the captured pawn is beside the capturing one
+			enPassant = Move.square(Move.row(source), Move.column(target));
+			victim = 0;
+		}
+		int saved = types[target];
+		boolean savedColor = white[target];
+		int savedEnPassant = (enPassant >= 0) ? types[enPassant] : EMPTY;
+
+		int d = 0;
+		gain[0] = (victim == EMPTY) ? 0 : VALUE[victim];
+		// play the first capture on the board copy, the rest of the exchange is resolved square by square
+		types[source] = EMPTY;
+		if (enPassant >= 0) {
+			types[enPassant] = EMPTY;
+		}
+		types[target] = attacker;
+		white[target] = side;
+		int onTarget = attacker;
+		boolean toMove = !side;
+		int removed = 0;
+		while (d < gain.length - 1) {
+			int from = leastValuableAttacker(target, toMove);
+			if (from < 0) {
+				break;
+			}
+			d++;
+			gain[d] = VALUE[onTarget] - gain[d - 1];
+			if (Math.max(-gain[d - 1], gain[d]) < 0) {
+				// the side to capture loses whether it stops or not: it stops, and the rest doesn't change the result
+				d--;
+				break;
+			}
+			removedSquares[removed] = from;
+			removedTypes[removed++] = types[from];
+			onTarget = types[from];
+			types[from] = EMPTY;
+			toMove = !toMove;
+			if (onTarget == 5 && leastValuableAttacker(target, toMove) >= 0) {
+				// the king can't capture into a defended square
+				d--;
+				break;
+			}
+		}
+		// each side either stops or goes on with the capture, whichever is better for it
+		for (; d > 0; d--) {
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+		}
+
+		// restore the board copy
+		for (int i = 0; i < removed; i++) {
+			types[removedSquares[i]] = removedTypes[i];
+		}
+		types[source] = attacker;
+		white[source] = side;
+		types[target] = saved;
+		white[target] = savedColor;
+		if (enPassant >= 0) {
+			types[enPassant] = savedEnPassant;
+		}
+		return gain[0];
+	}
+
+	// material the opponent of the piece on the square wins by starting an exchange there (0 if the piece is safe)
+	public int threat(int square) {
+		if (types[square] == EMPTY) {
+			return 0;
+		}
+		int from = leastValuableAttacker(square, !white[square]);
+		if (from < 0) {
+			return 0;
+		}
+		return Math.max(0, evaluate(Move.encode(from, square)));
+	}
+
+	// square of the least valuable piece of that side attacking the square, or -1
+	private int leastValuableAttacker(int square, boolean side) {
+		int row = Move.row(square);
+		int column = Move.column(square);
+		// pawns: White pawns attack the row above them
+		int pawnRow = side ? row + 1 : row - 1;
+		for (int dc = -1; dc <= 1; dc += 2) {
+			int sq = at(pawnRow, column + dc);
+			if (sq >= 0 && types[sq] == 0 && white[sq] == side) {
+				return sq;
+			}
+		}
+		for (int[] step : KNIGHT_STEPS) {
+			int sq = at(row + step[0], column + step[1]);
+			if (sq >= 0 && types[sq] == 1 && white[sq] == side) {
+				return sq;
+			}
+		}
+		int bishop = slider(row, column, side, BISHOP_DIRECTIONS, 2);
+		if (bishop >= 0) {
+			return bishop;
+		}
+		int rook = slider(row, column, side, ROOK_DIRECTIONS, 3);
+		if (rook >= 0) {
+			return rook;
+		}
+		int queen = slider(row, column, side, BISHOP_DIRECTIONS, 4);
+		if (queen < 0) {
+			queen = slider(row, column, side, ROOK_DIRECTIONS, 4);
+		}
+		if (queen >= 0) {
+			return queen;
+		}
+		for (int dr = -1; dr <= 1; dr++) {
+			for (int dc = -1; dc <= 1; dc++) {
+				int sq = at(row + dr, column + dc);
+				if ((dr != 0 || dc != 0) && sq >= 0 && types[sq] == 5 && white[sq] == side) {
+					return sq;
+				}
+			}
+		}
+		return -1;
+	}
+
+	// first piece met along each direction, if it is of the type and side
+	private int slider(int row, int column, boolean side, int[][] directions, int type) {
+		for (int[] direction : directions) {
+			int r = row + direction[0];
+			int c = column + direction[1];
+			while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+				int sq = r * 8 + c;
+				if (types[sq] != EMPTY) {
+					if (types[sq] == type && white[sq] == side) {
+						return sq;
+					}
+					break;
+				}
+				r += direction[0];
+				c += direction[1];
+			}
+		}
+		return -1;
+	}
+
+	private static int at(int row, int column) {
+		return (row >= 0 && row < 8 && column >= 0 && column < 8) ? row * 8 + column : -1;
+	}
+
+	// static exchange evaluation of one move of the match
+	public static int see(ChessMatch chessMatch, int move) {
+		StaticExchange exchange = new StaticExchange();
+		exchange.setPosition(chessMatch);
+		return exchange.evaluate(move);
+	}
+}
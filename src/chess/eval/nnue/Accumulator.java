@@ -0,0 +1,72 @@
+package chess.eval.nnue;
+
+import chess.ChessPiece;
+import chess.Color;
+
+// hidden layer values of a position from both perspectives, updated as pieces are placed and removed
+// (one int16 column add or subtract per perspective) instead of recomputed from all the pieces
+public class Accumulator {
+	private final Network network;
+	private final short[] white;
+	private final short[] black;
+
+	public Accumulator(Network network) {
+		this.network = network;
+		white = new short[network.getHidden()];
+		black = new short[network.getHidden()];
+		clear();
+	}
+
+	// copy of the accumulators of another position
+	public Accumulator(Accumulator other) {
+		network = other.network;
+		white = other.white.clone();
+		black = other.black.clone();
+	}
+
+	public Network getNetwork() {
+		return network;
+	}
+
+	public void clear() {
+		System.arraycopy(network.featureBias, 0, white, 0, white.length);
+		System.arraycopy(network.featureBias, 0, black, 0, black.length);
+	}
+
+	// full recomputation from the board (ChessMatch.getPieces())
+	public void refresh(ChessPiece[][] pieces) {
+		clear();
+		for (int i = 0; i < pieces.length; i++) {
+			for (int j = 0; j < pieces[i].length; j++) {
+				if (pieces[i][j] != null) {
+					add(pieces[i][j], i * 8 + j);
+				}
+			}
+		}
+	}
+
+	public void add(ChessPiece piece, int square) {
+		add(piece.getColor(), piece.getTypeIndex(), square);
+	}
+
+	public void remove(ChessPiece piece, int square) {
+		remove(piece.getColor(), piece.getTypeIndex(), square);
+	}
+
+	public void add(Color color, int type, int square) {
+		int n = white.length;
+		Network.OPS.add(white, network.featureWeights, Network.feature(Color.WHITE, color, type, square) * n, n);
+		Network.OPS.add(black, network.featureWeights, Network.feature(Color.BLACK, color, type, square) * n, n);
+	}
+
+	public void remove(Color color, int type, int square) {
+		int n = white.length;
+		Network.OPS.sub(white, network.featureWeights, Network.feature(Color.WHITE, color, type, square) * n, n);
+		Network.OPS.sub(black, network.featureWeights, Network.feature(Color.BLACK, color, type, square) * n, n);
+	}
+
+	// score in centipawns for the side to move
+	public int evaluate(Color sideToMove) {
+		return sideToMove == Color.WHITE ? network.evaluate(white, black) : network.evaluate(black, white);
+	}
+}
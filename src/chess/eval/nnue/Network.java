@@ -0,0 +1,136 @@
+package chess.eval.nnue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import chess.Color;
+import chess.eval.PieceSquareTables;
+
+// efficiently updatable neural network (NNUE): 768 piece-square inputs per side's perspective,
+// one hidden layer of int16 accumulators, clipped ReLU, and an int16 output layer over both accumulators
+// (the side to move first)
+public class Network {
+	public static final int INPUTS = 768;
+	// clipped ReLU range and quantization of the output layer
+	public static final short QA = 255;
+	public static final int QB = 64;
+	public static final int SCALE = 400;
+
+	private static final int MAGIC = 0x434E4E31; // "CNN1"
+
+	static final VectorOps OPS = VectorOps.select();
+
+	private final int hidden;
+	// [feature * hidden + neuron]
+	final short[] featureWeights;
+	final short[] featureBias;
+	// side to move accumulator weights, then the opponent's
+	final short[] outputWeights;
+	final int outputBias;
+
+	public Network(int hidden, short[] featureWeights, short[] featureBias, short[] outputWeights, int outputBias) {
+		if (featureWeights.length != INPUTS * hidden || featureBias.length != hidden || outputWeights.length != 2 * hidden) {
+			throw new IllegalArgumentException("Network weights don't match " + hidden + " hidden neurons");
+		}
+		this.hidden = hidden;
+		this.featureWeights = featureWeights;
+		this.featureBias = featureBias;
+		this.outputWeights = outputWeights;
+		this.outputBias = outputBias;
+	}
+
+	public int getHidden() {
+		return hidden;
+	}
+
+	public static String getVectorOpsName() {
+		return OPS.name();
+	}
+
+	// input of a piece seen from one side: own pieces first, squares mirrored for Black
+	public static int feature(Color perspective, Color color, int type, int square) {
+		if (perspective == Color.WHITE) {
+			return (color == Color.WHITE ? 0 : 384) + type * 64 + square;
+		}
+		return (color == Color.BLACK ? 0 : 384) + type * 64 + (square ^ 56);
+	}
+
+	// score in centipawns for the side to move
+	public int evaluate(short[] us, short[] them) {
+		long sum = (long)OPS.clippedDot(us, outputWeights, 0, hidden, QA) + OPS.clippedDot(them, outputWeights, hidden, hidden, QA) + outputBias;
+		return (int)(sum * SCALE / (QA * QB));
+	}
+
+	// network file: magic, hidden size, feature weights, feature bias, output weights, output bias
+	public static Network load(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a network file: " + file);
+			}
+			int hidden = in.readInt();
+			short[] featureWeights = readShorts(in, INPUTS * hidden);
+			short[] featureBias = readShorts(in, hidden);
+			short[] outputWeights = readShorts(in, 2 * hidden);
+			return new Network(hidden, featureWeights, featureBias, outputWeights, in.readInt());
+		}
+	}
+
+	public void save(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(hidden);
+			writeShorts(out, featureWeights);
+			writeShorts(out, featureBias);
+			writeShorts(out, outputWeights);
+			out.writeInt(outputBias);
+		}
+	}
+
+	private static short[] readShorts(DataInputStream in, int n) throws IOException {
+		short[] values = new short[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = in.readShort();
+		}
+		return values;
+	}
+
+	private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+		for (short v : values) {
+			out.writeShort(v);
+		}
+	}
+
+	// network used until a trained one is loaded: neuron 0 sums the middlegame piece-square values
+	// of the own pieces and neuron 1 the endgame ones (divided by 20 to stay inside the ReLU range),
+	// the output averages both differences, the other neurons are free for training
+	public static Network defaultNetwork(int hidden) {
+		if (hidden < 2) {
+			throw new IllegalArgumentException("The default network needs at least 2 hidden neurons");
+		}
+		short[] featureWeights = new short[INPUTS * hidden];
+		short[] featureBias = new short[hidden];
+		short[] outputWeights = new short[2 * hidden];
+		for (int type = 0; type < 6; type++) {
+			for (int square = 0; square < 64; square++) {
+				// own pieces as White: the tables give White values directly
+				int f = feature(Color.WHITE, Color.WHITE, type, square);
+				featureWeights[f * hidden] = (short)Math.round(PieceSquareTables.mg(Color.WHITE, type, square) / 20.0);
+				featureWeights[f * hidden + 1] = (short)Math.round(PieceSquareTables.eg(Color.WHITE, type, square) / 20.0);
+			}
+		}
+		featureBias[0] = 8;
+		featureBias[1] = 8;
+		// 20 centipawns per accumulator unit: weight * SCALE / (QA * QB) = 20, split between mg and eg
+		short weight = (short)(20 * QA * QB / SCALE / 2);
+		outputWeights[0] = weight;
+		outputWeights[1] = weight;
+		outputWeights[hidden] = (short)-weight;
+		outputWeights[hidden + 1] = (short)-weight;
+		return new Network(hidden, featureWeights, featureBias, outputWeights, 0);
+	}
+}
@@ -0,0 +1,34 @@
+package chess.eval.nnue;
+
+// plain loops, simple enough for the JIT to auto-vectorize the add and sub
+class ScalarOps implements VectorOps {
+
+	@Override
+	public void add(short[] acc, short[] weights, int offset, int n) {
+		for (int i = 0; i < n; i++) {
+			acc[i] += weights[offset + i];
+		}
+	}
+
+	@Override
+	public void sub(short[] acc, short[] weights, int offset, int n) {
+		for (int i = 0; i < n; i++) {
+			acc[i] -= weights[offset + i];
+		}
+	}
+
+	@Override
+	public int clippedDot(short[] acc, short[] weights, int offset, int n, short max) {
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			int v = Math.min(Math.max(acc[i], 0), max);
+			sum += v * weights[offset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public String name() {
+		return "scalar";
+	}
+}
@@ -0,0 +1,62 @@
+package chess.eval.nnue;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// jdk.incubator.vector version, only loaded by VectorOps.select() when the module is available
+class VectorApiOps implements VectorOps {
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	// ints of the same vector size: each short vector widens into two int vectors
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+	@Override
+	public void add(short[] acc, short[] weights, int offset, int n) {
+		int i = 0;
+		for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+			ShortVector.fromArray(SHORTS, acc, i).add(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(acc, i);
+		}
+		for (; i < n; i++) {
+			acc[i] += weights[offset + i];
+		}
+	}
+
+	@Override
+	public void sub(short[] acc, short[] weights, int offset, int n) {
+		int i = 0;
+		for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+			ShortVector.fromArray(SHORTS, acc, i).sub(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(acc, i);
+		}
+		for (; i < n; i++) {
+			acc[i] -= weights[offset + i];
+		}
+	}
+
+	@Override
+	public int clippedDot(short[] acc, short[] weights, int offset, int n, short max) {
+		IntVector sum = IntVector.zero(INTS);
+		int i = 0;
+		for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+			ShortVector v = ShortVector.fromArray(SHORTS, acc, i).max((short)0).min(max);
+			ShortVector w = ShortVector.fromArray(SHORTS, weights, offset + i);
+			// products need 32 bits: widen both halves before multiplying
+			for (int part = 0; part < 2; part++) {
+				IntVector vi = (IntVector)v.convertShape(VectorOperators.S2I, INTS, part);
+				IntVector wi = (IntVector)w.convertShape(VectorOperators.S2I, INTS, part);
+				sum = sum.add(vi.mul(wi));
+			}
+		}
+		int total = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < n; i++) {
+			int v = Math.min(Math.max(acc[i], 0), max);
+			total += v * weights[offset + i];
+		}
+		return total;
+	}
+
+	@Override
+	public String name() {
+		return "vector (" + SHORTS.length() + " x int16)";
+	}
+}
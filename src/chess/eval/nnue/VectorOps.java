@@ -0,0 +1,30 @@
+package chess.eval.nnue;
+
+// int16 vector operations used by the network, with a Vector API version and a scalar fallback
+interface VectorOps {
+
+	// acc[i] += weights[offset + i] for i in [0, n)
+	void add(short[] acc, short[] weights, int offset, int n);
+
+	// acc[i] -= weights[offset + i] for i in [0, n)
+	void sub(short[] acc, short[] weights, int offset, int n);
+
+	// sum of clamp(acc[i], 0, max) * weights[offset + i] for i in [0, n)
+	int clippedDot(short[] acc, short[] weights, int offset, int n, short max);
+
+	String name();
+
+	// the Vector API version needs the jdk.incubator.vector module (java --add-modules jdk.incubator.vector),
+	// without it, or with -Dchess.nnue.scalar=true, the scalar loops are used
+	static VectorOps select() {
+		if (!Boolean.getBoolean("chess.nnue.scalar")) {
+			try {
+				return (VectorOps)Class.forName("chess.eval.nnue.VectorApiOps").getDeclaredConstructor().newInstance();
+			}
+			catch (ReflectiveOperationException | LinkageError e) {
+				// module not available: fall back to the scalar version
+			}
+		}
+		return new ScalarOps();
+	}
+}
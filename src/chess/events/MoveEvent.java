@@ -0,0 +1,52 @@
+package chess.events;
+
+import chess.Color;
+import chess.Move;
+
+// event of a match packed in a long, as published in the ring buffer of MoveEventBroadcaster
+// bits 0-14: move (encoded as in Move), bits 16-18: event type, bit 19: side that moved (1 for Black),
+// bits 20-22: promotion piece (Move.PROMOTION_*, for PROMOTION events), bits 32-63: turn of the move
+public final class MoveEvent {
+	// a move played with performChessMove (a pawn reaching the last row is promoted to a queen)
+	public static final int MOVE = 1;
+	// the move put the opponent in check
+	public static final int CHECK = 2;
+	// the move mated the opponent: the match is over
+	public static final int CHECKMATE = 3;
+	// the piece promoted by the last move was replaced with replacePromotedPiece
+	public static final int PROMOTION = 4;
+
+	private static final String[] NAMES = { "?", "move", "check", "checkmate", "promotion" };
+
+	private MoveEvent() {
+	}
+
+	public static long encode(int type, int move, Color color, int promotion, int turn) {
+		return (move & 0x7FFF) | ((long)type << 16) | (color == Color.BLACK ? 1L << 19 : 0) | ((long)promotion << 20) | ((long)turn << 32);
+	}
+
+	public static int type(long event) {
+		return (int)(event >>> 16) & 7;
+	}
+
+	public static int move(long event) {
+		return (int)event & 0x7FFF;
+	}
+
+	public static Color color(long event) {
+		return (event & 1L << 19) != 0 ? Color.BLACK : Color.WHITE;
+	}
+
+	public static int promotion(long event) {
+		return (int)(event >>> 20) & 7;
+	}
+
+	public static int turn(long event) {
+		return (int)(event >>> 32);
+	}
+
+	public static String toString(long event) {
+		String s = NAMES[type(event)] + " " + turn(event) + " " + color(event) + " " + Move.toString(move(event));
+		return type(event) == PROMOTION ? s + " " + " nbrq".charAt(promotion(event)) : s;
+	}
+}
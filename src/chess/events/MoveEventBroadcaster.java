@@ -0,0 +1,126 @@
+package chess.events;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import chess.ChessMatch;
+
+// single-writer, multi-reader ring buffer of the events of a ChessMatch (see MoveEvent)
+// the thread playing the match writes without ever waiting for the readers: each subscriber reads
+// at its own pace from its own position, and one that falls more than the capacity behind has lost
+// events: it resyncs from the latest snapshot (a FEN the writer takes every snapshotInterval events)
+// a position changed without events (a move taken back or played again) is a reset: every subscriber
+// skips the events it has not read and resyncs to the snapshot taken then
+// each slot carries the sequence of its event (seqlock), so a reader sees when a slot was overwritten
+public class MoveEventBroadcaster {
+	// sequence of a slot being written
+	private static final long WRITING = -1;
+
+	private final long[] events;
+	private final long[] stamps;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final int snapshotInterval;
+	// number of events published, that is the sequence of the next one
+	private volatile long published;
+	private volatile Snapshot snapshot = new Snapshot(null, 0);
+	// number of resets, written after the snapshot of the last one
+	private volatile long resets;
+
+	// capacity is rounded down to a power of two; a snapshot is taken every capacity / 4 events
+	public MoveEventBroadcaster(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 16));
+		events = new long[size];
+		stamps = new long[size];
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, WRITING);
+		}
+		mask = size - 1;
+		snapshotInterval = size / 4;
+	}
+
+	public MoveEventBroadcaster() {
+		this(1 << 12);
+	}
+
+	public int getCapacity() {
+		return events.length;
+	}
+
+	public long getPublished() {
+		return published;
+	}
+
+	// writer side, only called by the thread playing the match
+	public void publish(long event) {
+		long sequence = published;
+		int i = (int)sequence & mask;
+		sequences.setOpaque(i, WRITING);
+		VarHandle.storeStoreFence();
+		events[i] = event;
+		stamps[i] = System.nanoTime();
+		sequences.setRelease(i, sequence);
+		published = sequence + 1;
+	}
+
+	// writer side: called after the events of a move, takes a snapshot when one is due
+	public void endOfMove(ChessMatch chessMatch) {
+		if (published - snapshot.sequence >= snapshotInterval) {
+			snapshot(chessMatch);
+		}
+	}
+
+	// writer side: position of the match from now on
+	public void snapshot(ChessMatch chessMatch) {
+		snapshot = new Snapshot(chessMatch.getFen(), published);
+	}
+
+	// writer side: the position of the match changed without events; the subscribers resync to it
+	public void reset(ChessMatch chessMatch) {
+		snapshot(chessMatch);
+		resets++;
+	}
+
+	public long getResets() {
+		return resets;
+	}
+
+	// subscriber starting from the latest snapshot (its first poll resyncs to it)
+	public MoveEventSubscriber subscribe() {
+		return new MoveEventSubscriber(this);
+	}
+
+	Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	// reads the event of the sequence into the subscriber; false if the slot holds another event
+	// (overwritten, or overwritten while it was read)
+	boolean read(long sequence, MoveEventSubscriber subscriber) {
+		int i = (int)sequence & mask;
+		if (sequences.getAcquire(i) != sequence) {
+			return false;
+		}
+		long event = events[i];
+		long stamp = stamps[i];
+		VarHandle.loadLoadFence();
+		if (sequences.getOpaque(i) != sequence) {
+			return false;
+		}
+		subscriber.event = event;
+		subscriber.stamp = stamp;
+		return true;
+	}
+
+	// position of the match before the event sequence
+	static class Snapshot {
+		final String fen;
+		final long sequence;
+
+		Snapshot(String fen, long sequence) {
+			this.fen = fen;
+			this.sequence = sequence;
+		}
+	}
+}
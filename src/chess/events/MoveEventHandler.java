@@ -0,0 +1,12 @@
+package chess.events;
+
+// receives the events read by a MoveEventSubscriber, on the subscriber's thread
+public interface MoveEventHandler {
+
+	// event number sequence, published at System.nanoTime() publishNanos
+	void onEvent(long sequence, long event, long publishNanos);
+
+	// the subscriber fell too far behind and lost events, or a move was taken back or played again: the
+	// match was in the position fen before the event nextSequence, which is the next one handed to onEvent
+	void onResync(String fen, long nextSequence);
+}
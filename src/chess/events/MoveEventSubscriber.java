@@ -0,0 +1,88 @@
+package chess.events;
+
+// reader of a MoveEventBroadcaster, used by a single thread (each observer has its own subscriber)
+// it never blocks the writer: when it falls behind by more than the capacity of the ring buffer,
+// the events it missed are skipped and it resyncs from the latest snapshot of the match; so it does after
+// a reset of the broadcaster (a move taken back or played again), the events not read yet being stale
+public class MoveEventSubscriber {
+	private final MoveEventBroadcaster broadcaster;
+	private long position;
+	private boolean resync = true;
+	// resets of the broadcaster seen
+	private long resets;
+	private long received;
+	private long resyncs;
+	private long lost;
+	// event read by the broadcaster
+	long event;
+	long stamp;
+
+	MoveEventSubscriber(MoveEventBroadcaster broadcaster) {
+		this.broadcaster = broadcaster;
+	}
+
+	// hands the events published since the last poll to the handler, at most maxEvents
+	// returns the number of events handed (resyncs are not counted)
+	public int poll(MoveEventHandler handler, int maxEvents) {
+		int count = 0;
+		long head = broadcaster.getPublished();
+		while (count < maxEvents) {
+			if (resync || broadcaster.getResets() != resets) {
+				resync(handler);
+				head = broadcaster.getPublished();
+			}
+			if (position >= head) {
+				break;
+			}
+			if (head - position > broadcaster.getCapacity() || !broadcaster.read(position, this)) {
+				// lapped by the writer
+				resync = true;
+				continue;
+			}
+			handler.onEvent(position, event, stamp);
+			position++;
+			received++;
+			count++;
+		}
+		return count;
+	}
+
+	private void resync(MoveEventHandler handler) {
+		// read before the snapshot: a reset after it is seen at the next poll
+		resets = broadcaster.getResets();
+		MoveEventBroadcaster.Snapshot snapshot = broadcaster.getSnapshot();
+		long head = broadcaster.getPublished();
+		long target = snapshot.sequence;
+		if (head - target > broadcaster.getCapacity()) {
+			// no usable snapshot (the match never gave one): everything still in the buffer is skipped too
+			target = head;
+		}
+		if (target > position) {
+			lost += target - position;
+		}
+		position = target;
+		resync = false;
+		if (snapshot.fen != null && target == snapshot.sequence) {
+			resyncs++;
+			handler.onResync(snapshot.fen, position);
+		}
+	}
+
+	// events published and not read yet
+	public long getLag() {
+		return broadcaster.getPublished() - position;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getResyncs() {
+		return resyncs;
+	}
+
+	// events skipped by resyncs
+	public long getLost() {
+		return lost;
+	}
+}
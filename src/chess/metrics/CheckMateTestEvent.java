@@ -0,0 +1,24 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// flight recorder event of one checkmate test, after each move played with performChessMove
+@Name("chess.CheckMateTest")
+@Label("Checkmate Test")
+@Category("Chess")
+@Description("Search for a move out of check of the side that was just moved against")
+public class CheckMateTestEvent extends Event {
+	@Label("Side")
+	public String side;
+
+	@Label("Candidate Moves")
+	@Description("Moves tried before finding one out of check (all of them when it is mate)")
+	public int candidateMoves;
+
+	@Label("Checkmate")
+	public boolean checkMate;
+}
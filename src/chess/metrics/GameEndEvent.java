@@ -0,0 +1,18 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// flight recorder event of a ChessMatch ending in checkmate
+@Name("chess.GameEnd")
+@Label("Game End")
+@Category("Chess")
+public class GameEndEvent extends Event {
+	@Label("Winner")
+	public String winner;
+
+	@Label("Turn")
+	public int turn;
+}
@@ -0,0 +1,15 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// flight recorder event of a new ChessMatch
+@Name("chess.GameStart")
+@Label("Game Start")
+@Category("Chess")
+public class GameStartEvent extends Event {
+	@Label("Position")
+	public String fen;
+}
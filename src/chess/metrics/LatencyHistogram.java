@@ -0,0 +1,75 @@
+package chess.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// lock-free latency histogram: power-of-two buckets of nanoseconds, each a striped counter (LongAdder),
+// so threads recording at the same time don't contend on one cache line
+public class LatencyHistogram {
+	private static final int BUCKETS = 64;
+
+	private final String name;
+	// bucket b counts the latencies from 2^(b-1) to 2^b - 1 nanoseconds
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+
+	public LatencyHistogram(String name) {
+		this.name = name;
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+		count.increment();
+		totalNanos.add(nanos);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public double getMeanNanos() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double)totalNanos.sum() / n;
+	}
+
+	// upper bound of the bucket holding the quantile (0 < q <= 1), so within a factor of two
+	public long getQuantileNanos(double q) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		long rank = (long)Math.ceil(q * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				return i == 0 ? 0 : (1L << i) - 1;
+			}
+		}
+		return 0;
+	}
+
+	public void reset() {
+		for (LongAdder bucket : buckets) {
+			bucket.reset();
+		}
+		count.reset();
+		totalNanos.reset();
+	}
+}
@@ -0,0 +1,168 @@
+package chess.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// counters and latency histograms of the move validation path of ChessMatch.performChessMove,
+// shared by all matches and exposed through JMX as chess:type=MoveMetrics
+// recording takes no lock (striped counters), so it stays on by default; -Dchess.metrics=false
+// or the MBean's Enabled attribute turns it off
+public final class MoveMetrics implements MoveMetricsMXBean {
+	public static final String OBJECT_NAME = "chess:type=MoveMetrics";
+
+	public static final LatencyHistogram VALIDATE_SOURCE = new LatencyHistogram("validateSourcePosition");
+	public static final LatencyHistogram VALIDATE_TARGET = new LatencyHistogram("validateTargetPosition");
+	public static final LatencyHistogram MAKE_MOVE = new LatencyHistogram("makeMove");
+	public static final LatencyHistogram TEST_CHECK = new LatencyHistogram("testCheck");
+	public static final LatencyHistogram TEST_CHECK_MATE = new LatencyHistogram("testCheckMate");
+	// indexed by ChessPiece.getTypeIndex()
+	private static final LatencyHistogram[] POSSIBLE_MOVES = {
+			new LatencyHistogram("possibleMoves.P"), new LatencyHistogram("possibleMoves.N"),
+			new LatencyHistogram("possibleMoves.B"), new LatencyHistogram("possibleMoves.R"),
+			new LatencyHistogram("possibleMoves.Q"), new LatencyHistogram("possibleMoves.K") };
+
+	private static final MoveMetrics INSTANCE = new MoveMetrics();
+
+	private static volatile boolean enabled = !"false".equals(System.getProperty("chess.metrics"));
+	private static final LongAdder performed = new LongAdder();
+	private static final LongAdder rejected = new LongAdder();
+	private static final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		}
+		catch (JMException | SecurityException e) {
+			// already registered by another class loader, or not allowed: the metrics are still recorded
+		}
+	}
+
+	private MoveMetrics() {
+	}
+
+	public static MoveMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	// start time of an operation, 0 when the metrics are off
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	// records an operation started at start()
+	public static void record(LatencyHistogram histogram, long start) {
+		if (start != 0) {
+			histogram.record(System.nanoTime() - start);
+		}
+	}
+
+	public static LatencyHistogram possibleMoves(int typeIndex) {
+		return POSSIBLE_MOVES[typeIndex];
+	}
+
+	public static void performed() {
+		if (enabled) {
+			performed.increment();
+		}
+	}
+
+	public static void rejected(String cause) {
+		if (enabled) {
+			rejected.increment();
+			rejections.computeIfAbsent(cause, k -> new LongAdder()).increment();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		MoveMetrics.enabled = enabled;
+	}
+
+	@Override
+	public long getPerformedMoves() {
+		return performed.sum();
+	}
+
+	@Override
+	public long getRejectedMoves() {
+		return rejected.sum();
+	}
+
+	@Override
+	public Map<String, Long> getRejectionsByCause() {
+		Map<String, Long> map = new TreeMap<>();
+		rejections.forEach((cause, count) -> map.put(cause, count.sum()));
+		return map;
+	}
+
+	@Override
+	public Map<String, Long> getCounts() {
+		return longs(LatencyHistogram::getCount);
+	}
+
+	@Override
+	public Map<String, Double> getMeanNanos() {
+		return doubles(LatencyHistogram::getMeanNanos);
+	}
+
+	@Override
+	public Map<String, Long> getP50Nanos() {
+		return longs(h -> h.getQuantileNanos(0.5));
+	}
+
+	@Override
+	public Map<String, Long> getP99Nanos() {
+		return longs(h -> h.getQuantileNanos(0.99));
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram histogram : histograms()) {
+			histogram.reset();
+		}
+		performed.reset();
+		rejected.reset();
+		rejections.clear();
+	}
+
+	public static LatencyHistogram[] histograms() {
+		LatencyHistogram[] all = new LatencyHistogram[5 + POSSIBLE_MOVES.length];
+		all[0] = VALIDATE_SOURCE;
+		all[1] = VALIDATE_TARGET;
+		all[2] = MAKE_MOVE;
+		all[3] = TEST_CHECK;
+		all[4] = TEST_CHECK_MATE;
+		System.arraycopy(POSSIBLE_MOVES, 0, all, 5, POSSIBLE_MOVES.length);
+		return all;
+	}
+
+	private static Map<String, Long> longs(ToLongFunction<LatencyHistogram> value) {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (LatencyHistogram histogram : histograms()) {
+			map.put(histogram.getName(), value.applyAsLong(histogram));
+		}
+		return map;
+	}
+
+	private static Map<String, Double> doubles(ToDoubleFunction<LatencyHistogram> value) {
+		Map<String, Double> map = new LinkedHashMap<>();
+		for (LatencyHistogram histogram : histograms()) {
+			map.put(histogram.getName(), value.applyAsDouble(histogram));
+		}
+		return map;
+	}
+}
@@ -0,0 +1,30 @@
+package chess.metrics;
+
+import java.util.Map;
+
+// management interface of MoveMetrics (object name chess:type=MoveMetrics)
+// maps are keyed by operation: validateSourcePosition, validateTargetPosition, makeMove, testCheck,
+// testCheckMate and possibleMoves.<piece> (ex: possibleMoves.N)
+public interface MoveMetricsMXBean {
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	long getPerformedMoves();
+
+	long getRejectedMoves();
+
+	// rejected moves by ChessException message
+	Map<String, Long> getRejectionsByCause();
+
+	Map<String, Long> getCounts();
+
+	Map<String, Double> getMeanNanos();
+
+	Map<String, Long> getP50Nanos();
+
+	Map<String, Long> getP99Nanos();
+
+	void reset();
+}
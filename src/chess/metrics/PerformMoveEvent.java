@@ -0,0 +1,31 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// flight recorder event of one ChessMatch.performChessMove, legal or rejected
+@Name("chess.PerformMove")
+@Label("Perform Move")
+@Category("Chess")
+@Description("A move played (or rejected) with ChessMatch.performChessMove")
+public class PerformMoveEvent extends Event {
+	@Label("Move")
+	public String move;
+
+	@Label("Piece")
+	@Description("Type of the moved piece (P, N, B, R, Q, K)")
+	public String piece;
+
+	@Label("Check")
+	public boolean check;
+
+	@Label("Checkmate")
+	public boolean checkMate;
+
+	@Label("Rejection")
+	@Description("Message of the ChessException when the move was rejected")
+	public String rejection;
+}
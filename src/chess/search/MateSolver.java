@@ -0,0 +1,247 @@
+package chess.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessMatch;
+import chess.Move;
+
+// mate-in-N solver using depth-first proof-number search (df-pn) on the ChessMatch rules
+// every node has a proof number (moves to look at to prove the mate) and a disproof number
+// (moves to look at to refute it); the search always expands the most proving node under thresholds
+// nodes are kept in a fixed-size table (bounded memory), entries are simply overwritten on collision
+// and recomputed when needed; the remaining depth is part of the key, so positions never repeat on a path
+public class MateSolver {
+	public static final int INFINITE = 100_000_000;
+
+	public enum Status { MATE, NO_MATE, UNKNOWN }
+
+	// the table holds phi and delta: for the side to move, phi is its proof number and delta its disproof number
+	private final long[] keys;
+	private final int[] phis;
+	private final int[] deltas;
+	private final int mask;
+
+	private ChessMatch chessMatch;
+	private long maxNodes;
+	private long nodes;
+	private int[][] moves;
+	private long[][] childKeys;
+
+	public MateSolver(int tableEntries) {
+		int size = Integer.highestOneBit(Math.max(tableEntries, 2));
+		keys = new long[size];
+		phis = new int[size];
+		deltas = new int[size];
+		mask = size - 1;
+	}
+
+	public MateSolver() {
+		this(1 << 20);
+	}
+
+	// looks for a mate in at most n moves of the side to move; the match is not changed
+	// (the search runs on a copy), maxNodes bounds the work: past it the result is UNKNOWN
+	public Result solve(ChessMatch match, int n, long maxNodes) {
+		long start = System.nanoTime();
+		chessMatch = match.fork();
+		this.maxNodes = maxNodes;
+		nodes = 0;
+		int plies = 2 * n - 1;
+		moves = new int[plies + 1][256];
+		childKeys = new long[plies + 1][256];
+		clear();
+
+		mid(plies, INFINITE, INFINITE);
+		int phi = lookupPhi(key(chessMatch.getPositionKey(), plies));
+		Status status;
+		List<Integer> line = new ArrayList<>();
+		if (phi == 0) {
+			status = Status.MATE;
+			principalVariation(plies, line);
+		}
+		else if (phi >= INFINITE) {
+			status = Status.NO_MATE;
+		}
+		else {
+			status = Status.UNKNOWN;
+		}
+		return new Result(status, line, nodes, System.nanoTime() - start);
+	}
+
+	// one df-pn node: expands the children until phi or delta reaches its threshold
+	// remaining counts the plies left, the attacker moves on odd remaining plies
+	private void mid(int remaining, int thresholdPhi, int thresholdDelta) {
+		nodes++;
+		long key = key(chessMatch.getPositionKey(), remaining);
+		boolean attacker = (remaining & 1) == 1;
+		if (remaining == 0) {
+			// last defender move: mate if it has no way out of check
+			int count = chessMatch.legalMoves(moves[0]);
+			boolean mate = count == 0 && chessMatch.getCheck();
+			// the defender "proves" its survival unless mated
+			store(key, mate ? INFINITE : 0, mate ? 0 : INFINITE);
+			return;
+		}
+		int count = chessMatch.legalMoves(moves[remaining]);
+		if (count == 0) {
+			if (attacker) {
+				// stalemated or mated attacker: no mate
+				store(key, INFINITE, 0);
+			}
+			else {
+				boolean mate = chessMatch.getCheck();
+				store(key, mate ? INFINITE : 0, mate ? 0 : INFINITE);
+			}
+			return;
+		}
+		int[] list = moves[remaining];
+		long[] children = childKeys[remaining];
+		for (int i = 0; i < count; i++) {
+			children[i] = key(chessMatch.getPositionKeyAfter(list[i]), remaining - 1);
+		}
+
+		while (true) {
+			// phi = min delta of the children, delta = sum of phi of the children
+			int phi = INFINITE;
+			int delta = 0;
+			int best = -1;
+			int secondDelta = INFINITE;
+			int bestPhi = 0;
+			for (int i = 0; i < count; i++) {
+				int index = index(children[i]);
+				int childPhi = 1;
+				int childDelta = 1;
+				if (keys[index] == children[i]) {
+					childPhi = phis[index];
+					childDelta = deltas[index];
+				}
+				delta = Math.min(INFINITE, delta + childPhi);
+				if (childDelta < phi) {
+					secondDelta = phi;
+					phi = childDelta;
+					best = i;
+					bestPhi = childPhi;
+				}
+				else if (childDelta < secondDelta) {
+					secondDelta = childDelta;
+				}
+			}
+			if (phi >= thresholdPhi || delta >= thresholdDelta || nodes >= maxNodes) {
+				store(key, phi, delta);
+				return;
+			}
+			int childThresholdPhi = (int)Math.min(INFINITE, (long)thresholdDelta + bestPhi - delta);
+			int childThresholdDelta = Math.min(thresholdPhi, secondDelta + 1);
+			chessMatch.doMove(list[best]);
+			mid(remaining - 1, childThresholdPhi, childThresholdDelta);
+			chessMatch.undo();
+		}
+	}
+
+	// forced line of a proven mate: the attacker plays a proven move, the defender any move (all are proven)
+	private void principalVariation(int remaining, List<Integer> line) {
+		maxNodes = Long.MAX_VALUE;
+		int played = 0;
+		while (remaining > 0) {
+			int count = chessMatch.legalMoves(moves[remaining]);
+			int chosen = Move.NONE;
+			for (int i = 0; i < count && chosen == Move.NONE; i++) {
+				int move = moves[remaining][i];
+				chessMatch.doMove(move);
+				if (proven(remaining - 1)) {
+					chosen = move;
+				}
+				chessMatch.undo();
+			}
+			if (chosen == Move.NONE) {
+				break;
+			}
+			line.add(chosen);
+			chessMatch.doMove(chosen);
+			played++;
+			remaining--;
+		}
+		for (int i = 0; i < played; i++) {
+			chessMatch.undo();
+		}
+	}
+
+	// true if the current position is a mate for the attacker, solving it again if its entry was overwritten
+	private boolean proven(int remaining) {
+		long key = key(chessMatch.getPositionKey(), remaining);
+		int phi = lookupPhi(key);
+		if (phi != 0 && phi < INFINITE) {
+			mid(remaining, INFINITE, INFINITE);
+			phi = lookupPhi(key);
+		}
+		// the attacker moves on odd remaining plies
+		return (remaining & 1) == 1 ? phi == 0 : phi >= INFINITE;
+	}
+
+	private static long key(long positionKey, int remaining) {
+		return positionKey ^ (0x9E3779B97F4A7C15L * (remaining + 1));
+	}
+
+	private int index(long key) {
+		return (int)(key ^ (key >>> 32)) & mask;
+	}
+
+	private int lookupPhi(long key) {
+		int index = index(key);
+		return keys[index] == key ? phis[index] : 1;
+	}
+
+	private void store(long key, int phi, int delta) {
+		int index = index(key);
+		keys[index] = key;
+		phis[index] = phi;
+		deltas[index] = delta;
+	}
+
+	private void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+		}
+	}
+
+	public static class Result {
+		private final Status status;
+		private final List<Integer> line;
+		private final long nodes;
+		private final long nanos;
+
+		public Result(Status status, List<Integer> line, long nodes, long nanos) {
+			this.status = status;
+			this.line = line;
+			this.nodes = nodes;
+			this.nanos = nanos;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		// moves of the forced mate (attacker and defender alternating), empty unless the status is MATE
+		public List<Integer> getLine() {
+			return line;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(status.toString());
+			for (int move : line) {
+				sb.append(' ').append(Move.toString(move));
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package chess.search;
+
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import chess.pieces.Pawn;
+
+// order in which a tree search tries the moves of a node, best first, so that cutoffs come early:
+// the move of the previous iteration, captures and promotions by MVV-LVA (most valuable victim first,
+// then least valuable attacker), the two killers of the ply (quiet moves that caused a cutoff at that ply),
+// the counter-move (quiet move that last refuted the move just played), then the other quiet moves by
+// their history (butterfly table by side, source and target, raised by a cutoff, lowered for the quiet
+// moves tried before it)
+// the tables are primitive arrays that live from one search to the next: newSearch() halves the history
+// and forgets the killers, whose plies no longer match
+// not thread safe: each Search has its own
+public class MoveOrdering {
+	private static final int PREVIOUS_BEST = 1 << 30;
+	private static final int CAPTURE = 1 << 24;
+	private static final int KILLER = 1 << 22;
+	private static final int COUNTER_MOVE = 1 << 21;
+	// the history of a quiet move stays between -MAX_HISTORY and MAX_HISTORY, below the counter-move
+	private static final int MAX_HISTORY = 1 << 20;
+
+	private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+	// [side][source * 64 + target]
+	private final int[][] history = new int[2][64 * 64];
+	// [side][source * 64 + target of the opponent move it answers]
+	private final int[][] counterMoves = new int[2][64 * 64];
+
+	// start of a search: what was learnt stays, but fades
+	public void newSearch() {
+		for (int[] side : history) {
+			for (int i = 0; i < side.length; i++) {
+				side[i] /= 2;
+			}
+		}
+		for (int[] ply : killers) {
+			ply[0] = Move.NONE;
+			ply[1] = Move.NONE;
+		}
+	}
+
+	// all the tables back to empty
+	public void clear() {
+		newSearch();
+		for (int side = 0; side < 2; side++) {
+			Arrays.fill(history[side], 0);
+			Arrays.fill(counterMoves[side], Move.NONE);
+		}
+	}
+
+	// scores of the moves of the side to move at the ply, higher first (see next)
+	// previousMove is the opponent move that led to the node, Move.NONE at the root
+	public void score(ChessMatch chessMatch, int[] moves, int[] scores, int count, int ply, int previousBest, int previousMove) {
+		int side = side(chessMatch.getCurrentPlayer());
+		int counterMove = previousMove == Move.NONE ? Move.NONE : counterMoves[side][butterfly(previousMove)];
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (move == previousBest) {
+				scores[i] = PREVIOUS_BEST;
+			}
+			else if (isTactical(chessMatch, move)) {
+				scores[i] = CAPTURE + mvvLva(chessMatch, move);
+			}
+			else if (move == killers[ply][0]) {
+				scores[i] = KILLER + 1;
+			}
+			else if (move == killers[ply][1]) {
+				scores[i] = KILLER;
+			}
+			else if (move == counterMove) {
+				scores[i] = COUNTER_MOVE;
+			}
+			else {
+				scores[i] = history[side][butterfly(move)];
+			}
+		}
+	}
+
+	// captures and promotions only, by MVV-LVA (for the quiescence search)
+	public void scoreTactical(ChessMatch chessMatch, int[] moves, int[] scores, int count) {
+		for (int i = 0; i < count; i++) {
+			scores[i] = isTactical(chessMatch, moves[i]) ? CAPTURE + mvvLva(chessMatch, moves[i]) : 0;
+		}
+	}
+
+	// puts the best of the moves from index i on at index i (a selection sort done as the moves are
+	// tried, so that the moves after a cutoff are never sorted)
+	public static int next(int[] moves, int[] scores, int i, int count) {
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (scores[j] > scores[best]) {
+				best = j;
+			}
+		}
+		if (best != i) {
+			int move = moves[best];
+			moves[best] = moves[i];
+			moves[i] = move;
+			int score = scores[best];
+			scores[best] = scores[i];
+			scores[i] = score;
+		}
+		return moves[i];
+	}
+
+	// the quiet move caused a cutoff at depth: it becomes a killer of the ply and the counter-move of
+	// previousMove, its history rises and the history of the quiet moves tried before it falls
+	public void cutoff(Color color, int move, int ply, int depth, int previousMove, int[] triedQuiets, int triedCount) {
+		int side = side(color);
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		if (previousMove != Move.NONE) {
+			counterMoves[side][butterfly(previousMove)] = move;
+		}
+		int bonus = Math.min(depth * depth, 400);
+		updateHistory(side, move, bonus);
+		for (int i = 0; i < triedCount; i++) {
+			if (triedQuiets[i] != move) {
+				updateHistory(side, triedQuiets[i], -bonus);
+			}
+		}
+	}
+
+	public int getHistory(Color color, int move) {
+		return history[side(color)][butterfly(move)];
+	}
+
+	// capture (en passant included) or promotion
+	public static boolean isTactical(ChessMatch chessMatch, int move) {
+		if (Move.promotion(move) != Move.PROMOTION_NONE || chessMatch.getPiece(Move.target(move)) != null) {
+			return true;
+		}
+		ChessPiece piece = chessMatch.getPiece(Move.source(move));
+		return piece instanceof Pawn && Move.column(Move.source(move)) != Move.column(Move.target(move));
+	}
+
+	// victim first, then the cheapest attacker; a promotion to a queen goes before any capture without one
+	private static int mvvLva(ChessMatch chessMatch, int move) {
+		ChessPiece victim = chessMatch.getPiece(Move.target(move));
+		// empty target: en passant, or a promotion without capture
+		int victimType = victim != null ? victim.getTypeIndex() : 0;
+		int attackerType = chessMatch.getPiece(Move.source(move)).getTypeIndex();
+		int score = victimType * 8 + (5 - attackerType);
+		if (Move.promotion(move) != Move.PROMOTION_NONE) {
+			score += Move.promotion(move) == Move.PROMOTION_QUEEN ? 64 : 0;
+		}
+		return score;
+	}
+
+	// bonus pulled towards the bound: the closer the history is to it, the less it moves (so it never leaves it)
+	private void updateHistory(int side, int move, int bonus) {
+		int i = butterfly(move);
+		history[side][i] += bonus * 2048 - history[side][i] * Math.abs(bonus) / (MAX_HISTORY / 2048);
+	}
+
+	private static int butterfly(int move) {
+		return Move.source(move) * 64 + Move.target(move);
+	}
+
+	private static int side(Color color) {
+		return color == Color.WHITE ? 0 : 1;
+	}
+}
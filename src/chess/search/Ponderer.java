@@ -0,0 +1,91 @@
+package chess.search;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import chess.ChessMatch;
+
+// analyses a position on a background thread while the opponent thinks: every legal move of the side
+// to move is tried and the best reply to it searched, one depth after the other for all moves,
+// so that when the move is actually played the reply is usually already known
+// the analysis runs on a copy of the match; stop() cancels it promptly and the replies found stay available
+public class Ponderer {
+	private final Search search;
+	private final int maxDepth;
+	// best reply to each move of the pondered position, from the deepest search completed
+	private final Map<Integer, Search.Result> replies = new ConcurrentHashMap<>();
+	private Thread thread;
+	private volatile boolean stopped;
+
+	public Ponderer(int maxDepth) {
+		this(new Search(), maxDepth);
+	}
+
+	public Ponderer(Search search, int maxDepth) {
+		this.search = search;
+		this.maxDepth = maxDepth;
+	}
+
+	// starts pondering the position of the match (the replies of the previous position are dropped)
+	public synchronized void start(ChessMatch chessMatch) {
+		stop();
+		replies.clear();
+		stopped = false;
+		ChessMatch copy = chessMatch.fork();
+		thread = new Thread(() -> ponder(copy), "ponder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// cancels the analysis and waits for the thread to end (at most the time the search takes to notice)
+	public synchronized void stop() {
+		if (thread == null) {
+			return;
+		}
+		stopped = true;
+		try {
+			// a search starting right now clears the request, so it is repeated until the thread ends
+			while (thread.isAlive()) {
+				search.stop();
+				thread.join(1);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	public boolean isRunning() {
+		Thread t = thread;
+		return t != null && t.isAlive();
+	}
+
+	// best reply found to the move (encoded as in Move), or null if that move was not analysed yet
+	public Search.Result getReply(int move) {
+		return replies.get(move);
+	}
+
+	// number of moves of the pondered position with a reply
+	public int getReplyCount() {
+		return replies.size();
+	}
+
+	private void ponder(ChessMatch chessMatch) {
+		int[] moves = chessMatch.getLegalMoves();
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			for (int move : moves) {
+				if (stopped) {
+					return;
+				}
+				chessMatch.doMove(move);
+				Search.Result reply = search.search(chessMatch, depth, 0, 0);
+				chessMatch.undo();
+				// a search cut short by stop() is not complete at this depth, the previous one is kept
+				if (reply.getDepth() == depth || !replies.containsKey(move)) {
+					replies.put(move, reply);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,408 @@
+package chess.search;
+
+import java.util.function.ToIntFunction;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.eval.Evaluator;
+import chess.eval.StaticExchange;
+
+// alpha-beta search with iterative deepening and a quiescence search of captures, used by the bots
+// moves are played on the match with doMove and taken back with undo: the match is left as it was
+// the search is bounded by depth, nodes and time, and stop() can be called from another thread;
+// when a bound is reached the best move of the last completed iteration is kept, or the move of the
+// unfinished iteration when it was fully searched and beat it
+// not thread safe: each thread searching needs its own Search
+public class Search {
+	public static final int MATE = 30000;
+	public static final int INFINITY = 32000;
+	public static final int MAX_PLY = 64;
+	// scores beyond this are mates
+	public static final int MATE_BOUND = MATE - MAX_PLY;
+	// plies of the quiescence search in which a side in check searches all its moves, deeper it stands pat
+	private static final int QUIESCENCE_EVASION_PLIES = 2;
+
+	// score of the position for the side to move, in centipawns
+	private final ToIntFunction<ChessMatch> evaluation;
+	private final int[][] moves = new int[MAX_PLY + 1][256];
+	private final int[][] scores = new int[MAX_PLY + 1][256];
+	// quiet moves tried at each ply before the current one, and the move played to reach the next ply
+	private final int[][] quiets = new int[MAX_PLY + 1][256];
+	private final int[] played = new int[MAX_PLY + 1];
+	// null to try the moves in the order of legalMoves (the move of the previous iteration still first)
+	private MoveOrdering ordering = new MoveOrdering();
+	private final long[] keys = new long[MAX_PLY + 1];
+	private final StaticExchange exchange = new StaticExchange();
+	// principal variation: pv[ply] holds the best line found from that ply, up to pvLength[ply]
+	private final int[][] pv = new int[MAX_PLY + 2][MAX_PLY + 2];
+	private final int[] pvLength = new int[MAX_PLY + 2];
+	// root moves of the lines already found in this iteration (MultiPV)
+	private final int[] excluded = new int[64];
+	private int excludedCount;
+	private int multiPv = 1;
+	private Listener listener;
+
+	private ChessMatch chessMatch;
+	private long nodes;
+	private long nodeLimit;
+	private long deadline;
+	private volatile boolean stopRequested;
+	private boolean aborted;
+	private int rootMove;
+	// score of rootMove, once searched to the end
+	private int rootScore;
+
+	public Search() {
+		this(new Evaluator()::evaluateForSideToMove);
+	}
+
+	public Search(ToIntFunction<ChessMatch> evaluation) {
+		this.evaluation = evaluation;
+	}
+
+	// best move of the side to move within the bounds (0 or less for no bound on nodes or time)
+	// the result has no move when the side to move has no legal move
+	public Result search(ChessMatch chessMatch, int maxDepth, long nodeLimit, long timeLimitMillis) {
+		long start = System.nanoTime();
+		return search(chessMatch, maxDepth, nodeLimit, timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000 : Long.MAX_VALUE, start);
+	}
+
+	// anytime search: the best move found when the deadline (System.nanoTime) comes, whatever the position
+	// the clock is read at every node, so the search returns within about a node of the deadline (tens of
+	// microseconds); a deadline already passed still gives a legal move, if there is one
+	public Result searchUntil(ChessMatch chessMatch, int maxDepth, long deadlineNanos) {
+		return search(chessMatch, maxDepth, 0, deadlineNanos, System.nanoTime());
+	}
+
+	private Result search(ChessMatch chessMatch, int maxDepth, long nodeLimit, long deadlineNanos, long start) {
+		this.chessMatch = chessMatch;
+		this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+		deadline = deadlineNanos;
+		stopRequested = false;
+		aborted = false;
+		nodes = 0;
+		rootMove = Move.NONE;
+		rootScore = -INFINITY;
+		int previousBest = Move.NONE;
+		if (ordering != null) {
+			ordering.newSearch();
+		}
+
+		Result best = null;
+		for (int d = 1; d <= Math.min(maxDepth, MAX_PLY) && !aborted; d++) {
+			// with several lines, each one is searched without the root moves of the lines before it
+			excludedCount = 0;
+			for (int line = 1; line <= multiPv; line++) {
+				rootMove = Move.NONE;
+				rootScore = -INFINITY;
+				int score = negamax(d, 0, -INFINITY, INFINITY, previousBest);
+				if (aborted && line == 1 && best != null && rootMove != Move.NONE && rootMove != previousBest) {
+					// the previous best move is searched first: a move that beat it was searched deeper, so it is kept
+					best = new Result(rootMove, rootScore, best.getDepth(), nodes, System.nanoTime() - start,
+							new int[] { rootMove });
+				}
+				if (aborted || rootMove == Move.NONE) {
+					// stopped, or fewer legal moves than lines
+					break;
+				}
+				Result result = new Result(rootMove, score, d, nodes, System.nanoTime() - start, principalVariation());
+				if (line == 1) {
+					best = result;
+					previousBest = rootMove;
+				}
+				if (listener != null) {
+					listener.lineCompleted(line, result);
+				}
+				excluded[excludedCount++] = rootMove;
+			}
+			if (best == null || best.getMove() == Move.NONE || best.isMate()) {
+				// no legal move, or a forced mate: searching deeper changes nothing
+				break;
+			}
+		}
+		long nanos = System.nanoTime() - start;
+		if (best != null) {
+			return new Result(best.getMove(), best.getScore(), best.getDepth(), nodes, nanos, best.getPv());
+		}
+		int move = rootMove;
+		if (move == Move.NONE && chessMatch.legalMoves(moves[0]) > 0) {
+			// stopped before any move was searched
+			move = moves[0][0];
+		}
+		// stopped during the first iteration: the move found so far is better than none
+		return new Result(move, 0, 0, nodes, nanos, move == Move.NONE ? new int[0] : new int[] { move });
+	}
+
+	// asks a running search to return as soon as possible
+	public void stop() {
+		stopRequested = true;
+	}
+
+	// number of best lines searched (MultiPV), 1 by default
+	public void setMultiPv(int multiPv) {
+		if (multiPv < 1 || multiPv > excluded.length) {
+			throw new IllegalArgumentException("MultiPV must be between 1 and " + excluded.length);
+		}
+		this.multiPv = multiPv;
+	}
+
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	// told of every line completed (set it to null for none), on the searching thread
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public MoveOrdering getMoveOrdering() {
+		return ordering;
+	}
+
+	// the ordering (and its tables) used by the next searches, null for none
+	public void setMoveOrdering(MoveOrdering ordering) {
+		this.ordering = ordering;
+	}
+
+	// nodes searched so far by the current (or last) search
+	public long getNodes() {
+		return nodes;
+	}
+
+	private int negamax(int depth, int ply, int alpha, int beta, int firstMove) {
+		pvLength[ply] = ply;
+		if (depth <= 0 || ply >= MAX_PLY) {
+			return quiescence(ply, 0, alpha, beta);
+		}
+		if (countNode()) {
+			return 0;
+		}
+		keys[ply] = chessMatch.getPositionKey();
+		if (ply > 0 && repeated(ply)) {
+			return 0;
+		}
+		int[] list = moves[ply];
+		int count = chessMatch.legalMoves(list);
+		if (count == 0) {
+			// checkmate or stalemate
+			return chessMatch.getCheck() ? -MATE + ply : 0;
+		}
+		int previousMove = ply > 0 ? played[ply - 1] : Move.NONE;
+		if (ordering != null) {
+			ordering.score(chessMatch, list, scores[ply], count, ply, firstMove, previousMove);
+		}
+		else if (firstMove != Move.NONE) {
+			// the best move of the previous iteration is searched first
+			for (int i = 1; i < count; i++) {
+				if (list[i] == firstMove) {
+					list[i] = list[0];
+					list[0] = firstMove;
+				}
+			}
+		}
+		int best = -INFINITY;
+		int quietCount = 0;
+		for (int i = 0; i < count; i++) {
+			int move = ordering != null ? MoveOrdering.next(list, scores[ply], i, count) : list[i];
+			if (ply == 0 && isExcluded(move)) {
+				continue;
+			}
+			played[ply] = move;
+			chessMatch.doMove(move);
+			int score = -negamax(depth - 1, ply + 1, -beta, -alpha, Move.NONE);
+			chessMatch.undo();
+			if (aborted) {
+				return 0;
+			}
+			if (score > best) {
+				best = score;
+				if (ply == 0) {
+					rootMove = move;
+					rootScore = score;
+				}
+			}
+			if (score > alpha) {
+				alpha = score;
+				updatePv(ply, move);
+			}
+			boolean quiet = !MoveOrdering.isTactical(chessMatch, move);
+			if (alpha >= beta) {
+				if (ordering != null && quiet) {
+					ordering.cutoff(chessMatch.getCurrentPlayer(), move, ply, depth, previousMove, quiets[ply], quietCount);
+				}
+				break;
+			}
+			if (quiet) {
+				quiets[ply][quietCount++] = move;
+			}
+		}
+		return best;
+	}
+
+	private boolean isExcluded(int move) {
+		for (int i = 0; i < excludedCount; i++) {
+			if (excluded[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the line of the ply is its move followed by the line of the next ply
+	private void updatePv(int ply, int move) {
+		pv[ply][ply] = move;
+		for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+			pv[ply][i] = pv[ply + 1][i];
+		}
+		pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+	}
+
+	private int[] principalVariation() {
+		int[] line = new int[pvLength[0]];
+		System.arraycopy(pv[0], 0, line, 0, line.length);
+		return line;
+	}
+
+	// captures and promotions that don't lose material (SEE), until the position is quiet; the side to move may also stand pat
+	// in check every move is searched in the first plies, so mates right after the horizon are seen
+	private int quiescence(int ply, int quiescencePly, int alpha, int beta) {
+		pvLength[ply] = ply;
+		if (countNode()) {
+			return 0;
+		}
+		boolean inCheck = chessMatch.getCheck() && quiescencePly < QUIESCENCE_EVASION_PLIES;
+		int best = -INFINITY;
+		if (!inCheck || ply >= MAX_PLY) {
+			best = evaluation.applyAsInt(chessMatch);
+			if (best >= beta || ply >= MAX_PLY) {
+				return best;
+			}
+			if (best > alpha) {
+				alpha = best;
+			}
+		}
+		int[] list = moves[ply];
+		int count = chessMatch.legalMoves(list);
+		if (count == 0) {
+			return chessMatch.getCheck() ? -MATE + ply : 0;
+		}
+		if (!inCheck) {
+			// out of check only the captures that don't lose material; they are chosen before any is
+			// searched, because the deeper plies set their own position in the exchange
+			exchange.setPosition(chessMatch);
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				if (MoveOrdering.isTactical(chessMatch, list[i]) && exchange.evaluate(list[i]) >= 0) {
+					list[kept++] = list[i];
+				}
+			}
+			count = kept;
+		}
+		if (ordering != null) {
+			ordering.scoreTactical(chessMatch, list, scores[ply], count);
+		}
+		for (int i = 0; i < count; i++) {
+			int move = ordering != null ? MoveOrdering.next(list, scores[ply], i, count) : list[i];
+			chessMatch.doMove(move);
+			int score = -quiescence(ply + 1, quiescencePly + 1, -beta, -alpha);
+			chessMatch.undo();
+			if (aborted) {
+				return 0;
+			}
+			if (score > best) {
+				best = score;
+			}
+			if (score > alpha) {
+				alpha = score;
+			}
+			if (alpha >= beta) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	// the position already occurred on the search path with the same side to move
+	private boolean repeated(int ply) {
+		for (int i = ply - 2; i >= 0; i -= 2) {
+			if (keys[i] == keys[ply]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// counts a node and tells whether the search must stop
+	// the clock is read at every node: a node takes microseconds (it generates the legal moves), reading the
+	// clock tens of nanoseconds, and a deadline missed by up to 1024 nodes was missed by tens of milliseconds
+	private boolean countNode() {
+		if (aborted) {
+			return true;
+		}
+		nodes++;
+		if (nodes >= nodeLimit || stopRequested || (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline)) {
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	public interface Listener {
+		// line (1 for the best one) completed at the depth of the result
+		void lineCompleted(int line, Result result);
+	}
+
+	public static class Result {
+		private final int move;
+		private final int score;
+		private final int depth;
+		private final long nodes;
+		private final long nanos;
+		private final int[] pv;
+
+		public Result(int move, int score, int depth, long nodes, long nanos, int[] pv) {
+			this.move = move;
+			this.score = score;
+			this.depth = depth;
+			this.nodes = nodes;
+			this.nanos = nanos;
+			this.pv = pv;
+		}
+
+		// best move found, Move.NONE if the side to move has no legal move
+		public int getMove() {
+			return move;
+		}
+
+		// centipawns for the side to move; a mate in n plies scores MATE - n (negative when mated)
+		public int getScore() {
+			return score;
+		}
+
+		// last completed iteration
+		public int getDepth() {
+			return depth;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		// expected line, starting with the move
+		public int[] getPv() {
+			return pv;
+		}
+
+		public boolean isMate() {
+			return Math.abs(score) >= MATE_BOUND;
+		}
+
+		@Override
+		public String toString() {
+			return Move.toString(move) + " score " + score + " depth " + depth + " nodes " + nodes;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package chess.tablebase;
+
+import chess.ChessException;
+import chess.Color;
+
+// set of pieces of an endgame, written as the white pieces followed by the black pieces,
+// each side starting with its king and the other pieces ordered Q, R, B, N, P (ex: KQK, KRK, KPK, KKP)
+public class Material {
+	private static final String ORDER = "KQRBNP";
+	// piece type letters in the order of ChessPiece.getTypeIndex()
+	private static final String TYPE_LETTERS = "PNBRQK";
+
+	private final String name;
+	private final int[] types;
+	private final Color[] colors;
+
+	public Material(String name) {
+		String upper = name.toUpperCase();
+		int blackKing = upper.indexOf('K', 1);
+		if (upper.length() < 2 || upper.charAt(0) != 'K' || blackKing < 0) {
+			throw new ChessException("Invalid material " + name + ": each side must start with its king (ex: KQK)");
+		}
+		if (!upper.equals(canonical(upper.substring(0, blackKing)) + canonical(upper.substring(blackKing)))) {
+			throw new ChessException("Invalid material " + name + ": pieces must be ordered K, Q, R, B, N, P");
+		}
+		this.name = upper;
+		types = new int[upper.length()];
+		colors = new Color[upper.length()];
+		for (int i = 0; i < upper.length(); i++) {
+			types[i] = TYPE_LETTERS.indexOf(upper.charAt(i));
+			colors[i] = (i < blackKing) ? Color.WHITE : Color.BLACK;
+		}
+	}
+
+	private static String canonical(String side) {
+		char[] pieces = side.toCharArray();
+		for (char c : pieces) {
+			if (ORDER.indexOf(c) < 0) {
+				throw new ChessException("Invalid material: unknown piece " + c);
+			}
+		}
+		// insertion sort by the canonical order, a side has at most a few pieces
+		for (int i = 1; i < pieces.length; i++) {
+			for (int j = i; j > 0 && ORDER.indexOf(pieces[j]) < ORDER.indexOf(pieces[j - 1]); j--) {
+				char aux = pieces[j];
+				pieces[j] = pieces[j - 1];
+				pieces[j - 1] = aux;
+			}
+		}
+		return new String(pieces);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int size() {
+		return types.length;
+	}
+
+	public int getType(int piece) {
+		return types[piece];
+	}
+
+	public Color getColor(int piece) {
+		return colors[piece];
+	}
+
+	public char getFenLetter(int piece) {
+		char c = TYPE_LETTERS.charAt(types[piece]);
+		return colors[piece] == Color.WHITE ? c : Character.toLowerCase(c);
+	}
+
+	// material left after removing one piece (a capture)
+	public Material without(int piece) {
+		return new Material(name.substring(0, piece) + name.substring(piece + 1));
+	}
+
+	// material after a piece changes its type (a promotion)
+	public Material replacing(int piece, int newType) {
+		String white = name.substring(0, name.indexOf('K', 1));
+		String black = name.substring(white.length());
+		char[] pieces = name.toCharArray();
+		pieces[piece] = TYPE_LETTERS.charAt(newType);
+		String changed = new String(pieces);
+		return new Material(canonical(changed.substring(0, white.length())) + canonical(changed.substring(white.length(), white.length() + black.length())));
+	}
+
+	// true when neither side has a piece that can give mate (KK, KBK, KNK and their black versions)
+	public boolean isInsufficient() {
+		return types.length == 2 || (types.length == 3 && (types[1] == 1 || types[1] == 2 || types[2] == 1 || types[2] == 2));
+	}
+
+	// index of the piece of the material that would hold a piece of this type and color, ignoring the ones already used
+	int slotOf(int type, Color color, boolean[] used) {
+		for (int i = 0; i < types.length; i++) {
+			if (!used[i] && types[i] == type && colors[i] == color) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,141 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+
+// endgame tablebase of one material, memory-mapped from a file written by TablebaseGenerator
+// file: header (magic, number of pieces, material name) followed by one byte per position
+// a position is indexed by the side to move and the square of each piece of the material:
+// index = side * 64^n + square(0) * 64^(n-1) + ... + square(n-1)
+// each byte packs the result for the side to move (2 bits) and the distance to mate in moves (6 bits)
+public class Tablebase {
+	public static final int MAGIC = 0x43544231; // "CTB1"
+	public static final int HEADER_SIZE = 16;
+
+	public static final int INVALID = 0;
+	public static final int DRAW = 1;
+	public static final int WIN = 2;
+	public static final int LOSS = 3;
+
+	// returned by probe when the position doesn't have the material of the table
+	public static final int NOT_FOUND = -1;
+
+	private final Material material;
+	private final MappedByteBuffer data;
+
+	private Tablebase(Material material, MappedByteBuffer data) {
+		this.material = material;
+		this.data = data;
+	}
+
+	public static Tablebase open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+				throw new IOException("Not a tablebase file: " + file);
+			}
+			int pieces = header.getInt();
+			byte[] name = new byte[pieces];
+			header.get(name);
+			Material material = new Material(new String(name, StandardCharsets.US_ASCII));
+			long size = positions(material);
+			if (channel.size() != HEADER_SIZE + size) {
+				throw new IOException("Truncated tablebase file: " + file);
+			}
+			return new Tablebase(material, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size));
+		}
+	}
+
+	public Material getMaterial() {
+		return material;
+	}
+
+	// packed result of the current position of the match, or NOT_FOUND if its pieces are not the material of the table
+	public int probe(ChessMatch chessMatch) {
+		ChessPiece[][] pieces = chessMatch.getPieces();
+		int n = material.size();
+		int[] types = new int[n];
+		Color[] colors = new Color[n];
+		int[] squares = new int[n];
+		int count = 0;
+		for (int i = 0; i < 8; i++) {
+			for (int j = 0; j < 8; j++) {
+				ChessPiece p = pieces[i][j];
+				if (p != null) {
+					if (count == n) {
+						return NOT_FOUND;
+					}
+					types[count] = p.getTypeIndex();
+					colors[count] = p.getColor();
+					squares[count] = i * 8 + j;
+					count++;
+				}
+			}
+		}
+		int index = index(material, types, colors, squares, count, chessMatch.getCurrentPlayer());
+		return index < 0 ? NOT_FOUND : value(index);
+	}
+
+	public int value(int index) {
+		return data.get(index) & 0xFF;
+	}
+
+	public static int wdl(int packed) {
+		return packed >>> 6;
+	}
+
+	public static int movesToMate(int packed) {
+		return packed & 63;
+	}
+
+	static int pack(int wdl, int movesToMate) {
+		return (wdl << 6) | Math.min(movesToMate, 63);
+	}
+
+	static int positions(Material material) {
+		if (material.size() > TablebaseGenerator.MAX_PIECES) {
+			throw new ChessException("Tablebases support at most " + TablebaseGenerator.MAX_PIECES + " pieces");
+		}
+		return 2 << (6 * material.size());
+	}
+
+	// index of the pieces in the material, each piece taking the first free slot of its type and color
+	// returns -1 if the pieces don't match the material
+	static int index(Material material, int[] types, Color[] colors, int[] squares, int count, Color sideToMove) {
+		if (count != material.size()) {
+			return -1;
+		}
+		int[] slotSquares = new int[count];
+		boolean[] used = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			int slot = material.slotOf(types[i], colors[i], used);
+			if (slot < 0) {
+				return -1;
+			}
+			used[slot] = true;
+			slotSquares[slot] = squares[i];
+		}
+		return index(slotSquares, count, sideToMove);
+	}
+
+	static int index(int[] squares, int count, Color sideToMove) {
+		int index = (sideToMove == Color.WHITE) ? 0 : 1;
+		for (int i = 0; i < count; i++) {
+			index = (index << 6) | squares[i];
+		}
+		return index;
+	}
+}
@@ -0,0 +1,391 @@
+package chess.tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+
+// builds endgame tablebases by retrograde analysis
+// 1. every placement of the material is set up in a ChessMatch and its legal moves are turned into successor indexes
+//    (captures and promotions lead to the tables of smaller or different materials, which are generated first)
+// 2. positions without legal moves are mate (loss in 0) or stalemate (draw)
+// 3. round k marks as win in k plies the positions with a successor lost in k-1 plies,
+//    and as loss in k plies the positions whose successors are all won in at most k-1 plies
+// 4. positions still unknown when the rounds stop changing are draws
+// both the move generation and the rounds run in parallel over the positions
+public class TablebaseGenerator {
+	public static final int MAX_PIECES = 3;
+
+	private static final int UNKNOWN = -1;
+
+	private final Path directory;
+	private final ForkJoinPool pool;
+	// generated or loaded tables by material name, one byte per position as in the files
+	private final Map<String, byte[]> tables = new HashMap<>();
+	private Listener listener;
+
+	public TablebaseGenerator(Path directory, int threads) {
+		this.directory = directory;
+		this.pool = new ForkJoinPool(threads);
+	}
+
+	public TablebaseGenerator(Path directory) {
+		this(directory, Runtime.getRuntime().availableProcessors());
+	}
+
+	// generates the table of the material (and the tables it depends on) if its file doesn't exist yet
+	public Tablebase generate(String materialName) throws IOException {
+		Material material = new Material(materialName);
+		table(material);
+		return Tablebase.open(file(material));
+	}
+
+	// told of every table computed (the ones generate needs included), null for none
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public Path file(Material material) {
+		return directory.resolve(material.getName() + ".tb");
+	}
+
+	private byte[] table(Material material) throws IOException {
+		byte[] table = tables.get(material.getName());
+		if (table != null) {
+			return table;
+		}
+		Path file = file(material);
+		if (Files.exists(file)) {
+			byte[] bytes = Files.readAllBytes(file);
+			table = Arrays.copyOfRange(bytes, Tablebase.HEADER_SIZE, bytes.length);
+		}
+		else {
+			// captures and promotions lead to other materials, their tables must exist first
+			for (int i = 0; i < material.size(); i++) {
+				if (material.getType(i) != 5) {
+					Material captured = material.without(i);
+					if (!captured.isInsufficient()) {
+						table(captured);
+					}
+				}
+				if (material.getType(i) == 0) {
+					for (int type = 1; type <= 4; type++) {
+						Material promoted = material.replacing(i, type);
+						if (!promoted.isInsufficient()) {
+							table(promoted);
+						}
+					}
+				}
+			}
+			table = compute(material);
+			write(material, table);
+		}
+		tables.put(material.getName(), table);
+		return table;
+	}
+
+	private byte[] compute(Material material) {
+		if (material.size() > MAX_PIECES) {
+			throw new ChessException("Tablebases support at most " + MAX_PIECES + " pieces");
+		}
+		int positions = Tablebase.positions(material);
+		int[] state = new int[positions];
+		int[][] successors = new int[positions][];
+		Arrays.fill(state, UNKNOWN);
+
+		long start = System.nanoTime();
+		ThreadLocal<int[]> moveBuffers = ThreadLocal.withInitial(() -> new int[256]);
+		run(() -> {
+			IntStream.range(0, positions).parallel().forEach(i -> expand(material, i, state, successors, moveBuffers.get()));
+			return 0L;
+		});
+		int maxTerminalPlies = 0;
+		for (int[] list : successors) {
+			if (list != null) {
+				for (int code : list) {
+					if (code < 0) {
+						maxTerminalPlies = Math.max(maxTerminalPlies, (-code - 1) & 0xFF);
+					}
+				}
+			}
+		}
+
+		int rounds = 0;
+		for (int k = 1; ; k++) {
+			int ply = k;
+			long changed = run(() -> IntStream.range(0, positions).parallel()
+					.mapToLong(i -> resolve(i, ply, state, successors)).sum());
+			rounds = k;
+			if (changed == 0 && k > maxTerminalPlies) {
+				break;
+			}
+		}
+
+		byte[] table = new byte[positions];
+		for (int i = 0; i < positions; i++) {
+			if (successors[i] == null) {
+				table[i] = (byte)Tablebase.pack(Tablebase.INVALID, 0);
+			}
+			else if (state[i] == UNKNOWN) {
+				table[i] = (byte)Tablebase.pack(Tablebase.DRAW, 0);
+			}
+			else {
+				int wdl = state[i] >>> 8;
+				int plies = state[i] & 0xFF;
+				int moves = (wdl == Tablebase.WIN) ? (plies + 1) / 2 : plies / 2;
+				table[i] = (byte)Tablebase.pack(wdl, moves);
+			}
+		}
+		if (listener != null) {
+			listener.tableComputed(material, positions, rounds, System.nanoTime() - start);
+		}
+		return table;
+	}
+
+	// sets up the position of the index and stores its successors (null if the position is not legal)
+	private void expand(Material material, int index, int[] state, int[][] successors, int[] moves) {
+		int n = material.size();
+		int[] squares = new int[n];
+		int rest = index;
+		for (int i = n - 1; i >= 0; i--) {
+			squares[i] = rest & 63;
+			rest >>>= 6;
+		}
+		Color sideToMove = (rest == 0) ? Color.WHITE : Color.BLACK;
+		char[] board = new char[64];
+		for (int i = 0; i < n; i++) {
+			int row = Move.row(squares[i]);
+			if (board[squares[i]] != 0 || (material.getType(i) == 0 && (row == 0 || row == 7))) {
+				return;
+			}
+			board[squares[i]] = material.getFenLetter(i);
+		}
+		ChessMatch chessMatch;
+		try {
+			chessMatch = new ChessMatch(fen(board, sideToMove));
+		}
+		catch (ChessException e) {
+			// the side not to move is in check
+			return;
+		}
+		int count = chessMatch.legalMoves(moves);
+		int[] list = new int[count];
+		for (int m = 0; m < count; m++) {
+			list[m] = successor(material, squares, sideToMove, moves[m]);
+		}
+		if (count == 0) {
+			state[index] = chessMatch.getCheck() ? (Tablebase.LOSS << 8) : (Tablebase.DRAW << 8);
+		}
+		successors[index] = list;
+	}
+
+	// index of the position after the move, or a negative code holding the result when the material changes
+	private int successor(Material material, int[] squares, Color sideToMove, int move) {
+		int n = material.size();
+		int source = Move.source(move);
+		int target = Move.target(move);
+		Color next = (sideToMove == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		int moved = -1;
+		int captured = -1;
+		for (int i = 0; i < n; i++) {
+			if (squares[i] == source) {
+				moved = i;
+			}
+			else if (squares[i] == target) {
+				captured = i;
+			}
+		}
+		if (captured < 0 && Move.promotion(move) == Move.PROMOTION_NONE) {
+			int[] after = squares.clone();
+			after[moved] = target;
+			return Tablebase.index(after, n, next);
+		}
+
+		int[] types = new int[n];
+		Color[] colors = new Color[n];
+		int[] after = new int[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (i == captured) {
+				continue;
+			}
+			types[count] = material.getType(i);
+			colors[count] = material.getColor(i);
+			after[count] = squares[i];
+			if (i == moved) {
+				after[count] = target;
+				if (Move.promotion(move) != Move.PROMOTION_NONE) {
+					types[count] = promotionType(Move.promotion(move));
+				}
+			}
+			count++;
+		}
+		Material changed = (captured >= 0) ? material.without(captured) : material;
+		if (Move.promotion(move) != Move.PROMOTION_NONE) {
+			int slot = (captured >= 0 && captured < moved) ? moved - 1 : moved;
+			changed = changed.replacing(slot, promotionType(Move.promotion(move)));
+		}
+		if (changed.isInsufficient()) {
+			return terminal(Tablebase.DRAW, 0);
+		}
+		byte[] table = tables.get(changed.getName());
+		int packed = table[Tablebase.index(changed, types, colors, after, count, next)] & 0xFF;
+		int wdl = Tablebase.wdl(packed);
+		int moves = Tablebase.movesToMate(packed);
+		if (wdl == Tablebase.WIN) {
+			return terminal(wdl, 2 * moves - 1);
+		}
+		if (wdl == Tablebase.LOSS) {
+			return terminal(wdl, 2 * moves);
+		}
+		return terminal(Tablebase.DRAW, 0);
+	}
+
+	private static int terminal(int wdl, int plies) {
+		return -1 - ((wdl << 8) | plies);
+	}
+
+	private static int promotionType(int promotion) {
+		switch (promotion) {
+		case Move.PROMOTION_KNIGHT: return 1;
+		case Move.PROMOTION_BISHOP: return 2;
+		case Move.PROMOTION_ROOK: return 3;
+		default: return 4;
+		}
+	}
+
+	// one retrograde round, returns 1 if the position got its result in this round
+	private static int resolve(int index, int k, int[] state, int[][] successors) {
+		int[] list = successors[index];
+		if (list == null || state[index] != UNKNOWN) {
+			return 0;
+		}
+		int fastestLoss = Integer.MAX_VALUE;
+		int slowestWin = -1;
+		boolean allWin = true;
+		for (int code : list) {
+			int value = (code >= 0) ? state[code] : -code - 1;
+			// results found in this round (k plies) are only used in the next one
+			if (value == UNKNOWN || (value & 0xFF) > k - 1) {
+				allWin = false;
+				continue;
+			}
+			int wdl = value >>> 8;
+			int plies = value & 0xFF;
+			if (wdl == Tablebase.LOSS) {
+				fastestLoss = Math.min(fastestLoss, plies);
+			}
+			if (wdl == Tablebase.WIN) {
+				slowestWin = Math.max(slowestWin, plies);
+			}
+			else {
+				allWin = false;
+			}
+		}
+		if (fastestLoss != Integer.MAX_VALUE) {
+			state[index] = (Tablebase.WIN << 8) | (fastestLoss + 1);
+			return 1;
+		}
+		if (allWin) {
+			state[index] = (Tablebase.LOSS << 8) | (slowestWin + 1);
+			return 1;
+		}
+		return 0;
+	}
+
+	private static String fen(char[] board, Color sideToMove) {
+		StringBuilder sb = new StringBuilder(32);
+		for (int row = 0; row < 8; row++) {
+			int empty = 0;
+			for (int column = 0; column < 8; column++) {
+				char c = board[row * 8 + column];
+				if (c == 0) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append(empty);
+					empty = 0;
+				}
+				sb.append(c);
+			}
+			if (empty > 0) {
+				sb.append(empty);
+			}
+			if (row < 7) {
+				sb.append('/');
+			}
+		}
+		sb.append(sideToMove == Color.WHITE ? " w - - 0 1" : " b - - 0 1");
+		return sb.toString();
+	}
+
+	private void write(Material material, byte[] table) throws IOException {
+		Files.createDirectories(directory);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file(material))))) {
+			byte[] name = Arrays.copyOf(material.getName().getBytes(StandardCharsets.US_ASCII), Tablebase.HEADER_SIZE - 8);
+			out.writeInt(Tablebase.MAGIC);
+			out.writeInt(material.size());
+			out.write(name);
+			out.write(table);
+		}
+	}
+
+	// runs the parallel streams in the pool of the generator instead of the common pool
+	private long run(Callable<Long> task) {
+		try {
+			return pool.submit(task).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tablebase generation interrupted", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Tablebase generation failed", e.getCause());
+		}
+	}
+
+	// usage: TablebaseGenerator <directory> <material>... (ex: TablebaseGenerator tb KQK KRK KPK)
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: TablebaseGenerator <directory> <material>...");
+			return;
+		}
+		TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]));
+		generator.setListener((material, positions, rounds, nanos) ->
+				System.out.printf("%s: %d positions, %d rounds, %.1f s%n", material, positions, rounds, nanos / 1e9));
+		for (int i = 1; i < args.length; i++) {
+			Tablebase tablebase = generator.generate(args[i]);
+			int[] counts = new int[4];
+			int longest = 0;
+			int positions = Tablebase.positions(tablebase.getMaterial());
+			for (int index = 0; index < positions; index++) {
+				int packed = tablebase.value(index);
+				counts[Tablebase.wdl(packed)]++;
+				longest = Math.max(longest, Tablebase.movesToMate(packed));
+			}
+			System.out.printf("%s: %d wins, %d draws, %d losses, %d invalid, longest mate in %d%n",
+					tablebase.getMaterial(), counts[Tablebase.WIN], counts[Tablebase.DRAW], counts[Tablebase.LOSS], counts[Tablebase.INVALID], longest);
+		}
+	}
+
+	public interface Listener {
+		// table of the material computed, in that many rounds of retrograde analysis
+		void tableComputed(Material material, int positions, int rounds, long nanos);
+	}
+}
@@ -0,0 +1,14 @@
+package chess.tournament;
+
+import chess.ChessMatch;
+import chess.search.Search;
+
+// a player of the tournament: chooses the move of the side to move within a node or time bound
+// bots are not shared between threads, each game thread makes its own
+public interface Bot {
+
+	String getName();
+
+	// the match must be left as it was; 0 or less means no bound
+	Search.Result think(ChessMatch chessMatch, long nodeLimit, long timeLimitMillis);
+}
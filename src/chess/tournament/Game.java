@@ -0,0 +1,236 @@
+package chess.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import chess.Notation;
+import chess.pieces.Bishop;
+import chess.pieces.King;
+import chess.pieces.Knight;
+import chess.pieces.Pawn;
+import chess.search.Search;
+
+// one game between two bots from a starting position, played to the end or adjudicated:
+// checkmate, stalemate, fifty moves, threefold repetition, insufficient material, time,
+// resignation when both bots agree on a decisive score, and draw when both see a dead equal position
+public class Game {
+	public static final String WHITE_WINS = "1-0";
+	public static final String BLACK_WINS = "0-1";
+	public static final String DRAW = "1/2-1/2";
+
+	// a side resigns when both bots agreed for RESIGN_PLIES moves each that it is lost by RESIGN_SCORE
+	private static final int RESIGN_SCORE = 1000;
+	private static final int RESIGN_PLIES = 3;
+	// after DRAW_START plies, a draw is agreed when both scores stayed within DRAW_SCORE for DRAW_PLIES plies
+	private static final int DRAW_START = 80;
+	private static final int DRAW_SCORE = 10;
+	private static final int DRAW_PLIES = 10;
+
+	private final Bot white;
+	private final Bot black;
+	private final String fen;
+	private final List<String> moves = new ArrayList<>();
+	private String result;
+	private String termination;
+	private long nodes;
+
+	public Game(Bot white, Bot black, String fen) {
+		this.white = white;
+		this.black = black;
+		this.fen = fen;
+	}
+
+	// plays the game; the budget is per move in nodes and per game in milliseconds (plus an increment
+	// per move), 0 for no bound; returns false (and the game has no result) if it was cancelled
+	public boolean play(long nodesPerMove, long millisPerGame, long incrementMillis, int maxPlies, BooleanSupplier cancelled) {
+		ChessMatch chessMatch = new ChessMatch(fen);
+		List<Long> keys = new ArrayList<>();
+		long[] clock = { millisPerGame, millisPerGame };
+		int halfmoveClock = 0;
+		int resignCount = 0;
+		int drawCount = 0;
+		int lastScore = 0;
+		int[] legal = new int[256];
+		for (int ply = 0; ; ply++) {
+			if (cancelled.getAsBoolean()) {
+				return false;
+			}
+			boolean whiteToMove = chessMatch.getCurrentPlayer() == Color.WHITE;
+			keys.add(chessMatch.getPositionKey());
+			if (chessMatch.legalMoves(legal) == 0) {
+				if (chessMatch.getCheck()) {
+					return finish(whiteToMove ? BLACK_WINS : WHITE_WINS, "checkmate");
+				}
+				return finish(DRAW, "stalemate");
+			}
+			if (halfmoveClock >= 100) {
+				return finish(DRAW, "fifty moves");
+			}
+			if (occurrences(keys, chessMatch.getPositionKey()) >= 3) {
+				return finish(DRAW, "threefold repetition");
+			}
+			if (insufficientMaterial(chessMatch)) {
+				return finish(DRAW, "insufficient material");
+			}
+			if (maxPlies > 0 && ply >= maxPlies) {
+				return finish(DRAW, "move limit");
+			}
+
+			int side = whiteToMove ? 0 : 1;
+			long moveTime = 0;
+			if (millisPerGame > 0) {
+				moveTime = Math.max(1, clock[side] / 30 + incrementMillis / 2);
+			}
+			long start = System.nanoTime();
+			Search.Result thought = (whiteToMove ? white : black).think(chessMatch, nodesPerMove, moveTime);
+			nodes += thought.getNodes();
+			if (millisPerGame > 0) {
+				clock[side] -= (System.nanoTime() - start) / 1_000_000;
+				if (clock[side] < 0) {
+					return finish(whiteToMove ? BLACK_WINS : WHITE_WINS, "time forfeit");
+				}
+				clock[side] += incrementMillis;
+			}
+
+			// a search cut by the time before its first iteration ended has no score (depth 0): the
+			// adjudication counts are left as they were
+			if (thought.getDepth() > 0) {
+				int score = thought.getScore();
+				// both bots agree one side is winning: the score of each is the opposite sign of the other's
+				boolean decisive = Math.abs(score) >= RESIGN_SCORE && Math.abs(lastScore) >= RESIGN_SCORE && (score > 0) != (lastScore > 0);
+				resignCount = decisive ? resignCount + 1 : 0;
+				if (resignCount >= 2 * RESIGN_PLIES) {
+					return finish((score > 0) == whiteToMove ? WHITE_WINS : BLACK_WINS, "adjudication");
+				}
+				drawCount = (ply >= DRAW_START && Math.abs(score) <= DRAW_SCORE) ? drawCount + 1 : 0;
+				if (drawCount >= DRAW_PLIES) {
+					return finish(DRAW, "adjudication");
+				}
+				lastScore = score;
+			}
+
+			int move = thought.getMove();
+			ChessPiece piece = chessMatch.getPiece(Move.source(move));
+			boolean reset = piece instanceof Pawn || chessMatch.getPiece(Move.target(move)) != null;
+			halfmoveClock = reset ? 0 : halfmoveClock + 1;
+			moves.add(Notation.toSan(chessMatch, move));
+			chessMatch.doMove(move);
+		}
+	}
+
+	private boolean finish(String result, String termination) {
+		this.result = result;
+		this.termination = termination;
+		return true;
+	}
+
+	private static int occurrences(List<Long> keys, long key) {
+		int count = 0;
+		for (long k : keys) {
+			if (k == key) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// only the kings, or the kings and one knight or bishop
+	private static boolean insufficientMaterial(ChessMatch chessMatch) {
+		int minors = 0;
+		for (int square = 0; square < 64; square++) {
+			ChessPiece piece = chessMatch.getPiece(square);
+			if (piece == null || piece instanceof King) {
+				continue;
+			}
+			if (!(piece instanceof Knight || piece instanceof Bishop) || ++minors > 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public Bot getWhite() {
+		return white;
+	}
+
+	public Bot getBlack() {
+		return black;
+	}
+
+	public String getFen() {
+		return fen;
+	}
+
+	// moves in standard algebraic notation
+	public List<String> getMoves() {
+		return moves;
+	}
+
+	// WHITE_WINS, BLACK_WINS or DRAW, null while the game is not over
+	public String getResult() {
+		return result;
+	}
+
+	public String getTermination() {
+		return termination;
+	}
+
+	// nodes searched by both bots
+	public long getNodes() {
+		return nodes;
+	}
+
+	public String toPgn(String event, int round) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[Event \"").append(event).append("\"]\n");
+		sb.append("[Site \"?\"]\n");
+		sb.append("[Date \"????.??.??\"]\n");
+		sb.append("[Round \"").append(round).append("\"]\n");
+		sb.append("[White \"").append(white.getName()).append("\"]\n");
+		sb.append("[Black \"").append(black.getName()).append("\"]\n");
+		sb.append("[Result \"").append(result).append("\"]\n");
+		sb.append("[SetUp \"1\"]\n");
+		sb.append("[FEN \"").append(fen).append("\"]\n");
+		sb.append("[Termination \"").append(termination).append("\"]\n\n");
+		String[] fields = fen.split(" ");
+		int number = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+		boolean whiteToMove = fields.length < 2 || fields[1].equals("w");
+		int lineLength = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			String token = moves.get(i);
+			if (whiteToMove) {
+				token = number + ". " + token;
+			}
+			else if (i == 0) {
+				token = number + "... " + token;
+			}
+			if (!whiteToMove) {
+				number++;
+			}
+			whiteToMove = !whiteToMove;
+			lineLength = appendToken(sb, token, lineLength);
+		}
+		appendToken(sb, result, lineLength);
+		sb.append("\n\n");
+		return sb.toString();
+	}
+
+	// PGN lines are kept under 80 characters
+	private static int appendToken(StringBuilder sb, String token, int lineLength) {
+		if (lineLength > 0 && lineLength + 1 + token.length() > 79) {
+			sb.append('\n');
+			lineLength = 0;
+		}
+		else if (lineLength > 0) {
+			sb.append(' ');
+			lineLength++;
+		}
+		sb.append(token);
+		return lineLength + token.length();
+	}
+}
@@ -0,0 +1,29 @@
+package chess.tournament;
+
+import java.util.function.ToIntFunction;
+
+import chess.ChessMatch;
+import chess.search.Search;
+
+// bot playing the best move of an alpha-beta search with the given evaluation (side to move, centipawns)
+public class SearchBot implements Bot {
+	private final String name;
+	private final Search search;
+	private final int maxDepth;
+
+	public SearchBot(String name, ToIntFunction<ChessMatch> evaluation, int maxDepth) {
+		this.name = name;
+		this.search = new Search(evaluation);
+		this.maxDepth = maxDepth;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Search.Result think(ChessMatch chessMatch, long nodeLimit, long timeLimitMillis) {
+		return search.search(chessMatch, maxDepth, nodeLimit, timeLimitMillis);
+	}
+}
@@ -0,0 +1,95 @@
+package chess.tournament;
+
+// sequential probability ratio test on the results of a match between two bots
+// H0: the first bot is elo0 stronger, H1: it is elo1 stronger; the log-likelihood ratio (LLR) of the
+// results is compared with the bounds given by the error rates alpha (accepting H1 when H0 holds)
+// and beta (accepting H0 when H1 holds); it uses the normal approximation of the trinomial
+// (win, draw, loss) distribution, as in the usual engine testing frameworks
+public class Sprt {
+
+	public enum Decision { CONTINUE, ACCEPT_H0, ACCEPT_H1 }
+
+	private final double elo0;
+	private final double elo1;
+	private final double lowerBound;
+	private final double upperBound;
+
+	public Sprt(double elo0, double elo1, double alpha, double beta) {
+		if (elo1 <= elo0) {
+			throw new IllegalArgumentException("elo1 must be greater than elo0");
+		}
+		if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+			throw new IllegalArgumentException("alpha and beta must be between 0 and 1");
+		}
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		lowerBound = Math.log(beta / (1 - alpha));
+		upperBound = Math.log((1 - beta) / alpha);
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	public double llr(int wins, int draws, int losses) {
+		int n = wins + draws + losses;
+		if (n == 0) {
+			return 0;
+		}
+		double score = (wins + draws / 2.0) / n;
+		double variance = (wins * square(1 - score) + draws * square(0.5 - score) + losses * square(score)) / n;
+		if (variance == 0) {
+			// all the games had the same result (ex: all draws): no variance to estimate yet
+			return 0;
+		}
+		double score0 = expectedScore(elo0);
+		double score1 = expectedScore(elo1);
+		return (score1 - score0) * (2 * score - score0 - score1) * n / (2 * variance);
+	}
+
+	public Decision decide(int wins, int draws, int losses) {
+		double llr = llr(wins, draws, losses);
+		if (llr >= upperBound) {
+			return Decision.ACCEPT_H1;
+		}
+		if (llr <= lowerBound) {
+			return Decision.ACCEPT_H0;
+		}
+		return Decision.CONTINUE;
+	}
+
+	// expected score of a player that is elo points stronger
+	public static double expectedScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	// elo difference giving the score (0 < score < 1)
+	public static double elo(double score) {
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	// elo difference measured from the results and half the width of its 95% confidence interval
+	public static double[] eloWithError(int wins, int draws, int losses) {
+		int n = wins + draws + losses;
+		if (n == 0) {
+			return new double[] { 0, 0 };
+		}
+		double score = (wins + draws / 2.0) / n;
+		double variance = (wins * square(1 - score) + draws * square(0.5 - score) + losses * square(score)) / n;
+		double margin = 1.96 * Math.sqrt(variance / n);
+		return new double[] { elo(clamp(score)), (elo(clamp(score + margin)) - elo(clamp(score - margin))) / 2 };
+	}
+
+	// keeps scores of all wins or all losses away from infinite elo
+	private static double clamp(double score) {
+		return Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+	}
+
+	private static double square(double x) {
+		return x * x;
+	}
+}
@@ -0,0 +1,312 @@
+package chess.tournament;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import chess.eval.Evaluator;
+import chess.search.Search;
+
+// match between two bots played on several threads: every opening is played twice, once with each
+// bot as White; finished games are written as PGN and the standings printed as they come in
+// with an SPRT the match stops as soon as the test reaches a decision (games still running are dropped)
+public class Tournament {
+	private final Supplier<Bot> first;
+	private final Supplier<Bot> second;
+	private final List<String> openings;
+	private final int maxGames;
+	private final int threads;
+	private long nodesPerMove;
+	private long millisPerGame;
+	private long incrementMillis;
+	private int maxPlies = 400;
+	private Sprt sprt;
+	private Writer pgn;
+	private PrintStream out = System.out;
+
+	private final AtomicInteger nextGame = new AtomicInteger();
+	private volatile boolean stopped;
+	// results of the first bot
+	private int wins;
+	private int draws;
+	private int losses;
+	private long nodes;
+	private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+	private IOException pgnError;
+
+	// openings are FEN positions; each bot supplier is called once per thread
+	public Tournament(Supplier<Bot> first, Supplier<Bot> second, List<String> openings, int maxGames, int threads) {
+		if (openings.isEmpty()) {
+			throw new IllegalArgumentException("There is no opening position");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("The tournament needs at least one thread");
+		}
+		this.first = first;
+		this.second = second;
+		this.openings = openings;
+		this.maxGames = maxGames;
+		this.threads = threads;
+	}
+
+	// budget of each bot: nodes per move and/or milliseconds per game plus an increment per move
+	public void setBudget(long nodesPerMove, long millisPerGame, long incrementMillis) {
+		this.nodesPerMove = nodesPerMove;
+		this.millisPerGame = millisPerGame;
+		this.incrementMillis = incrementMillis;
+	}
+
+	// games longer than this are drawn (0 for no limit)
+	public void setMaxPlies(int maxPlies) {
+		this.maxPlies = maxPlies;
+	}
+
+	public void setSprt(Sprt sprt) {
+		this.sprt = sprt;
+	}
+
+	// where finished games are written, flushed after each game
+	public void setPgn(Writer pgn) {
+		this.pgn = pgn;
+	}
+
+	// where the standings are printed after each game
+	public void setOut(PrintStream out) {
+		this.out = out;
+	}
+
+	// plays the match, returns when all games are played or the SPRT decided
+	public void run() throws InterruptedException, IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; i++) {
+			executor.execute(this::playGames);
+		}
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+		}
+		if (pgnError != null) {
+			throw pgnError;
+		}
+	}
+
+	// asks the match to stop: games running are dropped
+	public void stop() {
+		stopped = true;
+	}
+
+	private void playGames() {
+		Bot firstBot = first.get();
+		Bot secondBot = second.get();
+		while (!stopped) {
+			int index = nextGame.getAndIncrement();
+			if (index >= maxGames) {
+				return;
+			}
+			String fen = openings.get((index / 2) % openings.size());
+			boolean firstIsWhite = index % 2 == 0;
+			Game game = firstIsWhite ? new Game(firstBot, secondBot, fen) : new Game(secondBot, firstBot, fen);
+			if (game.play(nodesPerMove, millisPerGame, incrementMillis, maxPlies, () -> stopped)) {
+				record(index, game, firstIsWhite);
+			}
+		}
+	}
+
+	private synchronized void record(int index, Game game, boolean firstIsWhite) {
+		if (stopped) {
+			return;
+		}
+		String result = game.getResult();
+		if (result.equals(Game.DRAW)) {
+			draws++;
+		}
+		else if (result.equals(Game.WHITE_WINS) == firstIsWhite) {
+			wins++;
+		}
+		else {
+			losses++;
+		}
+		nodes += game.getNodes();
+		if (pgn != null && pgnError == null) {
+			try {
+				Bot firstBot = firstIsWhite ? game.getWhite() : game.getBlack();
+				Bot secondBot = firstIsWhite ? game.getBlack() : game.getWhite();
+				pgn.write(game.toPgn(firstBot.getName() + " vs " + secondBot.getName(), index + 1));
+				pgn.flush();
+			}
+			catch (IOException e) {
+				pgnError = e;
+				stopped = true;
+			}
+		}
+		out.printf("Game %d (%s vs %s): %s {%s}%n", index + 1, game.getWhite().getName(), game.getBlack().getName(), result, game.getTermination());
+		out.println(standings());
+		if (sprt != null) {
+			decision = sprt.decide(wins, draws, losses);
+			if (decision != Sprt.Decision.CONTINUE) {
+				out.println("SPRT: " + (decision == Sprt.Decision.ACCEPT_H1 ? "H1 accepted" : "H0 accepted"));
+				stopped = true;
+			}
+		}
+	}
+
+	public synchronized String standings() {
+		int games = wins + draws + losses;
+		double[] elo = Sprt.eloWithError(wins, draws, losses);
+		String s = String.format("Score: %d - %d - %d  [%.3f] %d games  Elo %+.1f +/- %.1f  %d nodes",
+				wins, losses, draws, games == 0 ? 0.5 : (wins + draws / 2.0) / games, games, elo[0], elo[1], nodes);
+		if (sprt != null) {
+			s += String.format("  LLR %.2f (%.2f, %.2f)", sprt.llr(wins, draws, losses), sprt.getLowerBound(), sprt.getUpperBound());
+		}
+		return s;
+	}
+
+	public synchronized int getWins() {
+		return wins;
+	}
+
+	public synchronized int getDraws() {
+		return draws;
+	}
+
+	public synchronized int getLosses() {
+		return losses;
+	}
+
+	public synchronized Sprt.Decision getDecision() {
+		return decision;
+	}
+
+	// opening positions, one per line: a FEN, or moves in coordinate notation played from the initial position
+	// lines that are empty or start with # are skipped
+	// the openings bundled with the classes (openings.txt, which javac doesn't copy to the output directory)
+	public static List<String> readDefaultOpenings() throws IOException {
+		try (InputStream in = Tournament.class.getResourceAsStream("openings.txt")) {
+			if (in == null) {
+				throw new IOException("chess/tournament/openings.txt is not on the class path: copy it from src next to the "
+						+ "compiled classes, or add src to the class path");
+			}
+			return readOpenings(in);
+		}
+	}
+
+	public static List<String> readOpenings(InputStream in) throws IOException {
+		List<String> openings = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (line.contains("/")) {
+				openings.add(new ChessMatch(line).getFen());
+				continue;
+			}
+			ChessMatch chessMatch = new ChessMatch();
+			for (String token : line.split("\\s+")) {
+				int move = Move.parse(token);
+				if (move == Move.NONE) {
+					throw new ChessException("Invalid move " + token + " in opening: " + line);
+				}
+				chessMatch.performChessMove(move);
+			}
+			openings.add(chessMatch.getFen());
+		}
+		return openings;
+	}
+
+	// bot from its name: "pst" searches with the piece-square evaluation only, "eval" adds the pawn structure;
+	// a suffix "/n" limits the depth (ex: eval/4)
+	public static Supplier<Bot> bot(String spec) {
+		String[] parts = spec.split("/");
+		int depth = parts.length > 1 ? Integer.parseInt(parts[1]) : Search.MAX_PLY;
+		switch (parts[0]) {
+		case "pst":
+			return () -> new SearchBot(spec, m -> m.getCurrentPlayer() == Color.WHITE ? m.getEvaluation() : -m.getEvaluation(), depth);
+		case "eval":
+			return () -> new SearchBot(spec, new Evaluator()::evaluateForSideToMove, depth);
+		default:
+			throw new IllegalArgumentException("Unknown bot: " + spec);
+		}
+	}
+
+	// Tournament [-a bot] [-b bot] [-games n] [-threads n] [-nodes n] [-time ms] [-inc ms] [-plies n]
+	//            [-openings file] [-pgn file] [-sprt elo0 elo1 alpha beta]
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String a = "eval";
+		String b = "pst";
+		int games = 1000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long nodesPerMove = 0;
+		long time = 0;
+		long increment = 0;
+		int plies = 400;
+		String openingsFile = null;
+		String pgnFile = null;
+		Sprt sprt = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-a": a = args[++i]; break;
+			case "-b": b = args[++i]; break;
+			case "-games": games = Integer.parseInt(args[++i]); break;
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-nodes": nodesPerMove = Long.parseLong(args[++i]); break;
+			case "-time": time = Long.parseLong(args[++i]); break;
+			case "-inc": increment = Long.parseLong(args[++i]); break;
+			case "-plies": plies = Integer.parseInt(args[++i]); break;
+			case "-openings": openingsFile = args[++i]; break;
+			case "-pgn": pgnFile = args[++i]; break;
+			case "-sprt":
+				sprt = new Sprt(Double.parseDouble(args[i + 1]), Double.parseDouble(args[i + 2]),
+						Double.parseDouble(args[i + 3]), Double.parseDouble(args[i + 4]));
+				i += 4;
+				break;
+			default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		if (nodesPerMove <= 0 && time <= 0) {
+			nodesPerMove = 2000;
+		}
+		List<String> openings;
+		if (openingsFile != null) {
+			try (InputStream in = Files.newInputStream(Paths.get(openingsFile))) {
+				openings = readOpenings(in);
+			}
+		}
+		else {
+			openings = readDefaultOpenings();
+		}
+		Tournament tournament = new Tournament(bot(a), bot(b), openings, games, threads);
+		tournament.setBudget(nodesPerMove, time, increment);
+		tournament.setMaxPlies(plies);
+		tournament.setSprt(sprt);
+		Writer writer = pgnFile != null ? Files.newBufferedWriter(Paths.get(pgnFile), StandardCharsets.UTF_8) : null;
+		try {
+			tournament.setPgn(writer);
+			tournament.run();
+		}
+		finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+		System.out.println("Final " + tournament.standings());
+	}
+}